@@ -3,6 +3,7 @@ matplotlib.use('Agg')
 import matplotlib.pyplot as plt
 import pandas as pd
 import os
+import sys
 from datetime import datetime
 from pathlib import Path
 
@@ -11,202 +12,173 @@ current_date = datetime.now().strftime('%Y%m%d%H%M')
 output_dir = f'graphs/{current_date}'
 os.makedirs(output_dir, exist_ok=True)
 
-# Algorithm types and matrix types
-algorithms = ["basic", "loop", "cache", "strassen"]
-matrix_types = ["normal", "sparse"]
+# Benchmarks root, e.g. benchmarks/jmh for the JMH results
+benchmarks_dir = sys.argv[1] if len(sys.argv) > 1 else 'benchmarks'
 
-# Read all benchmark files into a dictionary
-data = {}
-for matrix_type in matrix_types:
-    data[matrix_type] = {}
-    for algorithm in algorithms:
-        filepath = f'benchmarks/{matrix_type}/{algorithm}.txt'
-        try:
-            data[matrix_type][algorithm] = pd.read_csv(filepath, sep='\t')
-        except Exception as e:
-            print(f"Error reading {filepath}: {e}")
+# Per-algorithm reports (<type>/<algorithm>.txt with the Time, Memory and CPU columns) as written by the main
+# benchmark loop and the JMH runner; reports in any other layout are skipped
+REPORT_COLUMNS = {'Size', 'Time(s)', 'Memory(MB)', 'CPU(%)'}
 
-# ============================================================
-# Plot 1: Time Comparison - All Algorithms (Normal Matrices)
-# ============================================================
-fig1, ax1 = plt.subplots(figsize=(12, 6))
-for algorithm in algorithms:
-    df = data["normal"][algorithm]
-    ax1.plot(df['Size'], df['Time(s)'], marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
-
-ax1.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
-ax1.set_ylabel('Time (seconds)', fontsize=12, fontweight='bold')
-ax1.set_title('Execution Time Comparison - All Algorithms (Normal Matrices)', fontsize=14, fontweight='bold')
-ax1.set_xscale('log', base=2)
-ax1.set_yscale('log')
-ax1.legend(fontsize=11)
-ax1.grid(True, alpha=0.3)
-plt.tight_layout()
-plt.savefig(f'{output_dir}/01_time_comparison_normal.png', dpi=300, bbox_inches='tight')
-plt.close()
+def read_report(path):
+    try:
+        df = pd.read_csv(path, sep='\t')
+    except Exception as e:
+        print(f"Error reading {path}: {e}")
+        return None
+    return df if REPORT_COLUMNS.issubset(df.columns) else None
 
+# Matrix types and algorithms are whatever the benchmark runs produced, basic first as the speedup baseline
+data = {}
+for type_dir in sorted(Path(benchmarks_dir).iterdir()) if Path(benchmarks_dir).is_dir() else []:
+    if not type_dir.is_dir():
+        continue
+    reports = {}
+    for path in sorted(type_dir.glob('*.txt')):
+        df = read_report(path)
+        if df is not None:
+            reports[path.stem] = df
+    if reports:
+        data[type_dir.name] = reports
+
+if not data:
+    sys.exit(f"No benchmark reports found under {benchmarks_dir}")
+
+matrix_types = list(data)
+algorithms = sorted({algorithm for reports in data.values() for algorithm in reports},
+                    key=lambda algorithm: (algorithm != 'basic', algorithm))
+saved = []
+
+def save(fig, filename):
+    plt.tight_layout()
+    plt.savefig(f'{output_dir}/{filename}', dpi=300, bbox_inches='tight')
+    plt.close(fig)
+    saved.append(filename)
+
+def type_axes(width=7):
+    fig, axes = plt.subplots(1, len(matrix_types), figsize=(width * len(matrix_types), 6), squeeze=False)
+    return fig, axes[0]
+
+# ============================================================
+# Plot 1: Time Comparison - All Algorithms, one figure per matrix type
 # ============================================================
-# Plot 2: Time Comparison - All Algorithms (Sparse Matrices)
-# ============================================================
-fig2, ax2 = plt.subplots(figsize=(12, 6))
-for algorithm in algorithms:
-    df = data["sparse"][algorithm]
-    ax2.plot(df['Size'], df['Time(s)'], marker='s', linewidth=2, label=algorithm.capitalize(), markersize=8)
-
-ax2.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
-ax2.set_ylabel('Time (seconds)', fontsize=12, fontweight='bold')
-ax2.set_title('Execution Time Comparison - All Algorithms (Sparse Matrices)', fontsize=14, fontweight='bold')
-ax2.set_xscale('log', base=2)
-ax2.set_yscale('log')
-ax2.legend(fontsize=11)
-ax2.grid(True, alpha=0.3)
-plt.tight_layout()
-plt.savefig(f'{output_dir}/02_time_comparison_sparse.png', dpi=300, bbox_inches='tight')
-plt.close()
+for matrix_type in matrix_types:
+    fig1, ax1 = plt.subplots(figsize=(12, 6))
+    for algorithm, df in data[matrix_type].items():
+        ax1.plot(df['Size'], df['Time(s)'], marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
+
+    ax1.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
+    ax1.set_ylabel('Time (seconds)', fontsize=12, fontweight='bold')
+    ax1.set_title(f'Execution Time Comparison - All Algorithms ({matrix_type.capitalize()} Matrices)', fontsize=14, fontweight='bold')
+    ax1.set_xscale('log', base=2)
+    ax1.set_yscale('log')
+    ax1.legend(fontsize=11)
+    ax1.grid(True, alpha=0.3)
+    save(fig1, f'01_time_comparison_{matrix_type}.png')
 
 # ============================================================
-# Plot 3: Normal vs Sparse - Time Comparison (All Algorithms)
+# Plot 2: Matrix Types - Time Comparison per Algorithm
 # ============================================================
-fig3, axes = plt.subplots(2, 2, figsize=(14, 10))
+columns = min(3, len(algorithms))
+rows = (len(algorithms) + columns - 1) // columns
+fig2, axes = plt.subplots(rows, columns, figsize=(7 * columns, 5 * rows), squeeze=False)
 axes = axes.flatten()
+width = 0.8 / len(matrix_types)
 
 for idx, algorithm in enumerate(algorithms):
     ax = axes[idx]
-    
-    df_normal = data["normal"][algorithm]
-    df_sparse = data["sparse"][algorithm]
-    
-    x = range(len(df_normal))
-    width = 0.35
-    
-    ax.bar([i - width/2 for i in x], df_normal['Time(s)'], width, label='Normal', alpha=0.8, color='skyblue')
-    ax.bar([i + width/2 for i in x], df_sparse['Time(s)'], width, label='Sparse', alpha=0.8, color='coral')
-    
+    sizes = sorted({size for reports in data.values() if algorithm in reports for size in reports[algorithm]['Size']})
+    x = range(len(sizes))
+
+    for t, matrix_type in enumerate(matrix_types):
+        df = data[matrix_type].get(algorithm)
+        if df is None:
+            continue
+        times = df.set_index('Size')['Time(s)'].reindex(sizes)
+        offset = (t - (len(matrix_types) - 1) / 2) * width
+        ax.bar([i + offset for i in x], times, width, label=matrix_type.capitalize(), alpha=0.8)
+
     ax.set_xlabel('Matrix Size', fontsize=11, fontweight='bold')
     ax.set_ylabel('Time (seconds)', fontsize=11, fontweight='bold')
-    ax.set_title(f'{algorithm.capitalize()} - Normal vs Sparse', fontsize=12, fontweight='bold')
+    ax.set_title(f'{algorithm.capitalize()} - Matrix Types', fontsize=12, fontweight='bold')
     ax.set_xticks(x)
-    ax.set_xticklabels(df_normal['Size'], rotation=45)
+    ax.set_xticklabels(sizes, rotation=45)
     ax.legend(fontsize=10)
     ax.grid(True, alpha=0.3, axis='y')
 
-plt.tight_layout()
-plt.savefig(f'{output_dir}/03_normal_vs_sparse_all_algorithms.png', dpi=300, bbox_inches='tight')
-plt.close()
+for ax in axes[len(algorithms):]:
+    ax.set_visible(False)
+
+save(fig2, '02_matrix_types_all_algorithms.png')
 
 # ============================================================
-# Plot 4: Average Time Comparison (Normal vs Sparse)
+# Plot 3: Average Time Comparison per Matrix Type
 # ============================================================
-fig4, ax4 = plt.subplots(figsize=(12, 6))
+fig3, ax3 = plt.subplots(figsize=(max(12, len(algorithms) * len(matrix_types) * 0.6), 6))
 
 x = range(len(algorithms))
-width = 0.35
-
-avg_times_normal = []
-avg_times_sparse = []
 
-for algorithm in algorithms:
-    avg_normal = data["normal"][algorithm]['Time(s)'].mean()
-    avg_sparse = data["sparse"][algorithm]['Time(s)'].mean()
-    avg_times_normal.append(avg_normal)
-    avg_times_sparse.append(avg_sparse)
+for t, matrix_type in enumerate(matrix_types):
+    averages = [data[matrix_type][algorithm]['Time(s)'].mean() if algorithm in data[matrix_type] else float('nan')
+                for algorithm in algorithms]
+    offset = (t - (len(matrix_types) - 1) / 2) * width
+    bars = ax3.bar([i + offset for i in x], averages, width, label=f'{matrix_type.capitalize()} Matrices', alpha=0.8)
 
-bars1 = ax4.bar([i - width/2 for i in x], avg_times_normal, width, label='Normal Matrices', alpha=0.8, color='steelblue')
-bars2 = ax4.bar([i + width/2 for i in x], avg_times_sparse, width, label='Sparse Matrices', alpha=0.8, color='darkorange')
-
-# Add value labels on bars
-for bars in [bars1, bars2]:
+    # Add value labels on bars
     for bar in bars:
         height = bar.get_height()
-        ax4.text(bar.get_x() + bar.get_width()/2., height,
-                f'{height:.4f}s',
-                ha='center', va='bottom', fontsize=9)
-
-ax4.set_xlabel('Algorithm', fontsize=12, fontweight='bold')
-ax4.set_ylabel('Average Time (seconds)', fontsize=12, fontweight='bold')
-ax4.set_title('Average Execution Time - Normal vs Sparse Matrices', fontsize=14, fontweight='bold')
-ax4.set_xticks(x)
-ax4.set_xticklabels([algo.capitalize() for algo in algorithms])
-ax4.legend(fontsize=11)
-ax4.grid(True, alpha=0.3, axis='y')
-
-plt.tight_layout()
-plt.savefig(f'{output_dir}/04_average_time_comparison.png', dpi=300, bbox_inches='tight')
-plt.close()
-
-# ============================================================
-# Plot 5: Memory Usage Comparison
-# ============================================================
-fig5, axes = plt.subplots(1, 2, figsize=(14, 6))
-
-for idx, matrix_type in enumerate(matrix_types):
-    ax = axes[idx]
-    
-    for algorithm in algorithms:
-        df = data[matrix_type][algorithm]
-        ax.plot(df['Size'], df['Memory(MB)'], marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
-    
-    ax.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
-    ax.set_ylabel('Memory (MB)', fontsize=12, fontweight='bold')
-    ax.set_title(f'Memory Usage - {matrix_type.capitalize()} Matrices', fontsize=12, fontweight='bold')
-    ax.set_xscale('log', base=2)
-    ax.legend(fontsize=10)
-    ax.grid(True, alpha=0.3)
-
-plt.tight_layout()
-plt.savefig(f'{output_dir}/05_memory_usage_comparison.png', dpi=300, bbox_inches='tight')
-plt.close()
-
-# ============================================================
-# Plot 6: Speedup Analysis (Relative to Basic Algorithm)
-# ============================================================
-fig6, axes = plt.subplots(1, 2, figsize=(14, 6))
-
-for idx, matrix_type in enumerate(matrix_types):
-    ax = axes[idx]
-    
-    times_basic = data[matrix_type]["basic"]['Time(s)'].values
-    sizes = data[matrix_type]["basic"]['Size'].values
-    
-    for algorithm in algorithms[1:]:  # Skip basic
-        times_algo = data[matrix_type][algorithm]['Time(s)'].values
-        speedup = times_basic / times_algo
-        ax.plot(sizes, speedup, marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
-    
-    ax.axhline(y=1, color='gray', linestyle='--', linewidth=1, label='Basic (baseline)')
-    ax.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
-    ax.set_ylabel('Speedup (vs Basic)', fontsize=12, fontweight='bold')
-    ax.set_title(f'Speedup Analysis - {matrix_type.capitalize()} Matrices', fontsize=12, fontweight='bold')
-    ax.set_xscale('log', base=2)
-    ax.legend(fontsize=10)
-    ax.grid(True, alpha=0.3)
-
-plt.tight_layout()
-plt.savefig(f'{output_dir}/06_speedup_analysis.png', dpi=300, bbox_inches='tight')
-plt.close()
-
-# ============================================================
-# Plot 7: CPU Usage Comparison
-# ============================================================
-fig7, axes = plt.subplots(1, 2, figsize=(14, 6))
-
-for idx, matrix_type in enumerate(matrix_types):
-    ax = axes[idx]
-    
-    for algorithm in algorithms:
-        df = data[matrix_type][algorithm]
-        ax.plot(df['Size'], df['CPU(%)'], marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
-    
-    ax.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
-    ax.set_ylabel('CPU Usage (%)', fontsize=12, fontweight='bold')
-    ax.set_title(f'CPU Usage - {matrix_type.capitalize()} Matrices', fontsize=12, fontweight='bold')
-    ax.set_xscale('log', base=2)
-    ax.legend(fontsize=10)
-    ax.grid(True, alpha=0.3)
-
-plt.tight_layout()
-plt.savefig(f'{output_dir}/07_cpu_usage_comparison.png', dpi=300, bbox_inches='tight')
-plt.close()
+        if height == height:
+            ax3.text(bar.get_x() + bar.get_width()/2., height,
+                    f'{height:.4f}s',
+                    ha='center', va='bottom', fontsize=9)
+
+ax3.set_xlabel('Algorithm', fontsize=12, fontweight='bold')
+ax3.set_ylabel('Average Time (seconds)', fontsize=12, fontweight='bold')
+ax3.set_title('Average Execution Time per Matrix Type', fontsize=14, fontweight='bold')
+ax3.set_xticks(x)
+ax3.set_xticklabels([algo.capitalize() for algo in algorithms], rotation=45)
+ax3.legend(fontsize=11)
+ax3.grid(True, alpha=0.3, axis='y')
+
+save(fig3, '03_average_time_comparison.png')
+
+# ============================================================
+# Plots 4-8: Memory, Speedup, CPU, Throughput and GC Time per Matrix Type
+# ============================================================
+for number, column, label, filename in [(4, 'Memory(MB)', 'Allocated Memory (MB)', 'memory_usage'),
+                                        (5, None, 'Speedup (vs Basic)', 'speedup'),
+                                        (6, 'CPU(%)', 'CPU Usage (%)', 'cpu_usage'),
+                                        (7, 'GOPS', 'Effective GOPS (2n^3 / time)', 'gops'),
+                                        (8, 'GCTime(ms)', 'GC Time per Run (ms)', 'gc_time')]:
+    fig, axes = type_axes()
+    for idx, matrix_type in enumerate(matrix_types):
+        ax = axes[idx]
+        reports = data[matrix_type]
+        if column is None:
+            # Speedup needs the basic baseline, matched on size
+            if 'basic' not in reports:
+                ax.set_visible(False)
+                continue
+            basic = reports['basic'].set_index('Size')['Time(s)']
+            for algorithm, df in reports.items():
+                if algorithm == 'basic':
+                    continue
+                times = df.set_index('Size')['Time(s)']
+                speedup = (basic / times).dropna()
+                ax.plot(speedup.index, speedup.values, marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
+            ax.axhline(y=1, color='gray', linestyle='--', linewidth=1, label='Basic (baseline)')
+        else:
+            for algorithm, df in reports.items():
+                if column in df.columns:
+                    ax.plot(df['Size'], df[column], marker='o', linewidth=2, label=algorithm.capitalize(), markersize=8)
+
+        ax.set_xlabel('Matrix Size', fontsize=12, fontweight='bold')
+        ax.set_ylabel(label, fontsize=12, fontweight='bold')
+        ax.set_title(f'{label} - {matrix_type.capitalize()} Matrices', fontsize=12, fontweight='bold')
+        ax.set_xscale('log', base=2)
+        ax.legend(fontsize=10)
+        ax.grid(True, alpha=0.3)
+
+    save(fig, f'{number:02d}_{filename}_comparison.png')
 
 # ============================================================
 # Print Summary Statistics
@@ -218,8 +190,7 @@ print("="*80)
 for matrix_type in matrix_types:
     print(f"\n{matrix_type.upper()} MATRICES:")
     print("-" * 80)
-    for algorithm in algorithms:
-        df = data[matrix_type][algorithm]
+    for algorithm, df in data[matrix_type].items():
         avg_time = df['Time(s)'].mean()
         max_time = df['Time(s)'].max()
         max_memory = df['Memory(MB)'].max()
@@ -227,11 +198,6 @@ for matrix_type in matrix_types:
 
 print("\n" + "="*80)
 print(f"Graphs saved to {output_dir}/:")
-print("  - 01_time_comparison_normal.png")
-print("  - 02_time_comparison_sparse.png")
-print("  - 03_normal_vs_sparse_all_algorithms.png")
-print("  - 04_average_time_comparison.png")
-print("  - 05_memory_usage_comparison.png")
-print("  - 06_speedup_analysis.png")
-print("  - 07_cpu_usage_comparison.png")
-print("="*80)
\ No newline at end of file
+for filename in saved:
+    print(f"  - {filename}")
+print("="*80)
@@ -9,7 +9,9 @@ import sys
 # by the new line character \n.
 # These matrices are later used to benchmark matrix multiplication in different programming languages.
 # The second parameter (boolean) says if it should be a sparse matrix
-def generateMatrix(size, sparse):
+# The third parameter (boolean) makes the nonzeros come in dense square clusters instead of uniformly,
+# stored under ../input/clustered
+def generateMatrix(size, sparse, clustered=False):
     if not isinstance(size, int):
         raise TypeError("Size must be integer.")
     if size <= 0:
@@ -18,13 +20,22 @@ def generateMatrix(size, sparse):
         raise TypeError("Sparse must be integer.")
     
 
-    matrix_dir = (Path(__file__).resolve().parent / ".." / "input" / ("sparse" if (sparse) else "normal") / str(size)).resolve()
+    kind = "clustered" if clustered else ("sparse" if (sparse) else "normal")
+    matrix_dir = (Path(__file__).resolve().parent / ".." / "input" / kind / str(size)).resolve()
     matrix_dir.mkdir(parents=True, exist_ok=True)
 
     rng = random.Random()
     generated_files = []
 
     for i in range(1, 2 + 1):
+        if clustered:
+            lines = clusteredLines(size, rng)
+            content = "\n".join(lines) + "\n"
+            file_path = matrix_dir / f"{i}.txt"
+            file_path.write_text(content, encoding="utf-8")
+            generated_files.append(str(file_path))
+            continue
+
         # Build the matrix as lines of space-separated integers
         lines = []
         for _ in range(size):
@@ -47,15 +58,38 @@ def generateMatrix(size, sparse):
 
     return generated_files
 
+# Square clusters with side between size/32 and size/8 (at least 2) at random positions, each filled to
+# about 90% with numbers 1-9, until they cover roughly a tenth of the matrix; everything else is 0
+def clusteredLines(size, rng):
+    matrix = [[0] * size for _ in range(size)]
+    largest = max(2, size // 8)
+    smallest = max(2, size // 32)
+    covered = 0
+    while covered < size * size / 10:
+        side = min(size, rng.randint(smallest, largest))
+        top = rng.randint(0, size - side)
+        left = rng.randint(0, size - side)
+        for r in range(top, top + side):
+            for c in range(left, left + side):
+                if rng.random() < 0.9:
+                    matrix[r][c] = rng.randint(1, 9)
+        covered += side * side
+    return [" ".join(str(value) for value in row) for row in matrix]
+
+# Optional boolean argument at index, false when missing or "0"/"false"
+def flagArgument(index):
+    return len(sys.argv) > index and sys.argv[index] not in ("0", "false", "False")
+
 if __name__ == "__main__":
-    if len(sys.argv) != 2 and len(sys.argv) != 3:
-        print("Usage: python generateMatrix.py <size> <sparse=0>")
+    if len(sys.argv) < 2 or len(sys.argv) > 4:
+        print("Usage: python generateMatrix.py <size> <sparse=0> <clustered=0>")
         sys.exit(1)
     
     try:
         size = int(sys.argv[1])
-        sparse = bool(sys.argv[2])
-        files = generateMatrix(size, sparse)
+        sparse = flagArgument(2)
+        clustered = flagArgument(3)
+        files = generateMatrix(size, sparse, clustered)
         print(f"Generated {len(files)} matrices of size {size}x{size}")
     except ValueError as e:
         print(f"Error: {e}")
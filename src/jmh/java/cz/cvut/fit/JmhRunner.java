@@ -0,0 +1,119 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs MultiplicationBenchmark with the GC profiler and writes the results in the layout of
+// Main.saveBenchmarkResults, benchmarks/jmh/<type>/<algorithm>.txt, so generateGraphs.py can plot them.
+// Any JMH command line option (e.g. -p size=256,512 -f 5) overrides the defaults of the benchmark class.
+public class JmhRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        Path outputDir = Paths.get(System.getProperty("jmh.output", "benchmarks/jmh"));
+        Files.createDirectories(outputDir);
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .include(MultiplicationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                // Forked JVMs need the same modules as the main build, and the preview flag where build.gradle
+                // adds it: the FFM API is a preview API before JDK 22
+                .jvmArgsAppend(forkArgs())
+                .resultFormat(ResultFormatType.JSON)
+                .result(outputDir.resolve("results.json").toString());
+        if (!commandLine.getParameter("algorithm").hasValue()) {
+            builder.param("algorithm", MultiplierRegistry.names().toArray(new String[0]));
+        }
+        Options options = builder.build();
+
+        Collection<RunResult> runResults = new Runner(options).run();
+        saveResults(runResults, outputDir);
+        System.out.println("JMH results saved to: " + outputDir);
+    }
+
+    private static String[] forkArgs() {
+        if (Runtime.version().feature() < 22) {
+            return new String[]{"--add-modules", "jdk.incubator.vector", "--enable-preview"};
+        }
+        return new String[]{"--add-modules", "jdk.incubator.vector"};
+    }
+
+    // One TSV file per type and algorithm, rows sorted by size
+    static void saveResults(Collection<RunResult> runResults, Path outputDir) throws IOException {
+        Map<String, List<RunResult>> files = new TreeMap<>();
+        for (RunResult runResult : runResults) {
+            String type = runResult.getParams().getParam("type");
+            String algorithm = runResult.getParams().getParam("algorithm");
+            files.computeIfAbsent(type + "/" + algorithm, key -> new ArrayList<>()).add(runResult);
+        }
+
+        for (Map.Entry<String, List<RunResult>> file : files.entrySet()) {
+            List<RunResult> rows = file.getValue();
+            rows.sort(Comparator.comparingInt(r -> Integer.parseInt(r.getParams().getParam("size"))));
+
+            Path filePath = outputDir.resolve(file.getKey() + ".txt");
+            Files.createDirectories(filePath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(filePath))) {
+                // Columns of Main.saveBenchmarkResults plus the 99.9% confidence half-width of the time.
+                // Memory is allocation per operation; CPU and native memory are not measured by JMH.
+                writer.println("Size\tTime(s)\tMemory(MB)\tCPU(%)\tNative(MB)\tError(s)");
+                for (RunResult row : rows) {
+                    Result<?> primary = row.getPrimaryResult();
+                    double scale = secondsPerUnit(primary.getScoreUnit());
+                    writer.println(String.format("%s\t%.6f\t%.2f\tNaN\tNaN\t%.6f",
+                            row.getParams().getParam("size"),
+                            primary.getScore() * scale,
+                            allocatedBytesPerOp(row) / (1024.0 * 1024.0),
+                            primary.getScoreError() * scale));
+                }
+            }
+        }
+    }
+
+    // Normalized allocation rate of the GC profiler, NaN when the profiler could not run
+    private static double allocatedBytesPerOp(RunResult runResult) {
+        for (Map.Entry<String, Result> secondary : runResult.getSecondaryResults().entrySet()) {
+            if (secondary.getKey().endsWith("gc.alloc.rate.norm")) {
+                return secondary.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    // Score units of AverageTime look like "ms/op"
+    private static double secondsPerUnit(String unit) {
+        switch (unit.substring(0, unit.indexOf('/'))) {
+            case "s":
+                return 1;
+            case "ms":
+                return 1e-3;
+            case "us":
+                return 1e-6;
+            case "ns":
+                return 1e-9;
+            default:
+                throw new IllegalArgumentException("Unexpected score unit: " + unit);
+        }
+    }
+}
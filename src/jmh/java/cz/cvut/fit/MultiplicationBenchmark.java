@@ -0,0 +1,77 @@
+package cz.cvut.fit;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// Every registered algorithm on generated inputs, one JMH benchmark per algorithm x size x type.
+// Several forks give the run-to-run variance, which the error column of JmhRunner reports.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(3)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MultiplicationBenchmark {
+
+    // JMH needs a default here; JmhRunner runs every name in MultiplierRegistry unless -p algorithm=... picks some
+    @Param({"cache"})
+    public String algorithm;
+
+    // Powers of two only, the original Strassen fails on other sizes above 64
+    @Param({"128", "256", "512", "1024"})
+    public int size;
+
+    // Value distributions of python/generateMatrix.py: normal draws digits 0-9, sparse keeps about a third nonzero
+    @Param({"normal", "sparse"})
+    public String type;
+
+    private Matrix A, B;
+    private SparseMatrix sparseA, sparseB;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        A = generate(random);
+        B = generate(random);
+        if (algorithm.equals("sparse")) {
+            sparseA = SparseMatrix.fromMatrix(A);
+            sparseB = SparseMatrix.fromMatrix(B);
+        }
+    }
+
+    private Matrix generate(Random random) {
+        Matrix M = new Matrix(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (type.equals("sparse")) {
+                    M.data[i][j] = random.nextInt(101) % 3 == 0 ? 1 + random.nextInt(9) : 0;
+                } else {
+                    M.data[i][j] = random.nextInt(10);
+                }
+            }
+        }
+        return M;
+    }
+
+    // The result is returned so JMH consumes it and the multiplication cannot be eliminated
+    @Benchmark
+    public Object multiply() {
+        if (algorithm.equals("sparse")) {
+            return SparseAlgorithms.matrixMultiplicationSparse(sparseA, sparseB);
+        }
+        return Main.multiply(A, B, size, algorithm);
+    }
+}
@@ -61,8 +61,14 @@ public class Algorithms {
 
     // Matrix multiplication - cache optimization
     public static Matrix matrixMultiplicationCache(Matrix A, Matrix B, int size) {
+        return matrixMultiplicationCache(A, B, size, 64); // Cache-friendly block size (based on CPU cache)
+    }
+
+    public static Matrix matrixMultiplicationCache(Matrix A, Matrix B, int size, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
         Matrix C = new Matrix(size);
-        int blockSize = 64; // Cache-friendly block size (based on CPU cache)
 
         // Process matrix in blocks
         for (int ii = 0; ii < size; ii += blockSize) {
@@ -86,8 +92,16 @@ public class Algorithms {
 
     // Matrix multiplication - Strassen Algo
     public static Matrix matrixMultiplicationStrassen(Matrix A, Matrix B, int size) {
+        return matrixMultiplicationStrassen(A, B, size, 64);
+    }
+
+    public static Matrix matrixMultiplicationStrassen(Matrix A, Matrix B, int size, int cutoff) {
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        }
+
         // Base case: use basic multiplication for small matrices
-        if (size <= 64) {
+        if (size <= cutoff) {
             return matrixMultiplicationBasic(A, B, size);
         }
 
@@ -111,15 +125,15 @@ public class Algorithms {
 
         // Calculate 7 helper matrices
         Matrix M1 = matrixMultiplicationStrassen(add(A_sub[0][0], A_sub[1][1], newSize),
-                add(B_sub[0][0], B_sub[1][1], newSize), newSize);
-        Matrix M2 = matrixMultiplicationStrassen(add(A_sub[1][0], A_sub[1][1], newSize), B_sub[0][0], newSize);
-        Matrix M3 = matrixMultiplicationStrassen(A_sub[0][0], sub(B_sub[0][1], B_sub[1][1], newSize), newSize);
-        Matrix M4 = matrixMultiplicationStrassen(A_sub[1][1], sub(B_sub[1][0], B_sub[0][0], newSize), newSize);
-        Matrix M5 = matrixMultiplicationStrassen(add(A_sub[0][0], A_sub[0][1], newSize), B_sub[1][1], newSize);
+                add(B_sub[0][0], B_sub[1][1], newSize), newSize, cutoff);
+        Matrix M2 = matrixMultiplicationStrassen(add(A_sub[1][0], A_sub[1][1], newSize), B_sub[0][0], newSize, cutoff);
+        Matrix M3 = matrixMultiplicationStrassen(A_sub[0][0], sub(B_sub[0][1], B_sub[1][1], newSize), newSize, cutoff);
+        Matrix M4 = matrixMultiplicationStrassen(A_sub[1][1], sub(B_sub[1][0], B_sub[0][0], newSize), newSize, cutoff);
+        Matrix M5 = matrixMultiplicationStrassen(add(A_sub[0][0], A_sub[0][1], newSize), B_sub[1][1], newSize, cutoff);
         Matrix M6 = matrixMultiplicationStrassen(sub(A_sub[1][0], A_sub[0][0], newSize),
-                add(B_sub[0][0], B_sub[0][1], newSize), newSize);
+                add(B_sub[0][0], B_sub[0][1], newSize), newSize, cutoff);
         Matrix M7 = matrixMultiplicationStrassen(sub(A_sub[0][1], A_sub[1][1], newSize),
-                add(B_sub[1][0], B_sub[1][1], newSize), newSize);
+                add(B_sub[1][0], B_sub[1][1], newSize), newSize, cutoff);
 
         // Calculate result submatrices
         Matrix C11 = add(sub(add(M1, M4, newSize), M5, newSize), M7, newSize);
@@ -0,0 +1,194 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// The "auto" algorithm: the first call for a size and density class times the candidate kernels and tile sizes
+// on its own operands, keeps the fastest and records it in a tuning profile. Later calls, in this JVM or
+// the next one, dispatch straight to the recorded kernel.
+public class AutoTuner implements MatrixMultiplier {
+
+    // -Dmatrix.tuningProfile=path, relative to the working directory like input/ and results/
+    private static final Path PROFILE = Paths.get(System.getProperty("matrix.tuningProfile", "tuning.properties"));
+
+    private static final int[] TILE_SIZES = {32, 64, 128};
+    private static final int[] CROSSOVERS = {64, 128, 256};
+
+    // Kernel in use per profile key, resolved from the profile or measured
+    private final Map<String, MatrixMultiplier> chosen = new ConcurrentHashMap<>();
+    private Properties profile;
+
+    // A kernel with its profile entry, "name" or "name:parameter"
+    private static class Candidate {
+        final String spec;
+        final MatrixMultiplier multiplier;
+
+        Candidate(String spec, MatrixMultiplier multiplier) {
+            this.spec = spec;
+            this.multiplier = multiplier;
+        }
+    }
+
+    @Override
+    public Matrix multiply(Matrix A, Matrix B, int size) {
+        String key = key(size, density(A, B, size));
+        MatrixMultiplier multiplier = chosen.get(key);
+        if (multiplier != null) {
+            return multiplier.multiply(A, B, size);
+        }
+        return tune(key, A, B, size);
+    }
+
+    // Sizes are classed by the next power of two, densities by tenths
+    static String key(int size, double density) {
+        int sizeClass = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        return "size." + sizeClass + ".density." + Math.round(density * 10) / 10.0;
+    }
+
+    private static double density(Matrix A, Matrix B, int size) {
+        if (size == 0) {
+            return 0;
+        }
+        long nonZeros = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (A.data[i][j] != 0) {
+                    nonZeros++;
+                }
+                if (B.data[i][j] != 0) {
+                    nonZeros++;
+                }
+            }
+        }
+        return nonZeros / (2.0 * size * size);
+    }
+
+    // Uses the profile entry when there is a valid one, otherwise measures; returns A * B either way. Only the
+    // profile is locked, so other keys are served while one is measured; concurrent first calls for the same
+    // key may each measure, and the last to finish is recorded
+    private Matrix tune(String key, Matrix A, Matrix B, int size) {
+        Candidate candidate = recorded(key);
+        if (candidate != null) {
+            chosen.put(key, candidate.multiplier);
+            return candidate.multiplier.multiply(A, B, size);
+        }
+
+        // Short runs are noisy, take the best of a few; a single run is enough once one takes long
+        int runs = size <= 256 ? 3 : 1;
+        Candidate best = null;
+        Matrix bestResult = null;
+        long bestTime = Long.MAX_VALUE;
+        for (Candidate c : candidates()) {
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Matrix result = c.multiplier.multiply(A, B, size);
+                long time = System.nanoTime() - start;
+                if (time < bestTime) {
+                    bestTime = time;
+                    best = c;
+                    bestResult = result;
+                }
+            }
+        }
+
+        chosen.put(key, best.multiplier);
+        record(key, best.spec);
+        return bestResult;
+    }
+
+    private synchronized Candidate recorded(String key) {
+        String recorded = profile().getProperty(key);
+        return recorded == null ? null : resolve(recorded);
+    }
+
+    private synchronized void record(String key, String spec) {
+        profile().setProperty(key, spec);
+        saveProfile();
+    }
+
+    // The kernels worth timing; basic, loop and the copying Strassen never win and are left out
+    private static List<Candidate> candidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        for (int tileSize : TILE_SIZES) {
+            candidates.add(resolve("cache:" + tileSize));
+            candidates.add(resolve("parallel:" + tileSize));
+        }
+        for (int crossover : CROSSOVERS) {
+            candidates.add(resolve("winograd:" + crossover));
+        }
+        candidates.add(resolve("strassen-parallel"));
+        candidates.add(resolve("sparse"));
+        candidates.add(resolve("morton"));
+        if (VectorAlgorithms.isAvailable()) {
+            candidates.add(resolve("vector"));
+        }
+        return candidates;
+    }
+
+    // Profile entry -> kernel, null for entries this build cannot run (stale or edited profiles are re-tuned)
+    private static Candidate resolve(String spec) {
+        int colon = spec.indexOf(':');
+        String name = colon < 0 ? spec : spec.substring(0, colon);
+        int parameter;
+        try {
+            parameter = colon < 0 ? 0 : Integer.parseInt(spec.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (colon >= 0 && parameter < 1) {
+            return null;
+        }
+
+        if (colon < 0) {
+            if (name.equals("auto") || !MultiplierRegistry.contains(name)) {
+                return null;
+            }
+            return new Candidate(spec, MultiplierRegistry.get(name));
+        }
+        switch (name) {
+            case "cache":
+                return new Candidate(spec, (A, B, size) -> Algorithms.matrixMultiplicationCache(A, B, size, parameter));
+            case "parallel":
+                return new Candidate(spec, (A, B, size) ->
+                        ParallelAlgorithms.matrixMultiplicationCacheParallel(A, B, size, Main.PARALLELISM, parameter));
+            case "winograd":
+                return new Candidate(spec, (A, B, size) -> StrassenWinograd.matrixMultiplicationWinograd(A, B, size, parameter));
+            default:
+                return null;
+        }
+    }
+
+    private Properties profile() {
+        if (profile == null) {
+            profile = new Properties();
+            if (Files.exists(PROFILE)) {
+                try (Reader reader = Files.newBufferedReader(PROFILE)) {
+                    profile.load(reader);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Error reading tuning profile " + PROFILE + ", re-tuning: " + e.getMessage());
+                    profile.clear();
+                }
+            }
+        }
+        return profile;
+    }
+
+    // A profile that cannot be written only costs re-tuning in the next JVM
+    private void saveProfile() {
+        try (Writer writer = Files.newBufferedWriter(PROFILE)) {
+            profile.store(writer, "Fastest kernel per size and density class, delete to re-tune");
+        } catch (IOException e) {
+            System.err.println("Error saving tuning profile " + PROFILE + ": " + e.getMessage());
+        }
+    }
+}
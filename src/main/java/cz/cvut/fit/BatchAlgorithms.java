@@ -0,0 +1,241 @@
+package cz.cvut.fit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RecursiveAction;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Many small multiplications at once: pairs of the same size are packed back to back into one contiguous
+// buffer per operand, multiplied by a kernel specialized for that size and split over a fork/join pool in
+// chunks of several products, so per-call allocation and dispatch are paid per chunk instead of per product.
+public class BatchAlgorithms {
+
+    // Multiply-adds per fork/join leaf, small products are grouped until a leaf is worth a task
+    private static final int GRAIN = 1 << 16;
+
+    // count products of size x size matrices, product p at offset p * size * size of a, b and c
+    static class Batch {
+        final int size;
+        final int capacity;
+        int count;
+        final int[] a;
+        final int[] b;
+        final int[] c;
+
+        Batch(int size, int capacity) {
+            checkShape(size, capacity);
+            long elements = (long) size * size * capacity;
+            this.size = size;
+            this.capacity = capacity;
+            this.a = new int[(int) elements];
+            this.b = new int[(int) elements];
+            this.c = new int[(int) elements];
+        }
+
+        // Throws unless capacity products of size x size fit one int array per operand
+        static void checkShape(int size, int capacity) {
+            if (size < 1 || capacity < 1) {
+                throw new IllegalArgumentException("Size and capacity must be positive: " + size + ", " + capacity);
+            }
+            if ((long) size * size * capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Batch of " + capacity + " products of size " + size + " exceeds an array");
+            }
+        }
+
+        // Copies the pair into the next slot and returns its index
+        int add(Matrix A, Matrix B) {
+            if (A.size != size || B.size != size) {
+                throw new IllegalArgumentException("Batch of size " + size + " got " + A.size + " and " + B.size);
+            }
+            if (count == capacity) {
+                throw new IllegalStateException("Batch is full: " + capacity);
+            }
+            int offset = count * size * size;
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(A.data[i], 0, a, offset + i * size, size);
+                System.arraycopy(B.data[i], 0, b, offset + i * size, size);
+            }
+            return count++;
+        }
+
+        Matrix result(int index) {
+            Matrix C = new Matrix(size);
+            int offset = index * size * size;
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(c, offset + i * size, C.data[i], 0, size);
+            }
+            return C;
+        }
+
+        void clear() {
+            count = 0;
+        }
+    }
+
+    // C_i = A_i * B_i for every pair, results in input order
+    public static List<Matrix> matrixMultiplicationBatch(List<Matrix> As, List<Matrix> Bs, int parallelism) {
+        if (As.size() != Bs.size()) {
+            throw new IllegalArgumentException("Operand lists differ in length: " + As.size() + ", " + Bs.size());
+        }
+        Map<Integer, List<Integer>> bySize = new TreeMap<>();
+        for (int p = 0; p < As.size(); p++) {
+            bySize.computeIfAbsent(As.get(p).size, size -> new ArrayList<>()).add(p);
+        }
+
+        Matrix[] results = new Matrix[As.size()];
+        for (Map.Entry<Integer, List<Integer>> group : bySize.entrySet()) {
+            List<Integer> indices = group.getValue();
+            Batch batch = new Batch(group.getKey(), indices.size());
+            for (int p : indices) {
+                batch.add(As.get(p), Bs.get(p));
+            }
+            multiply(batch, parallelism);
+            for (int slot = 0; slot < indices.size(); slot++) {
+                results[indices.get(slot)] = batch.result(slot);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Multiplies the first batch.count products, on the caller's thread when one leaf covers them all
+    static void multiply(Batch batch, int parallelism) {
+        int n = batch.size;
+        int perLeaf = Math.max(1, GRAIN / (n * n * n));
+        if (parallelism <= 1 || batch.count <= perLeaf) {
+            multiplyRange(batch, 0, batch.count);
+            return;
+        }
+        ParallelAlgorithms.pool(parallelism).invoke(new RangeTask(batch, 0, batch.count, perLeaf));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private final Batch batch;
+        private final int from, to, perLeaf;
+
+        RangeTask(Batch batch, int from, int to, int perLeaf) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.perLeaf = perLeaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= perLeaf) {
+                multiplyRange(batch, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(batch, from, mid, perLeaf), new RangeTask(batch, mid, to, perLeaf));
+        }
+    }
+
+    // The size is resolved once per range, every product in it runs the same specialized kernel
+    private static void multiplyRange(Batch batch, int from, int to) {
+        int n = batch.size;
+        int stride = n * n;
+        int[] a = batch.a, b = batch.b, c = batch.c;
+        switch (n) {
+            case 1:
+                for (int p = from; p < to; p++) {
+                    c[p] = a[p] * b[p];
+                }
+                break;
+            case 2:
+                for (int p = from; p < to; p++) {
+                    multiply2(a, b, c, p * stride);
+                }
+                break;
+            case 3:
+                for (int p = from; p < to; p++) {
+                    multiply3(a, b, c, p * stride);
+                }
+                break;
+            case 4:
+                for (int p = from; p < to; p++) {
+                    multiply4(a, b, c, p * stride);
+                }
+                break;
+            default:
+                for (int p = from; p < to; p++) {
+                    multiplyRowPairs(a, b, c, p * stride, n);
+                }
+        }
+    }
+
+    private static void multiply2(int[] a, int[] b, int[] c, int o) {
+        int a00 = a[o], a01 = a[o + 1], a10 = a[o + 2], a11 = a[o + 3];
+        int b00 = b[o], b01 = b[o + 1], b10 = b[o + 2], b11 = b[o + 3];
+        c[o] = a00 * b00 + a01 * b10;
+        c[o + 1] = a00 * b01 + a01 * b11;
+        c[o + 2] = a10 * b00 + a11 * b10;
+        c[o + 3] = a10 * b01 + a11 * b11;
+    }
+
+    private static void multiply3(int[] a, int[] b, int[] c, int o) {
+        int b00 = b[o], b01 = b[o + 1], b02 = b[o + 2];
+        int b10 = b[o + 3], b11 = b[o + 4], b12 = b[o + 5];
+        int b20 = b[o + 6], b21 = b[o + 7], b22 = b[o + 8];
+        for (int i = o; i < o + 9; i += 3) {
+            int ai0 = a[i], ai1 = a[i + 1], ai2 = a[i + 2];
+            c[i] = ai0 * b00 + ai1 * b10 + ai2 * b20;
+            c[i + 1] = ai0 * b01 + ai1 * b11 + ai2 * b21;
+            c[i + 2] = ai0 * b02 + ai1 * b12 + ai2 * b22;
+        }
+    }
+
+    // B stays in 16 locals, each row of A is read once
+    private static void multiply4(int[] a, int[] b, int[] c, int o) {
+        int b00 = b[o], b01 = b[o + 1], b02 = b[o + 2], b03 = b[o + 3];
+        int b10 = b[o + 4], b11 = b[o + 5], b12 = b[o + 6], b13 = b[o + 7];
+        int b20 = b[o + 8], b21 = b[o + 9], b22 = b[o + 10], b23 = b[o + 11];
+        int b30 = b[o + 12], b31 = b[o + 13], b32 = b[o + 14], b33 = b[o + 15];
+        for (int i = o; i < o + 16; i += 4) {
+            int ai0 = a[i], ai1 = a[i + 1], ai2 = a[i + 2], ai3 = a[i + 3];
+            c[i] = ai0 * b00 + ai1 * b10 + ai2 * b20 + ai3 * b30;
+            c[i + 1] = ai0 * b01 + ai1 * b11 + ai2 * b21 + ai3 * b31;
+            c[i + 2] = ai0 * b02 + ai1 * b12 + ai2 * b22 + ai3 * b32;
+            c[i + 3] = ai0 * b03 + ai1 * b13 + ai2 * b23 + ai3 * b33;
+        }
+    }
+
+    // Two rows of C per pass over B with k unrolled by two, all of a small product stays in L1
+    private static void multiplyRowPairs(int[] a, int[] b, int[] c, int o, int n) {
+        Arrays.fill(c, o, o + n * n, 0);
+        int i = 0;
+        for (; i + 1 < n; i += 2) {
+            int a0 = o + i * n, a1 = a0 + n;
+            int k = 0;
+            for (; k + 1 < n; k += 2) {
+                int x00 = a[a0 + k], x01 = a[a0 + k + 1], x10 = a[a1 + k], x11 = a[a1 + k + 1];
+                int bk0 = o + k * n, bk1 = bk0 + n;
+                for (int j = 0; j < n; j++) {
+                    int y0 = b[bk0 + j], y1 = b[bk1 + j];
+                    c[a0 + j] += x00 * y0 + x01 * y1;
+                    c[a1 + j] += x10 * y0 + x11 * y1;
+                }
+            }
+            if (k < n) {
+                int x0 = a[a0 + k], x1 = a[a1 + k];
+                int bk = o + k * n;
+                for (int j = 0; j < n; j++) {
+                    c[a0 + j] += x0 * b[bk + j];
+                    c[a1 + j] += x1 * b[bk + j];
+                }
+            }
+        }
+        if (i < n) {
+            int ai = o + i * n;
+            for (int k = 0; k < n; k++) {
+                int x = a[ai + k];
+                int bk = o + k * n;
+                for (int j = 0; j < n; j++) {
+                    c[ai + j] += x * b[bk + j];
+                }
+            }
+        }
+    }
+}
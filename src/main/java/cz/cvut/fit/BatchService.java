@@ -0,0 +1,156 @@
+package cz.cvut.fit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Accepts single small multiplications from any number of client threads and runs them in batches:
+// a dispatcher thread takes whatever has queued up (at most maxBatch requests), packs it into one reusable
+// BatchAlgorithms.Batch per size and multiplies each batch on the fork/join pool. Requests queue while a
+// batch runs, so batches grow with load without any artificial delay.
+public class BatchService implements AutoCloseable {
+
+    private static class Request {
+        final Matrix A, B;
+        final CompletableFuture<Matrix> result = new CompletableFuture<>();
+
+        Request(Matrix A, Matrix B) {
+            this.A = A;
+            this.B = B;
+        }
+    }
+
+    private static final Request SHUTDOWN = new Request(null, null);
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final int parallelism;
+    private final Thread dispatcher;
+    private boolean closed; // guarded by queue
+
+    // Batch buffers per size, allocated on first use and reused by every later batch of that size
+    private final Map<Integer, BatchAlgorithms.Batch> batches = new HashMap<>();
+
+    // Dispatches and requests served, for the average batch size
+    private long batchCount;
+    private long requestCount;
+
+    public BatchService(int maxBatch, int parallelism) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatch);
+        }
+        this.maxBatch = maxBatch;
+        this.parallelism = parallelism;
+        this.dispatcher = new Thread(this::dispatch, "batch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    // Sizes whose batch of maxBatch products would not fit an array are rejected here, not in the dispatcher
+    public CompletableFuture<Matrix> submit(Matrix A, Matrix B) {
+        if (A.size != B.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + ", " + B.size);
+        }
+        BatchAlgorithms.Batch.checkShape(A.size, maxBatch);
+        Request request = new Request(A, B);
+        // Checked and added under the lock close takes, so no request can land behind SHUTDOWN
+        synchronized (queue) {
+            if (closed) {
+                throw new IllegalStateException("Batch service is closed");
+            }
+            queue.add(request);
+        }
+        return request.result;
+    }
+
+    private void dispatch() {
+        List<Request> drained = new ArrayList<>(maxBatch);
+        Map<Integer, List<Request>> bySize = new HashMap<>();
+        try {
+            while (true) {
+                drained.add(queue.take());
+                queue.drainTo(drained, maxBatch - 1);
+                boolean shutdown = drained.remove(SHUTDOWN);
+
+                for (Request request : drained) {
+                    bySize.computeIfAbsent(request.A.size, size -> new ArrayList<>()).add(request);
+                }
+                for (Map.Entry<Integer, List<Request>> group : bySize.entrySet()) {
+                    run(group.getKey(), group.getValue());
+                    group.getValue().clear();
+                }
+                synchronized (this) {
+                    batchCount++;
+                    requestCount += drained.size();
+                }
+                drained.clear();
+                if (shutdown) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Request request : queue) {
+                request.result.completeExceptionally(new IllegalStateException("Batch service is closed"));
+            }
+        }
+    }
+
+    private void run(int size, List<Request> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        // Anything thrown, OutOfMemoryError while allocating the buffers included, fails this group only and
+        // leaves the dispatcher running for the next one
+        try {
+            BatchAlgorithms.Batch batch = batches.computeIfAbsent(size, n -> new BatchAlgorithms.Batch(n, maxBatch));
+            batch.clear();
+            for (Request request : requests) {
+                batch.add(request.A, request.B);
+            }
+            BatchAlgorithms.multiply(batch, parallelism);
+            for (int slot = 0; slot < requests.size(); slot++) {
+                requests.get(slot).result.complete(batch.result(slot));
+            }
+        } catch (Throwable e) {
+            for (Request request : requests) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Requests per dispatched batch since the start or the last reset
+    public synchronized double averageBatchSize() {
+        return batchCount == 0 ? 0 : (double) requestCount / batchCount;
+    }
+
+    public synchronized void resetStatistics() {
+        batchCount = 0;
+        requestCount = 0;
+    }
+
+    // Finishes the queued requests, then stops the dispatcher; if the caller is interrupted while waiting, the
+    // dispatcher is interrupted too, fails what is still queued, and the caller's interrupt flag stays set
+    @Override
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(SHUTDOWN);
+        }
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            dispatcher.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cz.cvut.fit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Stages around the benchmark loop of Main: parsed inputs stay in a byte-bounded LRU cache across
+// algorithms, the next inputs can be loaded on a background thread and result files are written on another
+// one. Background work overlaps the warmup runs and is drained before the measured ones, since the probes
+// count CPU time, allocation and GC of the whole process. Each stage counts the time it costs the driver.
+class BenchmarkPipeline implements AutoCloseable {
+
+    // Parsed inputs, weighed by the function given to the constructor
+    final SingleFlightCache<Object> inputs;
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(daemon("input-loader"));
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(daemon("result-writer"));
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+    // Time the driver waited for inputs and time spent writing results in the background
+    long waitNanos;
+    volatile long writeNanos;
+
+    BenchmarkPipeline(long budgetBytes, ToLongFunction<Object> weight) {
+        this.inputs = new SingleFlightCache<>(budgetBytes, weight);
+    }
+
+    // The cached value for key, loaded on the calling thread if nobody has started it yet; null when loading failed
+    @SuppressWarnings("unchecked")
+    <T> T load(String key, Supplier<T> load) {
+        long start = System.nanoTime();
+        try {
+            return (T) inputs.get(key, load::get);
+        } catch (RuntimeException e) {
+            // Failed loads are not cached, the next request tries again and reports the error itself
+            return null;
+        } finally {
+            waitNanos += System.nanoTime() - start;
+        }
+    }
+
+    // Starts loading key on the loader thread unless it is cached or being loaded already
+    void prefetch(String key, Supplier<?> load) {
+        CompletableFuture<Void> task = inputs.prefetch(key, load::get, loader);
+        if (task != null) {
+            track(task);
+        }
+    }
+
+    // Runs the task on the writer thread in submission order
+    void write(Runnable task) {
+        track(CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            task.run();
+            writeNanos += System.nanoTime() - start;
+        }, writer));
+    }
+
+    private void track(CompletableFuture<Void> task) {
+        synchronized (pending) {
+            pending.add(task);
+        }
+    }
+
+    // Waits for every prefetch and write submitted so far, the time waited counts as driver time
+    void drain() {
+        List<CompletableFuture<Void>> tasks;
+        synchronized (pending) {
+            tasks = new ArrayList<>(pending);
+            pending.clear();
+        }
+        long start = System.nanoTime();
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        waitNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void close() {
+        drain();
+        loader.shutdown();
+        writer.shutdown();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,551 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.DoubleAlgorithms.DoubleMatrix;
+import cz.cvut.fit.FlatAlgorithms.FlatMatrix;
+import cz.cvut.fit.FloatAlgorithms.FloatMatrix;
+import cz.cvut.fit.LongAlgorithms.LongMatrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// Compact binary matrix files, read and written through memory-mapped buffers.
+//
+// Little-endian, 32-byte header followed by the body:
+//   0  int   magic 'BMAT'
+//   4  short version
+//   6  byte  layout        (0 = dense row-major, 1 = CSR)
+//   7  byte  element type  (0 = int8, 1 = int16, 2 = int32, 3 = int64, 4 = float32, 5 = float64)
+//   8  int   rows
+//   12 int   cols
+//   16 long  stored values (rows * cols for dense, nnz for CSR)
+//   24       reserved, keeps the body 8-byte aligned
+// Dense body: rows * cols values. CSR body: rows + 1 int32 pointers, nnz int32 column indices, nnz values.
+// Writers pick the narrowest element type that holds every value, so single-digit inputs take one byte each.
+// int64 and floating-point values are stored dense only; the int readers reject them, the long and floating-point
+// readers widen any narrower type they find.
+public class BinaryMatrixFormat {
+
+    static final int MAGIC = 0x54414D42; // "BMAT" read as a little-endian int
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    static final byte LAYOUT_DENSE = 0;
+    static final byte LAYOUT_CSR = 1;
+
+    static final byte TYPE_INT8 = 0;
+    static final byte TYPE_INT16 = 1;
+    static final byte TYPE_INT32 = 2;
+    static final byte TYPE_INT64 = 3;
+    static final byte TYPE_FLOAT32 = 4;
+    static final byte TYPE_FLOAT64 = 5;
+
+    static class Header {
+        final byte layout;
+        final byte elementType;
+        final int rows;
+        final int cols;
+        final long storedValues;
+
+        Header(byte layout, byte elementType, int rows, int cols, long storedValues) {
+            this.layout = layout;
+            this.elementType = elementType;
+            this.rows = rows;
+            this.cols = cols;
+            this.storedValues = storedValues;
+        }
+
+        int elementBytes() {
+            switch (elementType) {
+                case TYPE_INT8:
+                    return 1;
+                case TYPE_INT16:
+                    return 2;
+                case TYPE_INT64:
+                case TYPE_FLOAT64:
+                    return 8;
+                default:
+                    return 4;
+            }
+        }
+
+        // Byte offset of the values inside the body
+        long valuesOffset() {
+            return layout == LAYOUT_DENSE ? 0 : (rows + 1L) * 4 + storedValues * 4;
+        }
+
+        long bodyBytes() {
+            return valuesOffset() + storedValues * elementBytes();
+        }
+    }
+
+    // Dense matrix backed directly by the mapped file, element access without copying
+    static class MappedDense {
+        final int size;
+        final byte elementType;
+        final ByteBuffer values;
+
+        MappedDense(int size, byte elementType, ByteBuffer values) {
+            this.size = size;
+            this.elementType = elementType;
+            this.values = values;
+        }
+
+        int get(int i, int j) {
+            return readValue(values, elementType, i * size + j);
+        }
+    }
+
+    public static boolean isBinaryFile(String fileName) {
+        return fileName.endsWith(".bin");
+    }
+
+    public static Header readHeader(Path path) throws IOException {
+        return parseHeader(map(path), path);
+    }
+
+    // Zero-copy view of a dense file, valid as long as the returned object is reachable
+    public static MappedDense mapDense(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        requireIntValues(header, path);
+        if (header.layout != LAYOUT_DENSE) {
+            throw new IllegalArgumentException(path + " is not a dense matrix file");
+        }
+        return new MappedDense(header.rows, header.elementType, body(buffer));
+    }
+
+    public static Matrix readMatrix(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        requireIntValues(header, path);
+        ByteBuffer body = body(buffer);
+
+        if (header.layout == LAYOUT_DENSE) {
+            int n = header.rows;
+            int[][] data = new int[n][n];
+            for (int i = 0; i < n; i++) {
+                readValues(body, header.elementType, (long) i * n, data[i], 0, n);
+            }
+            return new Matrix(data);
+        }
+        return readCsr(header, body).toMatrix();
+    }
+
+    // Dense rows are hashed as they are read, CSR files are expanded first
+    public static ResultCache.Operand readOperand(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        requireIntValues(header, path);
+        ByteBuffer body = body(buffer);
+
+        if (header.layout == LAYOUT_DENSE) {
+            int n = header.rows;
+            int[][] data = new int[n][n];
+            ContentHash hash = new ContentHash(n, n);
+            for (int i = 0; i < n; i++) {
+                readValues(body, header.elementType, (long) i * n, data[i], 0, n);
+                hash.update(data[i], 0, n);
+            }
+            return new ResultCache.Operand(new Matrix(data), hash.finish());
+        }
+        return ResultCache.Operand.of(readCsr(header, body).toMatrix());
+    }
+
+    public static FlatMatrix readFlat(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        requireIntValues(header, path);
+        ByteBuffer body = body(buffer);
+
+        if (header.layout == LAYOUT_DENSE) {
+            int[] data = new int[header.rows * header.cols];
+            readValues(body, header.elementType, 0, data, 0, data.length);
+            return new FlatMatrix(data, header.rows);
+        }
+        return FlatMatrix.fromMatrix(readCsr(header, body).toMatrix());
+    }
+
+    // A CSR file is read without building the dense form, a dense file is compressed row by row
+    public static SparseMatrix readSparse(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        requireIntValues(header, path);
+        ByteBuffer body = body(buffer);
+
+        if (header.layout == LAYOUT_CSR) {
+            return readCsr(header, body);
+        }
+        int n = header.rows;
+        SparseAlgorithms.CsrBuilder builder = new SparseAlgorithms.CsrBuilder(n, n);
+        int[] row = new int[n];
+        for (int i = 0; i < n; i++) {
+            readValues(body, header.elementType, (long) i * n, row, 0, n);
+            for (int j = 0; j < n; j++) {
+                builder.add(j, row[j]);
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    // Any dense file as 64-bit integers; floating-point files are refused rather than truncated
+    public static LongMatrix readLongMatrix(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        ByteBuffer body = body(buffer);
+        if (header.elementType == TYPE_FLOAT32 || header.elementType == TYPE_FLOAT64) {
+            throw new IllegalArgumentException(path + " holds floating-point values, expected integers");
+        }
+        if (header.layout != LAYOUT_DENSE) {
+            return LongMatrix.fromMatrix(readCsr(header, body).toMatrix());
+        }
+        int n = header.rows;
+        long[][] data = new long[n][n];
+        int[] narrow = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (header.elementType == TYPE_INT64) {
+                body.asLongBuffer().get(i * n, data[i], 0, n);
+                continue;
+            }
+            readValues(body, header.elementType, (long) i * n, narrow, 0, n);
+            for (int j = 0; j < n; j++) {
+                data[i][j] = narrow[j];
+            }
+        }
+        return new LongMatrix(data);
+    }
+
+    // Any dense file as doubles, int64 values above 2^53 are rounded
+    public static DoubleMatrix readDoubleMatrix(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        ByteBuffer body = body(buffer);
+        if (header.layout != LAYOUT_DENSE) {
+            return DoubleMatrix.fromMatrix(readCsr(header, body).toMatrix());
+        }
+        int n = header.rows;
+        double[][] data = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            readValues(body, header.elementType, (long) i * n, data[i], n);
+        }
+        return new DoubleMatrix(data);
+    }
+
+    // Any dense file as floats, wider values are rounded to the nearest float
+    public static FloatMatrix readFloatMatrix(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Header header = parseHeader(buffer, path);
+        requireSquare(header, path);
+        ByteBuffer body = body(buffer);
+        if (header.layout != LAYOUT_DENSE) {
+            return FloatMatrix.fromMatrix(readCsr(header, body).toMatrix());
+        }
+        int n = header.rows;
+        float[][] data = new float[n][n];
+        double[] wide = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (header.elementType == TYPE_FLOAT32) {
+                body.asFloatBuffer().get(i * n, data[i], 0, n);
+                continue;
+            }
+            readValues(body, header.elementType, (long) i * n, wide, n);
+            for (int j = 0; j < n; j++) {
+                data[i][j] = (float) wide[j];
+            }
+        }
+        return new FloatMatrix(data);
+    }
+
+    public static void writeDense(Matrix M, Path path) throws IOException {
+        int n = M.size;
+        int min = 0, max = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                min = Math.min(min, M.data[i][j]);
+                max = Math.max(max, M.data[i][j]);
+            }
+        }
+
+        Header header = new Header(LAYOUT_DENSE, narrowestType(min, max), n, n, (long) n * n);
+        ByteBuffer body = create(path, header);
+        for (int i = 0; i < n; i++) {
+            writeValues(body, header.elementType, M.data[i], 0, n);
+        }
+    }
+
+    public static void writeDense(FlatMatrix M, Path path) throws IOException {
+        int n = M.size;
+        int min = 0, max = 0;
+        for (int i = 0; i < n * n; i++) {
+            min = Math.min(min, M.data[i]);
+            max = Math.max(max, M.data[i]);
+        }
+
+        Header header = new Header(LAYOUT_DENSE, narrowestType(min, max), n, n, (long) n * n);
+        writeValues(create(path, header), header.elementType, M.data, 0, n * n);
+    }
+
+    // Products that still fit in an int are stored like int matrices, only the others take eight bytes a value
+    public static void writeDense(LongMatrix M, Path path) throws IOException {
+        int n = M.size;
+        long min = 0, max = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                min = Math.min(min, M.data[i][j]);
+                max = Math.max(max, M.data[i][j]);
+            }
+        }
+
+        boolean fitsInt = min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE;
+        byte type = fitsInt ? narrowestType((int) min, (int) max) : TYPE_INT64;
+        Header header = new Header(LAYOUT_DENSE, type, n, n, (long) n * n);
+        ByteBuffer body = create(path, header);
+        int[] narrow = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (type == TYPE_INT64) {
+                body.asLongBuffer().put(M.data[i], 0, n);
+                body.position(body.position() + n * Long.BYTES);
+                continue;
+            }
+            for (int j = 0; j < n; j++) {
+                narrow[j] = (int) M.data[i][j];
+            }
+            writeValues(body, type, narrow, 0, n);
+        }
+    }
+
+    public static void writeDense(DoubleMatrix M, Path path) throws IOException {
+        int n = M.size;
+        ByteBuffer body = create(path, new Header(LAYOUT_DENSE, TYPE_FLOAT64, n, n, (long) n * n));
+        for (int i = 0; i < n; i++) {
+            body.asDoubleBuffer().put(M.data[i], 0, n);
+            body.position(body.position() + n * Double.BYTES);
+        }
+    }
+
+    public static void writeDense(FloatMatrix M, Path path) throws IOException {
+        int n = M.size;
+        ByteBuffer body = create(path, new Header(LAYOUT_DENSE, TYPE_FLOAT32, n, n, (long) n * n));
+        for (int i = 0; i < n; i++) {
+            body.asFloatBuffer().put(M.data[i], 0, n);
+            body.position(body.position() + n * Float.BYTES);
+        }
+    }
+
+    public static void writeSparse(SparseMatrix M, Path path) throws IOException {
+        SparseMatrix csr = M.toCsr();
+        int nnz = csr.nonZeros();
+        int min = 0, max = 0;
+        for (int p = 0; p < nnz; p++) {
+            min = Math.min(min, csr.values[p]);
+            max = Math.max(max, csr.values[p]);
+        }
+
+        Header header = new Header(LAYOUT_CSR, narrowestType(min, max), csr.size, csr.size, nnz);
+        ByteBuffer body = create(path, header);
+        IntBuffer ints = body.asIntBuffer();
+        ints.put(csr.pointers, 0, csr.size + 1);
+        ints.put(csr.indices, 0, nnz);
+        body.position((int) header.valuesOffset());
+        writeValues(body, header.elementType, csr.values, 0, nnz);
+    }
+
+    static byte narrowestType(int min, int max) {
+        if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+            return TYPE_INT8;
+        }
+        if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+            return TYPE_INT16;
+        }
+        return TYPE_INT32;
+    }
+
+    private static SparseMatrix readCsr(Header header, ByteBuffer body) {
+        int n = header.rows;
+        int nnz = (int) header.storedValues;
+        int[] pointers = new int[n + 1];
+        int[] indices = new int[nnz];
+        int[] values = new int[nnz];
+        IntBuffer ints = body.asIntBuffer();
+        ints.get(pointers);
+        ints.get(indices);
+        readValues(body, header.elementType, header.valuesOffset() / header.elementBytes(), values, 0, nnz);
+        return new SparseMatrix(SparseAlgorithms.Layout.CSR, n, pointers, indices, values);
+    }
+
+    private static int readValue(ByteBuffer body, byte type, int index) {
+        switch (type) {
+            case TYPE_INT8:
+                return body.get(index);
+            case TYPE_INT16:
+                return body.getShort(index * 2);
+            default:
+                return body.getInt(index * 4);
+        }
+    }
+
+    // Reads count values starting at value index first (in units of the element size) into dst
+    private static void readValues(ByteBuffer body, byte type, long first, int[] dst, int offset, int count) {
+        int start = (int) first;
+        switch (type) {
+            case TYPE_INT8:
+                for (int i = 0; i < count; i++) {
+                    dst[offset + i] = body.get(start + i);
+                }
+                break;
+            case TYPE_INT16:
+                for (int i = 0; i < count; i++) {
+                    dst[offset + i] = body.getShort((start + i) * 2);
+                }
+                break;
+            default:
+                body.asIntBuffer().get(start, dst, offset, count);
+                break;
+        }
+    }
+
+    // Widening read of count values of any element type, starting at value index first
+    private static void readValues(ByteBuffer body, byte type, long first, double[] dst, int count) {
+        int start = (int) first;
+        switch (type) {
+            case TYPE_INT64:
+                for (int i = 0; i < count; i++) {
+                    dst[i] = body.getLong((start + i) * 8);
+                }
+                break;
+            case TYPE_FLOAT32:
+                for (int i = 0; i < count; i++) {
+                    dst[i] = body.getFloat((start + i) * 4);
+                }
+                break;
+            case TYPE_FLOAT64:
+                body.asDoubleBuffer().get(start, dst, 0, count);
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    dst[i] = readValue(body, type, start + i);
+                }
+                break;
+        }
+    }
+
+    // Relative bulk write at the body's current position
+    private static void writeValues(ByteBuffer body, byte type, int[] src, int offset, int count) {
+        switch (type) {
+            case TYPE_INT8:
+                for (int i = 0; i < count; i++) {
+                    body.put((byte) src[offset + i]);
+                }
+                break;
+            case TYPE_INT16:
+                for (int i = 0; i < count; i++) {
+                    body.putShort((short) src[offset + i]);
+                }
+                break;
+            default:
+                body.asIntBuffer().put(src, offset, count);
+                body.position(body.position() + count * 4);
+                break;
+        }
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path + " (" + length + " bytes)");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    // Creates the file at its final size, writes the header and returns the body for the caller to fill
+    private static ByteBuffer create(Path path, Header header) throws IOException {
+        long length = HEADER_BYTES + header.bodyBytes();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Matrix too large for a single mapped file: " + path + " (" + length + " bytes)");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.put(header.layout);
+            buffer.put(header.elementType);
+            buffer.putInt(header.rows);
+            buffer.putInt(header.cols);
+            buffer.putLong(header.storedValues);
+            return body(buffer);
+        }
+    }
+
+    private static ByteBuffer body(MappedByteBuffer buffer) {
+        return buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static Header parseHeader(MappedByteBuffer buffer, Path path) {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(path + " is not a binary matrix file");
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException(path + " has unsupported format version " + version);
+        }
+        Header header = new Header(buffer.get(6), buffer.get(7), buffer.getInt(8), buffer.getInt(12), buffer.getLong(16));
+        if (header.layout != LAYOUT_DENSE && header.layout != LAYOUT_CSR) {
+            throw new IllegalArgumentException(path + " has unknown layout " + header.layout);
+        }
+        if (header.elementType < TYPE_INT8 || header.elementType > TYPE_FLOAT64) {
+            throw new IllegalArgumentException(path + " has unsupported element type " + header.elementType);
+        }
+        if (header.layout == LAYOUT_CSR && header.elementType > TYPE_INT32) {
+            throw new IllegalArgumentException(path + " stores CSR values of type " + header.elementType + ", only int types are supported");
+        }
+        if (header.rows < 0 || header.cols < 0) {
+            throw new IllegalArgumentException(path + " has negative dimensions " + header.rows + "x" + header.cols);
+        }
+        long elements = (long) header.rows * header.cols;
+        if (header.layout == LAYOUT_DENSE && header.storedValues != elements) {
+            throw new IllegalArgumentException(path + " stores " + header.storedValues + " values for a dense "
+                    + header.rows + "x" + header.cols + " matrix");
+        }
+        if (header.layout == LAYOUT_CSR && (header.storedValues < 0 || header.storedValues > elements)) {
+            throw new IllegalArgumentException(path + " stores " + header.storedValues + " nonzeros for a "
+                    + header.rows + "x" + header.cols + " matrix");
+        }
+        if (buffer.limit() - HEADER_BYTES < header.bodyBytes()) {
+            throw new IllegalArgumentException(path + " is truncated");
+        }
+        return header;
+    }
+
+    private static void requireIntValues(Header header, Path path) {
+        if (header.elementType > TYPE_INT32) {
+            throw new IllegalArgumentException(path + " holds values of element type " + header.elementType
+                    + ", which do not fit an int matrix");
+        }
+    }
+
+    private static void requireSquare(Header header, Path path) {
+        if (header.rows != header.cols) {
+            throw new IllegalArgumentException(path + " holds a " + header.rows + "x" + header.cols + " matrix, expected square");
+        }
+    }
+}
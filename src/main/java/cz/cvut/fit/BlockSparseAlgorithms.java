@@ -0,0 +1,289 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// Block-sparse (BSR) matrices for clustered nonzeros: only tile x tile tiles holding a nonzero are stored,
+// each as a dense row-major tile, indexed by tile row like CSR indexes elements. Products run the dense tile
+// kernel on every pair of stored tiles that meet and never touch empty ones. TileHistogram decides from the
+// fill of the tiles whether a matrix is better kept dense, in CSR or in BSR.
+public class BlockSparseAlgorithms {
+
+    enum Representation { DENSE, CSR, BLOCK_SPARSE }
+
+    static class BlockSparseMatrix {
+        final int size;
+        final int tile;
+        final int tilesPerSide;
+        final int[] pointers;    // tilesPerSide + 1 offsets into columns, per tile row
+        final int[] columns;     // tile column of each stored tile, ascending within a tile row
+        final int[] values;      // stored tiles back to back, tile * tile values each
+
+        BlockSparseMatrix(int size, int tile, int[] pointers, int[] columns, int[] values) {
+            int tilesPerSide = (size + tile - 1) / tile;
+            if (pointers.length != tilesPerSide + 1 || columns.length < pointers[tilesPerSide]
+                    || values.length < (long) pointers[tilesPerSide] * tile * tile) {
+                throw new IllegalArgumentException("Inconsistent block arrays for size " + size + " and tile " + tile);
+            }
+            this.size = size;
+            this.tile = tile;
+            this.tilesPerSide = tilesPerSide;
+            this.pointers = pointers;
+            this.columns = columns;
+            this.values = values;
+        }
+
+        int storedTiles() {
+            return pointers[tilesPerSide];
+        }
+
+        static BlockSparseMatrix fromMatrix(Matrix M, int tile) {
+            if (tile < 1) {
+                throw new IllegalArgumentException("Tile size must be positive: " + tile);
+            }
+            int tilesPerSide = (M.size + tile - 1) / tile;
+            int[] pointers = new int[tilesPerSide + 1];
+            int[] columns = new int[tilesPerSide * tilesPerSide];
+            int stored = 0;
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int tj = 0; tj < tilesPerSide; tj++) {
+                    if (countNonZeros(M, tile, ti, tj) > 0) {
+                        columns[stored++] = tj;
+                    }
+                }
+                pointers[ti + 1] = stored;
+            }
+            int[] values = new int[stored * tile * tile];
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int p = pointers[ti]; p < pointers[ti + 1]; p++) {
+                    int j0 = columns[p] * tile;
+                    int length = Math.min(tile, M.size - j0);
+                    for (int i = ti * tile; i < Math.min(ti * tile + tile, M.size); i++) {
+                        System.arraycopy(M.data[i], j0, values, p * tile * tile + (i - ti * tile) * tile, length);
+                    }
+                }
+            }
+            return new BlockSparseMatrix(M.size, tile, pointers, Arrays.copyOf(columns, stored), values);
+        }
+
+        Matrix toMatrix() {
+            Matrix M = new Matrix(size);
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int p = pointers[ti]; p < pointers[ti + 1]; p++) {
+                    int j0 = columns[p] * tile;
+                    int length = Math.min(tile, size - j0);
+                    for (int i = ti * tile; i < Math.min(ti * tile + tile, size); i++) {
+                        System.arraycopy(values, p * tile * tile + (i - ti * tile) * tile, M.data[i], j0, length);
+                    }
+                }
+            }
+            return M;
+        }
+    }
+
+    private static int countNonZeros(Matrix M, int tile, int ti, int tj) {
+        int count = 0;
+        for (int i = ti * tile; i < Math.min(ti * tile + tile, M.size); i++) {
+            int[] row = M.data[i];
+            for (int j = tj * tile; j < Math.min(tj * tile + tile, M.size); j++) {
+                if (row[j] != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Tiles per fill decile: bins[0] counts empty tiles, bins[d] tiles filled in (10(d-1)%, 10d%]
+    static class TileHistogram {
+        // At most this share of tiles occupied, and at least CLUSTERED_SHARE of the nonzeros in tiles filled
+        // over CLUSTER_FILL, makes BSR worth its dense tiles; at most CSR_DENSITY overall makes CSR worth its indices
+        // (the CSR kernel still beats the cache kernel at the one-in-three density of the uniform sparse inputs)
+        private static final double OCCUPIED_LIMIT = 0.5;
+        private static final double CLUSTERED_SHARE = 0.75;
+        private static final double CLUSTER_FILL = 0.25;
+        private static final double CSR_DENSITY = 0.4;
+
+        final int size;
+        final int tile;
+        final long[] bins = new long[11];
+        long nonZeros;
+        long clusteredNonZeros;
+
+        static TileHistogram of(Matrix M, int tile) {
+            TileHistogram histogram = new TileHistogram(M.size, tile);
+            int tilesPerSide = (M.size + tile - 1) / tile;
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int tj = 0; tj < tilesPerSide; tj++) {
+                    int count = countNonZeros(M, tile, ti, tj);
+                    int area = (Math.min(ti * tile + tile, M.size) - ti * tile) * (Math.min(tj * tile + tile, M.size) - tj * tile);
+                    double fill = (double) count / area;
+                    histogram.bins[count == 0 ? 0 : Math.max(1, (int) Math.ceil(fill * 10))]++;
+                    histogram.nonZeros += count;
+                    if (fill > CLUSTER_FILL) {
+                        histogram.clusteredNonZeros += count;
+                    }
+                }
+            }
+            return histogram;
+        }
+
+        private TileHistogram(int size, int tile) {
+            this.size = size;
+            this.tile = tile;
+        }
+
+        double density() {
+            return (double) nonZeros / ((double) size * size);
+        }
+
+        double occupiedShare() {
+            long tiles = Arrays.stream(bins).sum();
+            return 1.0 - (double) bins[0] / tiles;
+        }
+
+        Representation choose() {
+            if (nonZeros > 0 && occupiedShare() <= OCCUPIED_LIMIT && (double) clusteredNonZeros / nonZeros >= CLUSTERED_SHARE) {
+                return Representation.BLOCK_SPARSE;
+            }
+            return density() <= CSR_DENSITY ? Representation.CSR : Representation.DENSE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("density %.3f, %.0f%% tiles occupied, fill deciles %s", density(), 100 * occupiedShare(),
+                    Arrays.toString(Arrays.copyOfRange(bins, 1, bins.length)));
+        }
+    }
+
+    // A matrix in the representation its histogram chose, only that form is kept
+    static class HybridMatrix {
+        final int size;
+        final Representation representation;
+        final TileHistogram histogram;
+        final Matrix dense;
+        final SparseMatrix csr;
+        final BlockSparseMatrix blocks;
+
+        private HybridMatrix(Matrix M, TileHistogram histogram) {
+            this.size = M.size;
+            this.histogram = histogram;
+            this.representation = histogram.choose();
+            this.dense = representation == Representation.DENSE ? M : null;
+            this.csr = representation == Representation.CSR ? SparseMatrix.fromMatrix(M) : null;
+            this.blocks = representation == Representation.BLOCK_SPARSE ? BlockSparseMatrix.fromMatrix(M, histogram.tile) : null;
+        }
+
+        static HybridMatrix of(Matrix M, int tile) {
+            return new HybridMatrix(M, TileHistogram.of(M, tile));
+        }
+
+        Matrix toMatrix() {
+            switch (representation) {
+                case CSR:
+                    return csr.toMatrix();
+                case BLOCK_SPARSE:
+                    return blocks.toMatrix();
+                default:
+                    return dense;
+            }
+        }
+    }
+
+    // Both block-sparse: BSR kernel, both CSR: sparse kernel, anything else densifies and runs the cache kernel
+    public static Matrix matrixMultiplicationHybrid(HybridMatrix A, HybridMatrix B) {
+        if (A.size != B.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + ", " + B.size);
+        }
+        if (A.representation == Representation.BLOCK_SPARSE && B.representation == Representation.BLOCK_SPARSE
+                && A.blocks.tile == B.blocks.tile) {
+            return matrixMultiplicationBlockSparse(A.blocks, B.blocks).toMatrix();
+        }
+        if (A.representation == Representation.CSR && B.representation == Representation.CSR) {
+            return SparseAlgorithms.matrixMultiplicationSparse(A.csr, B.csr).toMatrix();
+        }
+        return Algorithms.matrixMultiplicationCache(A.toMatrix(), B.toMatrix(), A.size);
+    }
+
+    // Dense in and out through BSR, for the registry
+    public static Matrix matrixMultiplicationBlockSparse(Matrix A, Matrix B, int size, int tile) {
+        if (A.size != size || B.size != size) {
+            throw new IllegalArgumentException("Matrices must be " + size + "x" + size + ": " + A.size + ", " + B.size);
+        }
+        return matrixMultiplicationBlockSparse(BlockSparseMatrix.fromMatrix(A, tile), BlockSparseMatrix.fromMatrix(B, tile)).toMatrix();
+    }
+
+    // Row-by-row over tile rows like the CSR kernel: C(I, *) accumulates A(I, K) * B(K, *) in a dense
+    // accumulator of tiles, and the tile columns it touched become the stored tiles of C's tile row
+    public static BlockSparseMatrix matrixMultiplicationBlockSparse(BlockSparseMatrix A, BlockSparseMatrix B) {
+        if (A.size != B.size || A.tile != B.tile) {
+            throw new IllegalArgumentException("Operands differ in size or tile: " + A.size + "/" + A.tile + ", "
+                    + B.size + "/" + B.tile);
+        }
+        int t = A.tile;
+        int area = t * t;
+        int tiles = A.tilesPerSide;
+        int[][] accumulator = new int[tiles][];
+        int[] touched = new int[tiles];
+        boolean[] isTouched = new boolean[tiles];
+
+        int[] pointers = new int[tiles + 1];
+        int[] columns = new int[Math.max(1, A.storedTiles())];
+        int[] values = new int[columns.length * area];
+        int stored = 0;
+
+        for (int ti = 0; ti < tiles; ti++) {
+            int count = 0;
+            for (int pa = A.pointers[ti]; pa < A.pointers[ti + 1]; pa++) {
+                int tk = A.columns[pa];
+                for (int pb = B.pointers[tk]; pb < B.pointers[tk + 1]; pb++) {
+                    int tj = B.columns[pb];
+                    if (!isTouched[tj]) {
+                        isTouched[tj] = true;
+                        touched[count++] = tj;
+                        if (accumulator[tj] == null) {
+                            accumulator[tj] = new int[area];
+                        }
+                    }
+                    multiplyTile(A.values, pa * area, B.values, pb * area, accumulator[tj], t);
+                }
+            }
+
+            // Stored in ascending tile column order, accumulators are cleared for the next tile row
+            Arrays.sort(touched, 0, count);
+            if (stored + count > columns.length) {
+                int capacity = Math.max(stored + count, columns.length * 2);
+                columns = Arrays.copyOf(columns, capacity);
+                values = Arrays.copyOf(values, capacity * area);
+            }
+            for (int c = 0; c < count; c++) {
+                int tj = touched[c];
+                columns[stored] = tj;
+                System.arraycopy(accumulator[tj], 0, values, stored * area, area);
+                Arrays.fill(accumulator[tj], 0);
+                isTouched[tj] = false;
+                stored++;
+            }
+            pointers[ti + 1] = stored;
+        }
+        return new BlockSparseMatrix(A.size, t, pointers, columns, values);
+    }
+
+    // c += a * b on t x t row-major tiles, i-k-j so the inner loop streams rows of b and c
+    private static void multiplyTile(int[] a, int aOff, int[] b, int bOff, int[] c, int t) {
+        for (int i = 0; i < t; i++) {
+            int cRow = i * t;
+            for (int k = 0; k < t; k++) {
+                int aik = a[aOff + i * t + k];
+                if (aik == 0) {
+                    continue;
+                }
+                int bRow = bOff + k * t;
+                for (int j = 0; j < t; j++) {
+                    c[cRow + j] += aik * b[bRow + j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+
+// Two-level set-associative LRU cache model, fed with the addresses a kernel touches in its loop order.
+// Hardware counters are not reachable from Java and differ between hosts, so the miss behaviour of kernels
+// is compared on the same modelled hierarchy instead. An L1 miss is looked up in L2; writes count as accesses.
+class CacheSimulator {
+
+    private static final int LINE_SHIFT = 6;
+
+    static class Level {
+        final int sets;
+        final int ways;
+        final long[] tags;
+        long hits;
+        long misses;
+
+        Level(int bytes, int ways) {
+            int sets = (bytes >> LINE_SHIFT) / ways;
+            if (sets < 1 || Integer.bitCount(sets) != 1) {
+                throw new IllegalArgumentException("Cache of " + bytes + " bytes and " + ways + " ways needs a power-of-two set count");
+            }
+            this.sets = sets;
+            this.ways = ways;
+            this.tags = new long[sets * ways];
+            Arrays.fill(tags, -1);
+        }
+
+        // Most recently used way first in each set
+        boolean access(long line) {
+            int base = (int) (line & (sets - 1)) * ways;
+            int way = 0;
+            while (way < ways && tags[base + way] != line) {
+                way++;
+            }
+            boolean hit = way < ways;
+            if (hit) {
+                hits++;
+            } else {
+                misses++;
+                way = ways - 1;
+            }
+            System.arraycopy(tags, base, tags, base + 1, way);
+            tags[base] = line;
+            return hit;
+        }
+
+        double missRate() {
+            long accesses = hits + misses;
+            return accesses == 0 ? 0 : (double) misses / accesses;
+        }
+    }
+
+    final Level l1;
+    final Level l2;
+
+    CacheSimulator(int l1Bytes, int l1Ways, int l2Bytes, int l2Ways) {
+        this.l1 = new Level(l1Bytes, l1Ways);
+        this.l2 = new Level(l2Bytes, l2Ways);
+    }
+
+    void access(long address) {
+        long line = address >>> LINE_SHIFT;
+        if (!l1.access(line)) {
+            l2.access(line);
+        }
+    }
+
+    // Operands live far apart, like separately allocated arrays
+    private static final long A_BASE = 0;
+    private static final long B_BASE = 1L << 36;
+    private static final long C_BASE = 2L << 36;
+
+    // Row i of an int[][] as the JVM usually lays rows out when they are allocated one after another:
+    // 16-byte array header, then the values, rounded up to 8 bytes
+    private static long rowAddress(long base, int size, int i, int j) {
+        long stride = (16 + 4L * size + 7) & ~7L;
+        return base + i * stride + 16 + 4L * j;
+    }
+
+    // Algorithms.matrixMultiplicationCache(A, B, size, blockSize): i-j-k inside ii-jj-kk blocks,
+    // C[i][j] read and written once per k block
+    static void traceBlocked(CacheSimulator simulator, int size, int blockSize) {
+        for (int ii = 0; ii < size; ii += blockSize) {
+            for (int jj = 0; jj < size; jj += blockSize) {
+                for (int kk = 0; kk < size; kk += blockSize) {
+                    for (int i = ii; i < Math.min(ii + blockSize, size); i++) {
+                        for (int j = jj; j < Math.min(jj + blockSize, size); j++) {
+                            simulator.access(rowAddress(C_BASE, size, i, j));
+                            for (int k = kk; k < Math.min(kk + blockSize, size); k++) {
+                                simulator.access(rowAddress(A_BASE, size, i, k));
+                                simulator.access(rowAddress(B_BASE, size, k, j));
+                            }
+                            simulator.access(rowAddress(C_BASE, size, i, j));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // MortonAlgorithms.multiply on operands converted beforehand, same recursion and leaf loop order;
+    // no value of A is taken as zero, so padding tiles are traced like the kernel traverses dense ones
+    static void traceMorton(CacheSimulator simulator, int size) {
+        int tiles = MortonAlgorithms.tilesPerSide(size);
+        traceMorton(simulator, A_BASE + 16, B_BASE + 16, C_BASE + 16, tiles, tiles, tiles);
+    }
+
+    private static void traceMorton(CacheSimulator simulator, long a, long b, long c, int rows, int inner, int cols) {
+        int leaf = MortonAlgorithms.LEAF;
+        if (rows == 0 || inner == 0 || cols == 0) {
+            return;
+        }
+        if (rows == 1 && inner == 1 && cols == 1) {
+            for (int i = 0; i < leaf; i++) {
+                for (int k = 0; k < leaf; k++) {
+                    simulator.access(a + 4L * (i * leaf + k));
+                    for (int j = 0; j < leaf; j++) {
+                        simulator.access(b + 4L * (k * leaf + j));
+                        simulator.access(c + 4L * (i * leaf + j));
+                    }
+                }
+            }
+            return;
+        }
+        int r1 = MortonAlgorithms.firstHalf(rows);
+        int m1 = MortonAlgorithms.firstHalf(inner);
+        int c1 = MortonAlgorithms.firstHalf(cols);
+        int r2 = rows - r1, m2 = inner - m1, c2 = cols - c1;
+        long tile = 4L * leaf * leaf;
+        long a12 = a + r1 * m1 * tile, a21 = a + r1 * inner * tile, a22 = a21 + r2 * m1 * tile;
+        long b12 = b + m1 * c1 * tile, b21 = b + m1 * cols * tile, b22 = b21 + m2 * c1 * tile;
+        long c12 = c + r1 * c1 * tile, c21 = c + r1 * cols * tile, c22 = c21 + r2 * c1 * tile;
+        traceMorton(simulator, a, b, c, r1, m1, c1);
+        traceMorton(simulator, a12, b21, c, r1, m2, c1);
+        traceMorton(simulator, a12, b22, c12, r1, m2, c2);
+        traceMorton(simulator, a, b12, c12, r1, m1, c2);
+        traceMorton(simulator, a21, b12, c22, r2, m1, c2);
+        traceMorton(simulator, a22, b22, c22, r2, m2, c2);
+        traceMorton(simulator, a22, b21, c21, r2, m2, c1);
+        traceMorton(simulator, a21, b, c21, r2, m1, c1);
+    }
+}
@@ -0,0 +1,96 @@
+package cz.cvut.fit;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.FlatAlgorithms.FlatMatrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// SHA-256 of a matrix's logical content: rows, columns, then every value row-major as little-endian ints.
+// Dense, flat and CSR/CSC forms of the same matrix hash the same, and values can be fed incrementally
+// in row-major order while a matrix is being read or computed.
+public class ContentHash {
+
+    private static final int BUFFER_INTS = 2048;
+
+    private final MessageDigest digest;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_INTS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    public ContentHash(int rows, int cols) {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        // Straight into the empty buffer, not through the overridable update(int)
+        buffer.putInt(rows).putInt(cols);
+    }
+
+    public void update(int value) {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putInt(value);
+    }
+
+    public void update(int[] values, int offset, int count) {
+        while (count > 0) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int chunk = Math.min(count, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, offset, chunk);
+            buffer.position(buffer.position() + chunk * Integer.BYTES);
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    // Hex digest, the hash cannot be updated afterwards
+    public String finish() {
+        flush();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void flush() {
+        digest.update(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    public static String of(Matrix M) {
+        ContentHash hash = new ContentHash(M.size, M.size);
+        for (int[] row : M.data) {
+            hash.update(row, 0, M.size);
+        }
+        return hash.finish();
+    }
+
+    public static String of(FlatMatrix M) {
+        ContentHash hash = new ContentHash(M.size, M.size);
+        hash.update(M.data, 0, M.data.length);
+        return hash.finish();
+    }
+
+    // Zeros are hashed like stored values, so the result equals the hash of the dense form
+    public static String of(SparseMatrix M) {
+        SparseMatrix csr = M.toCsr();
+        ContentHash hash = new ContentHash(csr.size, csr.size);
+        for (int i = 0; i < csr.size; i++) {
+            int column = 0;
+            for (int p = csr.pointers[i]; p < csr.pointers[i + 1]; p++) {
+                for (; column < csr.indices[p]; column++) {
+                    hash.update(0);
+                }
+                hash.update(csr.values[p]);
+                column++;
+            }
+            for (; column < csr.size; column++) {
+                hash.update(0);
+            }
+        }
+        return hash.finish();
+    }
+}
@@ -0,0 +1,412 @@
+package cz.cvut.fit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Cannon's algorithm on a q x q grid of worker JVMs. The coordinator skews and scatters the blocks of A and B,
+// every worker multiplies its pair q times and passes A to its left and B to its upper neighbour over direct
+// sockets between the workers, then the coordinator gathers the C blocks.
+//
+// Workers are started by Cluster.start on this host, or by hand on any host with
+//     java -cp <classpath> cz.cvut.fit.DistributedAlgorithms <coordinator host> <coordinator port>
+public class DistributedAlgorithms {
+
+    private static final int COMMAND_SHUTDOWN = 0;
+    private static final int COMMAND_MULTIPLY = 1;
+    private static final int CHANNEL_A = 0;
+    private static final int CHANNEL_B = 1;
+
+    // Seconds to wait for workers to connect
+    private static final int CONNECT_TIMEOUT = 60;
+
+    // Ints per socket write, bounds the transfer buffer
+    private static final int CHUNK = 16 * 1024;
+
+    // Result of one distributed multiplication, times in nanoseconds
+    static class Result {
+        final Matrix C;
+        final long[] computeNanos; // per worker rank, time in the local kernel
+        final long[] commNanos;    // per worker rank, time in the block shifts, including waits for neighbours
+        final long scatterNanos;   // coordinator sending the skewed blocks
+        final long wallNanos;
+
+        Result(Matrix C, long[] computeNanos, long[] commNanos, long scatterNanos, long wallNanos) {
+            this.C = C;
+            this.computeNanos = computeNanos;
+            this.commNanos = commNanos;
+            this.scatterNanos = scatterNanos;
+            this.wallNanos = wallNanos;
+        }
+    }
+
+    // Coordinator side of a running grid of workers, reused for any number of multiplications
+    static class Cluster implements AutoCloseable {
+        final int workers;
+        final int q;
+        private final ServerSocket server;
+        private final List<Process> processes = new ArrayList<>();
+        private final Socket[] sockets;
+        private final DataInputStream[] in;
+        private final DataOutputStream[] out;
+
+        private Cluster(int workers, ServerSocket server) {
+            this.workers = workers;
+            this.q = gridSide(workers);
+            this.server = server;
+            this.sockets = new Socket[workers];
+            this.in = new DataInputStream[workers];
+            this.out = new DataOutputStream[workers];
+        }
+
+        // Starts the workers as JVMs on this host with the classpath and options of the current JVM
+        static Cluster start(int workers) throws IOException {
+            gridSide(workers);
+            ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+            Cluster cluster = new Cluster(workers, server);
+            try {
+                for (int r = 0; r < workers; r++) {
+                    cluster.processes.add(new ProcessBuilder(workerCommand(server.getLocalPort())).inheritIO().start());
+                }
+                cluster.connect();
+            } catch (IOException | RuntimeException e) {
+                cluster.close();
+                throw e;
+            }
+            return cluster;
+        }
+
+        // Waits for externally started workers on the given port
+        static Cluster listen(int workers, int port) throws IOException {
+            gridSide(workers);
+            Cluster cluster = new Cluster(workers, new ServerSocket(port, workers));
+            try {
+                cluster.connect();
+            } catch (IOException | RuntimeException e) {
+                cluster.close();
+                throw e;
+            }
+            return cluster;
+        }
+
+        // Accepts every worker, ranks them in connection order and sends each the grid with all peer addresses
+        private void connect() throws IOException {
+            server.setSoTimeout(CONNECT_TIMEOUT * 1000);
+            String[] hosts = new String[workers];
+            int[] ports = new int[workers];
+            for (int r = 0; r < workers; r++) {
+                sockets[r] = server.accept();
+                sockets[r].setTcpNoDelay(true);
+                in[r] = new DataInputStream(new BufferedInputStream(sockets[r].getInputStream()));
+                out[r] = new DataOutputStream(new BufferedOutputStream(sockets[r].getOutputStream()));
+                hosts[r] = sockets[r].getInetAddress().getHostAddress();
+                ports[r] = in[r].readInt();
+            }
+            for (int r = 0; r < workers; r++) {
+                out[r].writeInt(r);
+                out[r].writeInt(q);
+                for (int peer = 0; peer < workers; peer++) {
+                    out[r].writeUTF(hosts[peer]);
+                    out[r].writeInt(ports[peer]);
+                }
+                out[r].flush();
+            }
+        }
+
+        // C = A * B, blocks of ceil(size / q) with the edge blocks zero-padded
+        Result multiply(Matrix A, Matrix B, int size) throws IOException {
+            long start = System.nanoTime();
+            int b = (size + q - 1) / q;
+            int[] block = new int[b * b];
+            byte[] buffer = new byte[CHUNK * Integer.BYTES];
+
+            // Initial skew: worker (i, j) starts with A(i, i + j) and B(i + j, j)
+            for (int r = 0; r < workers; r++) {
+                int i = r / q, j = r % q, k = (i + j) % q;
+                out[r].writeInt(COMMAND_MULTIPLY);
+                out[r].writeInt(b);
+                extractBlock(A, size, i, k, b, block);
+                writeBlock(out[r], block, buffer);
+                extractBlock(B, size, k, j, b, block);
+                writeBlock(out[r], block, buffer);
+                out[r].flush();
+            }
+            long scatterNanos = System.nanoTime() - start;
+
+            Matrix C = new Matrix(size);
+            long[] computeNanos = new long[workers];
+            long[] commNanos = new long[workers];
+            for (int r = 0; r < workers; r++) {
+                computeNanos[r] = in[r].readLong();
+                commNanos[r] = in[r].readLong();
+                readBlock(in[r], block, buffer);
+                int i = r / q, j = r % q;
+                int rows = Math.min(b, size - i * b);
+                int cols = Math.max(0, Math.min(b, size - j * b));
+                for (int row = 0; row < rows; row++) {
+                    System.arraycopy(block, row * b, C.data[i * b + row], j * b, cols);
+                }
+            }
+            return new Result(C, computeNanos, commNanos, scatterNanos, System.nanoTime() - start);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int r = 0; r < workers; r++) {
+                if (out[r] != null) {
+                    try {
+                        out[r].writeInt(COMMAND_SHUTDOWN);
+                        out[r].flush();
+                    } catch (IOException e) {
+                        // The worker is gone already
+                    }
+                }
+            }
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (Socket socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+            server.close();
+        }
+    }
+
+    private static int gridSide(int workers) {
+        int q = (int) Math.round(Math.sqrt(workers));
+        if (workers < 1 || q * q != workers) {
+            throw new IllegalArgumentException("Cannon's algorithm needs a square number of workers: " + workers);
+        }
+        return q;
+    }
+
+    // Same java binary, classpath and JVM options as this process, minus agents and debuggers that bind ports
+    private static List<String> workerCommand(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!argument.startsWith("-agentlib") && !argument.startsWith("-javaagent") && !argument.startsWith("-Xrunjdwp")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DistributedAlgorithms.class.getName());
+        command.add(InetAddress.getLoopbackAddress().getHostAddress());
+        command.add(String.valueOf(port));
+        return command;
+    }
+
+    // Worker process: java cz.cvut.fit.DistributedAlgorithms <coordinator host> <coordinator port>
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: DistributedAlgorithms <coordinator host> <coordinator port>");
+            System.exit(2);
+        }
+        try {
+            runWorker(args[0], Integer.parseInt(args[1]));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Worker failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runWorker(String host, int port) throws IOException {
+        ExecutorService sender = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "block-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ServerSocket peerServer = new ServerSocket(0);
+             Socket coordinator = new Socket(host, port)) {
+            coordinator.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+            out.writeInt(peerServer.getLocalPort());
+            out.flush();
+
+            int rank = in.readInt();
+            int q = in.readInt();
+            String[] hosts = new String[q * q];
+            int[] ports = new int[q * q];
+            for (int peer = 0; peer < q * q; peer++) {
+                hosts[peer] = in.readUTF();
+                ports[peer] = in.readInt();
+            }
+            Peers peers = q > 1 ? Peers.connect(rank, q, hosts, ports, peerServer) : null;
+
+            byte[] buffer = new byte[CHUNK * Integer.BYTES];
+            while (in.readInt() == COMMAND_MULTIPLY) {
+                int b = in.readInt();
+                int[] a = new int[b * b], bBlock = new int[b * b], c = new int[b * b];
+                int[] aNext = new int[b * b], bNext = new int[b * b];
+                readBlock(in, a, buffer);
+                readBlock(in, bBlock, buffer);
+
+                long computeNanos = 0, commNanos = 0;
+                for (int step = 0; step < q; step++) {
+                    long computeStart = System.nanoTime();
+                    OutOfCoreAlgorithms.multiplyTile(a, bBlock, c, b);
+                    computeNanos += System.nanoTime() - computeStart;
+
+                    if (step < q - 1) {
+                        long commStart = System.nanoTime();
+                        peers.shift(a, aNext, bBlock, bNext, sender);
+                        commNanos += System.nanoTime() - commStart;
+                        int[] swap = a;
+                        a = aNext;
+                        aNext = swap;
+                        swap = bBlock;
+                        bBlock = bNext;
+                        bNext = swap;
+                    }
+                }
+
+                out.writeLong(computeNanos);
+                out.writeLong(commNanos);
+                writeBlock(out, c, buffer);
+                out.flush();
+            }
+            if (peers != null) {
+                peers.close();
+            }
+        } finally {
+            sender.shutdownNow();
+        }
+    }
+
+    // A worker's four neighbour channels: A goes out to the left and comes in from the right, B goes up and comes from below
+    private static class Peers {
+        private Socket aOutSocket, bOutSocket, aInSocket, bInSocket;
+        private DataOutputStream aOut, bOut;
+        private DataInputStream aIn, bIn;
+        private final byte[] aOutBuffer = new byte[CHUNK * Integer.BYTES], bOutBuffer = new byte[CHUNK * Integer.BYTES];
+        private final byte[] aInBuffer = new byte[CHUNK * Integer.BYTES], bInBuffer = new byte[CHUNK * Integer.BYTES];
+
+        // Outgoing connections first, they complete against the listening peer servers without an accept
+        static Peers connect(int rank, int q, String[] hosts, int[] ports, ServerSocket peerServer) throws IOException {
+            int i = rank / q, j = rank % q;
+            int left = i * q + (j + q - 1) % q;
+            int up = ((i + q - 1) % q) * q + j;
+
+            Peers peers = new Peers();
+            peers.aOutSocket = open(hosts[left], ports[left], CHANNEL_A);
+            peers.bOutSocket = open(hosts[up], ports[up], CHANNEL_B);
+            peers.aOut = new DataOutputStream(new BufferedOutputStream(peers.aOutSocket.getOutputStream()));
+            peers.bOut = new DataOutputStream(new BufferedOutputStream(peers.bOutSocket.getOutputStream()));
+
+            peerServer.setSoTimeout(CONNECT_TIMEOUT * 1000);
+            for (int accepted = 0; accepted < 2; accepted++) {
+                Socket socket = peerServer.accept();
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                if (in.readInt() == CHANNEL_A) {
+                    peers.aInSocket = socket;
+                    peers.aIn = in;
+                } else {
+                    peers.bInSocket = socket;
+                    peers.bIn = in;
+                }
+            }
+            if (peers.aIn == null || peers.bIn == null) {
+                throw new IOException("Worker " + rank + " did not get one A and one B neighbour");
+            }
+            return peers;
+        }
+
+        private static Socket open(String host, int port, int channel) throws IOException {
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT * 1000);
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(channel);
+            out.flush();
+            return socket;
+        }
+
+        // Sends a and b on other threads while receiving their replacements, so no pair of neighbours blocks on full buffers
+        void shift(int[] a, int[] aNext, int[] b, int[] bNext, ExecutorService sender) throws IOException {
+            Future<?> aSent = sender.submit(() -> {
+                writeBlock(aOut, a, aOutBuffer);
+                aOut.flush();
+                return null;
+            });
+            Future<?> bSent = sender.submit(() -> {
+                writeBlock(bOut, b, bOutBuffer);
+                bOut.flush();
+                return null;
+            });
+            readBlock(aIn, aNext, aInBuffer);
+            readBlock(bIn, bNext, bInBuffer);
+            try {
+                aSent.get();
+                bSent.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending blocks", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Sending blocks failed", e.getCause());
+            }
+        }
+
+        void close() throws IOException {
+            aOutSocket.close();
+            bOutSocket.close();
+            aInSocket.close();
+            bInSocket.close();
+        }
+    }
+
+    // Copies block (bi, bj) of M into dst, zero where the block runs past the matrix
+    private static void extractBlock(Matrix M, int size, int bi, int bj, int b, int[] dst) {
+        Arrays.fill(dst, 0);
+        int rows = Math.min(b, size - bi * b);
+        int cols = Math.max(0, Math.min(b, size - bj * b));
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(M.data[bi * b + row], bj * b, dst, row * b, cols);
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, int[] block, byte[] buffer) throws IOException {
+        for (int offset = 0; offset < block.length; offset += CHUNK) {
+            int count = Math.min(CHUNK, block.length - offset);
+            ByteBuffer.wrap(buffer).asIntBuffer().put(block, offset, count);
+            out.write(buffer, 0, count * Integer.BYTES);
+        }
+    }
+
+    private static void readBlock(DataInputStream in, int[] block, byte[] buffer) throws IOException {
+        for (int offset = 0; offset < block.length; offset += CHUNK) {
+            int count = Math.min(CHUNK, block.length - offset);
+            in.readFully(buffer, 0, count * Integer.BYTES);
+            ByteBuffer.wrap(buffer).asIntBuffer().get(block, offset, count);
+        }
+    }
+}
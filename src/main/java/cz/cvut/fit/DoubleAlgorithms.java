@@ -0,0 +1,202 @@
+package cz.cvut.fit;
+
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Products in double precision, for floating-point workloads. Each kernel is written out for double[][] like the
+// int ones in Algorithms, so the hot loops never box a value or go through an erased type. Results depend on the
+// order of the additions: the kernels agree with each other only up to rounding, Strassen a little less closely.
+public class DoubleAlgorithms {
+
+    static class DoubleMatrix {
+        double[][] data;
+        int size;
+
+        DoubleMatrix(double[][] data) {
+            this.data = data;
+            this.size = data.length;
+        }
+
+        DoubleMatrix(int size) {
+            this.data = new double[size][size];
+            this.size = size;
+        }
+
+        static DoubleMatrix fromMatrix(Matrix M) {
+            DoubleMatrix D = new DoubleMatrix(M.size);
+            for (int i = 0; i < M.size; i++) {
+                for (int j = 0; j < M.size; j++) {
+                    D.data[i][j] = M.data[i][j];
+                }
+            }
+            return D;
+        }
+    }
+
+    public static DoubleMatrix matrixMultiplicationCache(DoubleMatrix A, DoubleMatrix B, int size) {
+        return matrixMultiplicationCache(A, B, size, 64);
+    }
+
+    // Blocked, i-k-j inside the blocks so the inner loop streams a row of B and a row of C
+    public static DoubleMatrix matrixMultiplicationCache(DoubleMatrix A, DoubleMatrix B, int size, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        checkSizes(A, B, size);
+        DoubleMatrix C = new DoubleMatrix(size);
+        multiplyBlocked(A.data, B.data, C.data, size, blockSize);
+        return C;
+    }
+
+    // C += A * B for n x n operands
+    private static void multiplyBlocked(double[][] a, double[][] b, double[][] c, int n, int blockSize) {
+        for (int ii = 0; ii < n; ii += blockSize) {
+            int iEnd = Math.min(ii + blockSize, n);
+            for (int kk = 0; kk < n; kk += blockSize) {
+                int kEnd = Math.min(kk + blockSize, n);
+                for (int jj = 0; jj < n; jj += blockSize) {
+                    int jEnd = Math.min(jj + blockSize, n);
+                    for (int i = ii; i < iEnd; i++) {
+                        double[] aRow = a[i];
+                        double[] cRow = c[i];
+                        for (int k = kk; k < kEnd; k++) {
+                            double aik = aRow[k];
+                            double[] bRow = b[k];
+                            for (int j = jj; j < jEnd; j++) {
+                                cRow[j] += aik * bRow[j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // i-k-j with k unrolled by 4: every pass over a row of C adds four rows of B
+    public static DoubleMatrix matrixMultiplicationLoopUnroll(DoubleMatrix A, DoubleMatrix B, int size) {
+        checkSizes(A, B, size);
+        DoubleMatrix C = new DoubleMatrix(size);
+        for (int i = 0; i < size; i++) {
+            double[] aRow = A.data[i];
+            double[] cRow = C.data[i];
+            int k = 0;
+            for (; k <= size - 4; k += 4) {
+                double a0 = aRow[k], a1 = aRow[k + 1], a2 = aRow[k + 2], a3 = aRow[k + 3];
+                double[] b0 = B.data[k], b1 = B.data[k + 1], b2 = B.data[k + 2], b3 = B.data[k + 3];
+                for (int j = 0; j < size; j++) {
+                    cRow[j] += a0 * b0[j] + a1 * b1[j] + a2 * b2[j] + a3 * b3[j];
+                }
+            }
+            for (; k < size; k++) {
+                double aik = aRow[k];
+                double[] bRow = B.data[k];
+                for (int j = 0; j < size; j++) {
+                    cRow[j] += aik * bRow[j];
+                }
+            }
+        }
+        return C;
+    }
+
+    public static DoubleMatrix matrixMultiplicationStrassen(DoubleMatrix A, DoubleMatrix B, int size) {
+        return matrixMultiplicationStrassen(A, B, size, 64);
+    }
+
+    // Padded to a power of two like the int Strassen, with the blocked kernel below the cutoff
+    public static DoubleMatrix matrixMultiplicationStrassen(DoubleMatrix A, DoubleMatrix B, int size, int cutoff) {
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        }
+        checkSizes(A, B, size);
+        if (size <= cutoff) {
+            return matrixMultiplicationCache(A, B, size);
+        }
+        int n = Integer.highestOneBit(size - 1) << 1;
+        DoubleMatrix C = strassen(pad(A, n), pad(B, n), n, cutoff);
+        if (n == size) {
+            return C;
+        }
+        DoubleMatrix result = new DoubleMatrix(size);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(C.data[i], 0, result.data[i], 0, size);
+        }
+        return result;
+    }
+
+    private static DoubleMatrix strassen(DoubleMatrix A, DoubleMatrix B, int n, int cutoff) {
+        if (n <= cutoff) {
+            DoubleMatrix C = new DoubleMatrix(n);
+            multiplyBlocked(A.data, B.data, C.data, n, 64);
+            return C;
+        }
+        int h = n / 2;
+        DoubleMatrix A11 = quadrant(A, 0, 0, h), A12 = quadrant(A, 0, h, h), A21 = quadrant(A, h, 0, h), A22 = quadrant(A, h, h, h);
+        DoubleMatrix B11 = quadrant(B, 0, 0, h), B12 = quadrant(B, 0, h, h), B21 = quadrant(B, h, 0, h), B22 = quadrant(B, h, h, h);
+
+        DoubleMatrix M1 = strassen(combine(A11, A22, 1), combine(B11, B22, 1), h, cutoff);
+        DoubleMatrix M2 = strassen(combine(A21, A22, 1), B11, h, cutoff);
+        DoubleMatrix M3 = strassen(A11, combine(B12, B22, -1), h, cutoff);
+        DoubleMatrix M4 = strassen(A22, combine(B21, B11, -1), h, cutoff);
+        DoubleMatrix M5 = strassen(combine(A11, A12, 1), B22, h, cutoff);
+        DoubleMatrix M6 = strassen(combine(A21, A11, -1), combine(B11, B12, 1), h, cutoff);
+        DoubleMatrix M7 = strassen(combine(A12, A22, -1), combine(B21, B22, 1), h, cutoff);
+
+        // C11 = M1 + M4 - M5 + M7, C12 = M3 + M5, C21 = M2 + M4, C22 = M1 - M2 + M3 + M6
+        DoubleMatrix C = new DoubleMatrix(n);
+        for (int i = 0; i < h; i++) {
+            double[] c1 = C.data[i], c2 = C.data[i + h];
+            double[] m1 = M1.data[i], m2 = M2.data[i], m3 = M3.data[i], m4 = M4.data[i];
+            double[] m5 = M5.data[i], m6 = M6.data[i], m7 = M7.data[i];
+            for (int j = 0; j < h; j++) {
+                c1[j] = m1[j] + m4[j] - m5[j] + m7[j];
+                c1[j + h] = m3[j] + m5[j];
+                c2[j] = m2[j] + m4[j];
+                c2[j + h] = m1[j] - m2[j] + m3[j] + m6[j];
+            }
+        }
+        return C;
+    }
+
+    private static DoubleMatrix quadrant(DoubleMatrix M, int row, int col, int h) {
+        DoubleMatrix Q = new DoubleMatrix(h);
+        for (int i = 0; i < h; i++) {
+            System.arraycopy(M.data[row + i], col, Q.data[i], 0, h);
+        }
+        return Q;
+    }
+
+    // X + sign * Y
+    private static DoubleMatrix combine(DoubleMatrix X, DoubleMatrix Y, int sign) {
+        int n = X.size;
+        DoubleMatrix R = new DoubleMatrix(n);
+        for (int i = 0; i < n; i++) {
+            double[] x = X.data[i], y = Y.data[i], r = R.data[i];
+            if (sign > 0) {
+                for (int j = 0; j < n; j++) {
+                    r[j] = x[j] + y[j];
+                }
+            } else {
+                for (int j = 0; j < n; j++) {
+                    r[j] = x[j] - y[j];
+                }
+            }
+        }
+        return R;
+    }
+
+    private static DoubleMatrix pad(DoubleMatrix M, int n) {
+        if (M.size == n) {
+            return M;
+        }
+        DoubleMatrix P = new DoubleMatrix(n);
+        for (int i = 0; i < M.size; i++) {
+            System.arraycopy(M.data[i], 0, P.data[i], 0, M.size);
+        }
+        return P;
+    }
+
+    private static void checkSizes(DoubleMatrix A, DoubleMatrix B, int size) {
+        if (A.size != size || B.size != size) {
+            throw new IllegalArgumentException("Matrices must be " + size + "x" + size + ": " + A.size + ", " + B.size);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+
+public class FlatAlgorithms {
+
+    // Matrix stored in one contiguous row-major int array (element (i, j) at i * size + j)
+    static class FlatMatrix {
+        int[] data;
+        int size;
+        // Optional transposed copy, built on first use when the matrix is the right-hand operand
+        int[] packed;
+
+        FlatMatrix(int[] data, int size) {
+            if (data.length != size * size) {
+                throw new IllegalArgumentException("Expected " + (size * size) + " elements, got " + data.length);
+            }
+            this.data = data;
+            this.size = size;
+        }
+
+        FlatMatrix(int size) {
+            this.data = new int[size * size];
+            this.size = size;
+        }
+
+        static FlatMatrix fromMatrix(Algorithms.Matrix M) {
+            FlatMatrix flat = new FlatMatrix(M.size);
+            for (int i = 0; i < M.size; i++) {
+                System.arraycopy(M.data[i], 0, flat.data, i * M.size, M.size);
+            }
+            return flat;
+        }
+
+        Algorithms.Matrix toMatrix() {
+            Algorithms.Matrix M = new Algorithms.Matrix(size);
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(data, i * size, M.data[i], 0, size);
+            }
+            return M;
+        }
+
+        int get(int i, int j) {
+            return data[i * size + j];
+        }
+
+        void set(int i, int j, int value) {
+            data[i * size + j] = value;
+            packed = null;
+        }
+
+        // Transposed copy of the data, so column j of this matrix is contiguous at packed[j * size]
+        int[] packTransposed() {
+            if (packed == null) {
+                packed = new int[size * size];
+                for (int i = 0; i < size; i++) {
+                    int row = i * size;
+                    for (int j = 0; j < size; j++) {
+                        packed[j * size + i] = data[row + j];
+                    }
+                }
+            }
+            return packed;
+        }
+
+        // Must be called after writing to data directly, otherwise a stale packed copy is used
+        void invalidatePacked() {
+            packed = null;
+        }
+    }
+
+    private static void checkOperands(FlatMatrix A, FlatMatrix B, FlatMatrix C, int size) {
+        if (A.size != size || B.size != size || C.size != size) {
+            throw new IllegalArgumentException("All matrices must be " + size + "x" + size);
+        }
+        if (C == A || C == B) {
+            throw new IllegalArgumentException("Result buffer must not alias an operand");
+        }
+    }
+
+    // Basic matrix multiplication - dot products of A rows with packed B columns
+    public static void matrixMultiplicationBasic(FlatMatrix A, FlatMatrix B, FlatMatrix C, int size) {
+        checkOperands(A, B, C, size);
+        int[] a = A.data;
+        int[] bt = B.packTransposed();
+        int[] c = C.data;
+
+        for (int i = 0; i < size; i++) {
+            int rowA = i * size;
+            for (int j = 0; j < size; j++) {
+                int colB = j * size;
+                int sum = 0;
+                for (int k = 0; k < size; k++) {
+                    sum += a[rowA + k] * bt[colB + k];
+                }
+                c[rowA + j] = sum;
+            }
+        }
+        C.invalidatePacked();
+    }
+
+    // Matrix multiplication - loop unroll with independent accumulators over packed B columns
+    public static void matrixMultiplicationLoopUnroll(FlatMatrix A, FlatMatrix B, FlatMatrix C, int size) {
+        checkOperands(A, B, C, size);
+        int[] a = A.data;
+        int[] bt = B.packTransposed();
+        int[] c = C.data;
+        int unrollFactor = 4; // Process 4 elements per iteration
+
+        for (int i = 0; i < size; i++) {
+            int rowA = i * size;
+            for (int j = 0; j < size; j++) {
+                int colB = j * size;
+                int sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+
+                // Process k in chunks of 4, each chunk feeding its own accumulator
+                int k = 0;
+                for (; k <= size - unrollFactor; k += unrollFactor) {
+                    sum0 += a[rowA + k] * bt[colB + k];
+                    sum1 += a[rowA + k + 1] * bt[colB + k + 1];
+                    sum2 += a[rowA + k + 2] * bt[colB + k + 2];
+                    sum3 += a[rowA + k + 3] * bt[colB + k + 3];
+                }
+
+                // Handle remaining elements
+                for (; k < size; k++) {
+                    sum0 += a[rowA + k] * bt[colB + k];
+                }
+
+                c[rowA + j] = sum0 + sum1 + sum2 + sum3;
+            }
+        }
+        C.invalidatePacked();
+    }
+
+    // Matrix multiplication - cache optimization
+    public static void matrixMultiplicationCache(FlatMatrix A, FlatMatrix B, FlatMatrix C, int size) {
+        matrixMultiplicationCache(A, B, C, size, 64);
+    }
+
+    // Blocked i-k-j order: the innermost loop streams one row of B and one row of C
+    public static void matrixMultiplicationCache(FlatMatrix A, FlatMatrix B, FlatMatrix C, int size, int blockSize) {
+        checkOperands(A, B, C, size);
+        int[] a = A.data;
+        int[] b = B.data;
+        int[] c = C.data;
+        Arrays.fill(c, 0);
+
+        for (int ii = 0; ii < size; ii += blockSize) {
+            int iEnd = Math.min(ii + blockSize, size);
+            for (int kk = 0; kk < size; kk += blockSize) {
+                int kEnd = Math.min(kk + blockSize, size);
+                for (int jj = 0; jj < size; jj += blockSize) {
+                    int jEnd = Math.min(jj + blockSize, size);
+                    for (int i = ii; i < iEnd; i++) {
+                        int rowA = i * size;
+                        for (int k = kk; k < kEnd; k++) {
+                            int aik = a[rowA + k];
+                            if (aik == 0) {
+                                continue;
+                            }
+                            int rowB = k * size;
+                            for (int j = jj; j < jEnd; j++) {
+                                c[rowA + j] += aik * b[rowB + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        C.invalidatePacked();
+    }
+}
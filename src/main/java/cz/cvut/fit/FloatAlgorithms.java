@@ -0,0 +1,202 @@
+package cz.cvut.fit;
+
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Products in single precision: half the bytes of double per element and twice the values per cache line,
+// at about seven significant digits. Each kernel is written out for float[][] like the int ones in Algorithms,
+// so the hot loops never box a value or go through an erased type. Sums are rounded to float after every step.
+public class FloatAlgorithms {
+
+    static class FloatMatrix {
+        float[][] data;
+        int size;
+
+        FloatMatrix(float[][] data) {
+            this.data = data;
+            this.size = data.length;
+        }
+
+        FloatMatrix(int size) {
+            this.data = new float[size][size];
+            this.size = size;
+        }
+
+        static FloatMatrix fromMatrix(Matrix M) {
+            FloatMatrix F = new FloatMatrix(M.size);
+            for (int i = 0; i < M.size; i++) {
+                for (int j = 0; j < M.size; j++) {
+                    F.data[i][j] = M.data[i][j];
+                }
+            }
+            return F;
+        }
+    }
+
+    public static FloatMatrix matrixMultiplicationCache(FloatMatrix A, FloatMatrix B, int size) {
+        return matrixMultiplicationCache(A, B, size, 64);
+    }
+
+    // Blocked, i-k-j inside the blocks so the inner loop streams a row of B and a row of C
+    public static FloatMatrix matrixMultiplicationCache(FloatMatrix A, FloatMatrix B, int size, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        checkSizes(A, B, size);
+        FloatMatrix C = new FloatMatrix(size);
+        multiplyBlocked(A.data, B.data, C.data, size, blockSize);
+        return C;
+    }
+
+    // C += A * B for n x n operands
+    private static void multiplyBlocked(float[][] a, float[][] b, float[][] c, int n, int blockSize) {
+        for (int ii = 0; ii < n; ii += blockSize) {
+            int iEnd = Math.min(ii + blockSize, n);
+            for (int kk = 0; kk < n; kk += blockSize) {
+                int kEnd = Math.min(kk + blockSize, n);
+                for (int jj = 0; jj < n; jj += blockSize) {
+                    int jEnd = Math.min(jj + blockSize, n);
+                    for (int i = ii; i < iEnd; i++) {
+                        float[] aRow = a[i];
+                        float[] cRow = c[i];
+                        for (int k = kk; k < kEnd; k++) {
+                            float aik = aRow[k];
+                            float[] bRow = b[k];
+                            for (int j = jj; j < jEnd; j++) {
+                                cRow[j] += aik * bRow[j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // i-k-j with k unrolled by 4: every pass over a row of C adds four rows of B
+    public static FloatMatrix matrixMultiplicationLoopUnroll(FloatMatrix A, FloatMatrix B, int size) {
+        checkSizes(A, B, size);
+        FloatMatrix C = new FloatMatrix(size);
+        for (int i = 0; i < size; i++) {
+            float[] aRow = A.data[i];
+            float[] cRow = C.data[i];
+            int k = 0;
+            for (; k <= size - 4; k += 4) {
+                float a0 = aRow[k], a1 = aRow[k + 1], a2 = aRow[k + 2], a3 = aRow[k + 3];
+                float[] b0 = B.data[k], b1 = B.data[k + 1], b2 = B.data[k + 2], b3 = B.data[k + 3];
+                for (int j = 0; j < size; j++) {
+                    cRow[j] += a0 * b0[j] + a1 * b1[j] + a2 * b2[j] + a3 * b3[j];
+                }
+            }
+            for (; k < size; k++) {
+                float aik = aRow[k];
+                float[] bRow = B.data[k];
+                for (int j = 0; j < size; j++) {
+                    cRow[j] += aik * bRow[j];
+                }
+            }
+        }
+        return C;
+    }
+
+    public static FloatMatrix matrixMultiplicationStrassen(FloatMatrix A, FloatMatrix B, int size) {
+        return matrixMultiplicationStrassen(A, B, size, 64);
+    }
+
+    // Padded to a power of two like the int Strassen, with the blocked kernel below the cutoff
+    public static FloatMatrix matrixMultiplicationStrassen(FloatMatrix A, FloatMatrix B, int size, int cutoff) {
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        }
+        checkSizes(A, B, size);
+        if (size <= cutoff) {
+            return matrixMultiplicationCache(A, B, size);
+        }
+        int n = Integer.highestOneBit(size - 1) << 1;
+        FloatMatrix C = strassen(pad(A, n), pad(B, n), n, cutoff);
+        if (n == size) {
+            return C;
+        }
+        FloatMatrix result = new FloatMatrix(size);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(C.data[i], 0, result.data[i], 0, size);
+        }
+        return result;
+    }
+
+    private static FloatMatrix strassen(FloatMatrix A, FloatMatrix B, int n, int cutoff) {
+        if (n <= cutoff) {
+            FloatMatrix C = new FloatMatrix(n);
+            multiplyBlocked(A.data, B.data, C.data, n, 64);
+            return C;
+        }
+        int h = n / 2;
+        FloatMatrix A11 = quadrant(A, 0, 0, h), A12 = quadrant(A, 0, h, h), A21 = quadrant(A, h, 0, h), A22 = quadrant(A, h, h, h);
+        FloatMatrix B11 = quadrant(B, 0, 0, h), B12 = quadrant(B, 0, h, h), B21 = quadrant(B, h, 0, h), B22 = quadrant(B, h, h, h);
+
+        FloatMatrix M1 = strassen(combine(A11, A22, 1), combine(B11, B22, 1), h, cutoff);
+        FloatMatrix M2 = strassen(combine(A21, A22, 1), B11, h, cutoff);
+        FloatMatrix M3 = strassen(A11, combine(B12, B22, -1), h, cutoff);
+        FloatMatrix M4 = strassen(A22, combine(B21, B11, -1), h, cutoff);
+        FloatMatrix M5 = strassen(combine(A11, A12, 1), B22, h, cutoff);
+        FloatMatrix M6 = strassen(combine(A21, A11, -1), combine(B11, B12, 1), h, cutoff);
+        FloatMatrix M7 = strassen(combine(A12, A22, -1), combine(B21, B22, 1), h, cutoff);
+
+        // C11 = M1 + M4 - M5 + M7, C12 = M3 + M5, C21 = M2 + M4, C22 = M1 - M2 + M3 + M6
+        FloatMatrix C = new FloatMatrix(n);
+        for (int i = 0; i < h; i++) {
+            float[] c1 = C.data[i], c2 = C.data[i + h];
+            float[] m1 = M1.data[i], m2 = M2.data[i], m3 = M3.data[i], m4 = M4.data[i];
+            float[] m5 = M5.data[i], m6 = M6.data[i], m7 = M7.data[i];
+            for (int j = 0; j < h; j++) {
+                c1[j] = m1[j] + m4[j] - m5[j] + m7[j];
+                c1[j + h] = m3[j] + m5[j];
+                c2[j] = m2[j] + m4[j];
+                c2[j + h] = m1[j] - m2[j] + m3[j] + m6[j];
+            }
+        }
+        return C;
+    }
+
+    private static FloatMatrix quadrant(FloatMatrix M, int row, int col, int h) {
+        FloatMatrix Q = new FloatMatrix(h);
+        for (int i = 0; i < h; i++) {
+            System.arraycopy(M.data[row + i], col, Q.data[i], 0, h);
+        }
+        return Q;
+    }
+
+    // X + sign * Y
+    private static FloatMatrix combine(FloatMatrix X, FloatMatrix Y, int sign) {
+        int n = X.size;
+        FloatMatrix R = new FloatMatrix(n);
+        for (int i = 0; i < n; i++) {
+            float[] x = X.data[i], y = Y.data[i], r = R.data[i];
+            if (sign > 0) {
+                for (int j = 0; j < n; j++) {
+                    r[j] = x[j] + y[j];
+                }
+            } else {
+                for (int j = 0; j < n; j++) {
+                    r[j] = x[j] - y[j];
+                }
+            }
+        }
+        return R;
+    }
+
+    private static FloatMatrix pad(FloatMatrix M, int n) {
+        if (M.size == n) {
+            return M;
+        }
+        FloatMatrix P = new FloatMatrix(n);
+        for (int i = 0; i < M.size; i++) {
+            System.arraycopy(M.data[i], 0, P.data[i], 0, M.size);
+        }
+        return P;
+    }
+
+    private static void checkSizes(FloatMatrix A, FloatMatrix B, int size) {
+        if (A.size != size || B.size != size) {
+            throw new IllegalArgumentException("Matrices must be " + size + "x" + size + ": " + A.size + ", " + B.size);
+        }
+    }
+}
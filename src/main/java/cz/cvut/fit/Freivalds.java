@@ -0,0 +1,230 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.DoubleAlgorithms.DoubleMatrix;
+import cz.cvut.fit.FloatAlgorithms.FloatMatrix;
+import cz.cvut.fit.LongAlgorithms.LongMatrix;
+import cz.cvut.fit.OutOfCoreAlgorithms.TiledMatrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// Freivalds' check of C = A * B: for random vectors r, compare A (B r) with C r, O(n^2) per trial instead
+// of the O(n^3) reference multiplication. Arithmetic is int, i.e. mod 2^32 like the kernels themselves, so an
+// overflowing but correct product passes. With r uniform over all ints a wrong C survives a trial with
+// probability at most 1/2, and about 2^-32 unless the error is a multiple of a large power of two.
+// long products are checked the same way mod 2^64. Floating-point products cannot be compared exactly: an element
+// of A (B r) - C r passes while it stays within a few rounding errors per term of the magnitudes that went into it.
+public class Freivalds {
+
+    // Allowed difference in units of size * epsilon * (|A| (|B| |r|) + |C| |r|). One unit is the worst case of the
+    // classical kernels, the second leaves room for Strassen, whose intermediate sums cancel
+    private static final double ROUNDING_TOLERANCE = 2;
+
+    public static boolean verify(Matrix A, Matrix B, Matrix C, int size, int trials) {
+        return verify(A, B, C, size, trials, System.nanoTime());
+    }
+
+    public static boolean verify(Matrix A, Matrix B, Matrix C, int size, int trials, long seed) {
+        checkTrials(trials);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] r = new int[size];
+        for (int trial = 0; trial < trials; trial++) {
+            for (int i = 0; i < size; i++) {
+                r[i] = random.nextInt();
+            }
+            int[] abr = multiplyVector(A, multiplyVector(B, r, size), size);
+            int[] cr = multiplyVector(C, r, size);
+            for (int i = 0; i < size; i++) {
+                if (abr[i] != cr[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Tile files are read once per product per trial, so the check needs O(n) memory besides one tile
+    public static boolean verify(TiledMatrix A, TiledMatrix B, TiledMatrix C, int trials) throws IOException {
+        return verify(A, B, C, trials, System.nanoTime());
+    }
+
+    public static boolean verify(TiledMatrix A, TiledMatrix B, TiledMatrix C, int trials, long seed) throws IOException {
+        checkTrials(trials);
+        if (A.size != B.size || A.size != C.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + ", " + B.size + ", " + C.size);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int size = A.size;
+        int[] r = new int[size];
+        for (int trial = 0; trial < trials; trial++) {
+            for (int i = 0; i < size; i++) {
+                r[i] = random.nextInt();
+            }
+            int[] abr = A.multiplyVector(B.multiplyVector(r));
+            int[] cr = C.multiplyVector(r);
+            for (int i = 0; i < size; i++) {
+                if (abr[i] != cr[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static boolean verify(SparseMatrix A, SparseMatrix B, SparseMatrix C, int trials) {
+        return verify(A, B, C, trials, System.nanoTime());
+    }
+
+    // O(nnz) per trial
+    public static boolean verify(SparseMatrix A, SparseMatrix B, SparseMatrix C, int trials, long seed) {
+        checkTrials(trials);
+        if (A.size != B.size || A.size != C.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + ", " + B.size + ", " + C.size);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int size = A.size;
+        int[] r = new int[size];
+        for (int trial = 0; trial < trials; trial++) {
+            for (int i = 0; i < size; i++) {
+                r[i] = random.nextInt();
+            }
+            int[] abr = multiplyVector(A, multiplyVector(B, r));
+            int[] cr = multiplyVector(C, r);
+            for (int i = 0; i < size; i++) {
+                if (abr[i] != cr[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static boolean verify(LongMatrix A, LongMatrix B, LongMatrix C, int size, int trials) {
+        return verify(A, B, C, size, trials, System.nanoTime());
+    }
+
+    public static boolean verify(LongMatrix A, LongMatrix B, LongMatrix C, int size, int trials, long seed) {
+        checkTrials(trials);
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] r = new long[size];
+        for (int trial = 0; trial < trials; trial++) {
+            for (int i = 0; i < size; i++) {
+                r[i] = random.nextLong();
+            }
+            long[] abr = multiplyVector(A.data, multiplyVector(B.data, r, size), size);
+            long[] cr = multiplyVector(C.data, r, size);
+            for (int i = 0; i < size; i++) {
+                if (abr[i] != cr[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static boolean verify(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C, int size, int trials) {
+        return verify(A.data, B.data, C.data, size, trials, Math.ulp(1.0), System.nanoTime());
+    }
+
+    // Checked in double, with the rounding allowance of the float product
+    public static boolean verify(FloatMatrix A, FloatMatrix B, FloatMatrix C, int size, int trials) {
+        return verify(widen(A.data), widen(B.data), widen(C.data), size, trials, Math.ulp(1.0f), System.nanoTime());
+    }
+
+    private static boolean verify(double[][] A, double[][] B, double[][] C, int size, int trials, double epsilon, long seed) {
+        checkTrials(trials);
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] r = new double[size];
+        double[] magnitude = new double[size];
+        for (int trial = 0; trial < trials; trial++) {
+            for (int i = 0; i < size; i++) {
+                r[i] = random.nextDouble(-1, 1);
+                magnitude[i] = Math.abs(r[i]);
+            }
+            double[] abr = multiplyVector(A, multiplyVector(B, r, size, false), size, false);
+            double[] cr = multiplyVector(C, r, size, false);
+            double[] bound = multiplyVector(A, multiplyVector(B, magnitude, size, true), size, true);
+            double[] cBound = multiplyVector(C, magnitude, size, true);
+            for (int i = 0; i < size; i++) {
+                double allowed = ROUNDING_TOLERANCE * size * epsilon * (bound[i] + cBound[i]);
+                // Written so that a NaN anywhere fails the check
+                if (!(Math.abs(abr[i] - cr[i]) <= allowed)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void checkTrials(int trials) {
+        if (trials < 1) {
+            throw new IllegalArgumentException("Number of trials must be positive: " + trials);
+        }
+    }
+
+    private static int[] multiplyVector(Matrix M, int[] x, int size) {
+        int[] y = new int[size];
+        for (int i = 0; i < size; i++) {
+            int[] row = M.data[i];
+            int sum = 0;
+            for (int j = 0; j < size; j++) {
+                sum += row[j] * x[j];
+            }
+            y[i] = sum;
+        }
+        return y;
+    }
+
+    private static long[] multiplyVector(long[][] M, long[] x, int size) {
+        long[] y = new long[size];
+        for (int i = 0; i < size; i++) {
+            long[] row = M[i];
+            long sum = 0;
+            for (int j = 0; j < size; j++) {
+                sum += row[j] * x[j];
+            }
+            y[i] = sum;
+        }
+        return y;
+    }
+
+    // M x, or |M| x for the error bound
+    private static double[] multiplyVector(double[][] M, double[] x, int size, boolean absolute) {
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            double[] row = M[i];
+            double sum = 0;
+            for (int j = 0; j < size; j++) {
+                sum += (absolute ? Math.abs(row[j]) : row[j]) * x[j];
+            }
+            y[i] = sum;
+        }
+        return y;
+    }
+
+    private static double[][] widen(float[][] M) {
+        double[][] wide = new double[M.length][];
+        for (int i = 0; i < M.length; i++) {
+            wide[i] = new double[M[i].length];
+            for (int j = 0; j < M[i].length; j++) {
+                wide[i][j] = M[i][j];
+            }
+        }
+        return wide;
+    }
+
+    private static int[] multiplyVector(SparseMatrix M, int[] x) {
+        int[] y = new int[M.size];
+        for (int outer = 0; outer < M.size; outer++) {
+            for (int p = M.pointers[outer]; p < M.pointers[outer + 1]; p++) {
+                if (M.layout == SparseAlgorithms.Layout.CSR) {
+                    y[outer] += M.values[p] * x[M.indices[p]];
+                } else {
+                    y[M.indices[p]] += M.values[p] * x[outer];
+                }
+            }
+        }
+        return y;
+    }
+}
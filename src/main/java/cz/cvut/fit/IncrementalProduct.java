@@ -0,0 +1,248 @@
+package cz.cvut.fit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Keeps C = A * B up to date while A and B change a few elements, rows or columns at a time.
+// Updates only record the difference against the current operand (dA, dB); flush() applies all of them at once:
+//   A'B' = AB + dA * B + A' * dB
+// Each changed row of dA adds its sparse combination of B rows to one row of C, and each changed row k of dB
+// adds column k of A' times that row to all of C, so one element costs O(n), a row or column O(n^2). Pending
+// rows are walked in blocks so a block of B (or A') serves all of them while it is in cache, and when the
+// corrections together would cost more than a multiplication the product is simply recomputed.
+public class IncrementalProduct {
+
+    // Above size^3 / RECOMPUTE_RATIO multiply-adds of corrections a full cache multiplication is cheaper
+    private static final int RECOMPUTE_RATIO = 2;
+    private static final int BLOCK = 64;
+
+    private final int size;
+    private final Matrix A;
+    private final Matrix B;
+    private Matrix C;
+
+    // Pending differences, row index -> dense delta row, applied and cleared by flush()
+    private final Map<Integer, int[]> pendingA = new TreeMap<>();
+    private final Map<Integer, int[]> pendingB = new TreeMap<>();
+
+    // Flushes that applied corrections or recomputed, and multiply-adds spent on corrections
+    long corrections;
+    long recomputations;
+    long multiplyAdds;
+
+    public IncrementalProduct(Matrix A, Matrix B, int size) {
+        if (A.size != size || B.size != size) {
+            throw new IllegalArgumentException("Matrices must be " + size + "x" + size + ": " + A.size + ", " + B.size);
+        }
+        this.size = size;
+        this.A = copy(A);
+        this.B = copy(B);
+        this.C = Algorithms.matrixMultiplicationCache(this.A, this.B, size);
+    }
+
+    public void updateA(int i, int k, int value) {
+        checkIndex(i);
+        checkIndex(k);
+        delta(pendingA, i)[k] += value - valueOf(A, pendingA, i, k);
+    }
+
+    public void updateB(int k, int j, int value) {
+        checkIndex(k);
+        checkIndex(j);
+        delta(pendingB, k)[j] += value - valueOf(B, pendingB, k, j);
+    }
+
+    public void updateRowA(int i, int[] row) {
+        updateRow(A, pendingA, i, row);
+    }
+
+    public void updateRowB(int k, int[] row) {
+        updateRow(B, pendingB, k, row);
+    }
+
+    public void updateColumnA(int k, int[] column) {
+        updateColumn(A, pendingA, k, column);
+    }
+
+    public void updateColumnB(int j, int[] column) {
+        updateColumn(B, pendingB, j, column);
+    }
+
+    // The current product, with every update so far applied; it is changed in place by later flushes
+    public Matrix result() {
+        flush();
+        return C;
+    }
+
+    public void flush() {
+        if (pendingA.isEmpty() && pendingB.isEmpty()) {
+            return;
+        }
+        List<Correction> rowsA = sparseRows(pendingA);
+        List<Correction> rowsB = sparseRows(pendingB);
+        long cost = 0;
+        for (Correction row : rowsA) {
+            cost += (long) row.count * size;
+        }
+        for (Correction row : rowsB) {
+            cost += (long) row.count * size;
+        }
+
+        // The operands take their new values in both cases, dA before dB as the formula requires
+        if (cost > (long) size * size * size / RECOMPUTE_RATIO) {
+            apply(A, rowsA);
+            apply(B, rowsB);
+            C = Algorithms.matrixMultiplicationCache(A, B, size);
+            recomputations++;
+        } else {
+            correctWithB(rowsA);
+            apply(A, rowsA);
+            correctWithA(rowsB);
+            apply(B, rowsB);
+            multiplyAdds += cost;
+            corrections++;
+        }
+        pendingA.clear();
+        pendingB.clear();
+    }
+
+    // Nonzero entries of one pending delta row
+    private static class Correction {
+        final int row;
+        final int[] indices;
+        final int[] values;
+        final int count;
+
+        Correction(int row, int[] indices, int[] values, int count) {
+            this.row = row;
+            this.indices = indices;
+            this.values = values;
+            this.count = count;
+        }
+    }
+
+    private List<Correction> sparseRows(Map<Integer, int[]> pending) {
+        List<Correction> rows = new ArrayList<>(pending.size());
+        for (Map.Entry<Integer, int[]> entry : pending.entrySet()) {
+            int[] delta = entry.getValue();
+            int count = 0;
+            for (int value : delta) {
+                if (value != 0) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            int[] indices = new int[count];
+            int[] values = new int[count];
+            for (int j = 0, p = 0; j < size; j++) {
+                if (delta[j] != 0) {
+                    indices[p] = j;
+                    values[p++] = delta[j];
+                }
+            }
+            rows.add(new Correction(entry.getKey(), indices, values, count));
+        }
+        return rows;
+    }
+
+    // C[i][*] += dA[i][k] * B[k][*] for the old B, in blocks of k so the B rows of a block are reused by every row i
+    private void correctWithB(List<Correction> rowsA) {
+        int[] cursor = new int[rowsA.size()];
+        for (int kk = 0; kk < size; kk += BLOCK) {
+            int kEnd = kk + BLOCK;
+            for (int r = 0; r < rowsA.size(); r++) {
+                Correction row = rowsA.get(r);
+                int[] c = C.data[row.row];
+                int p = cursor[r];
+                for (; p < row.count && row.indices[p] < kEnd; p++) {
+                    int d = row.values[p];
+                    int[] b = B.data[row.indices[p]];
+                    for (int j = 0; j < size; j++) {
+                        c[j] += d * b[j];
+                    }
+                }
+                cursor[r] = p;
+            }
+        }
+    }
+
+    // C[i][*] += A'[i][k] * dB[k][*] for the new A, in blocks of rows i so the C rows of a block take every dB row
+    private void correctWithA(List<Correction> rowsB) {
+        for (int ii = 0; ii < size; ii += BLOCK) {
+            int iEnd = Math.min(ii + BLOCK, size);
+            for (Correction row : rowsB) {
+                for (int i = ii; i < iEnd; i++) {
+                    int a = A.data[i][row.row];
+                    if (a == 0) {
+                        continue;
+                    }
+                    int[] c = C.data[i];
+                    for (int p = 0; p < row.count; p++) {
+                        c[row.indices[p]] += a * row.values[p];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void apply(Matrix M, List<Correction> rows) {
+        for (Correction row : rows) {
+            int[] m = M.data[row.row];
+            for (int p = 0; p < row.count; p++) {
+                m[row.indices[p]] += row.values[p];
+            }
+        }
+    }
+
+    private void updateRow(Matrix M, Map<Integer, int[]> pending, int i, int[] row) {
+        checkIndex(i);
+        checkLength(row);
+        int[] delta = delta(pending, i);
+        for (int j = 0; j < size; j++) {
+            delta[j] = row[j] - M.data[i][j];
+        }
+    }
+
+    private void updateColumn(Matrix M, Map<Integer, int[]> pending, int j, int[] column) {
+        checkIndex(j);
+        checkLength(column);
+        for (int i = 0; i < size; i++) {
+            delta(pending, i)[j] += column[i] - valueOf(M, pending, i, j);
+        }
+    }
+
+    private int[] delta(Map<Integer, int[]> pending, int row) {
+        return pending.computeIfAbsent(row, r -> new int[size]);
+    }
+
+    // The operand value including pending updates
+    private static int valueOf(Matrix M, Map<Integer, int[]> pending, int i, int j) {
+        int[] delta = pending.get(i);
+        return M.data[i][j] + (delta == null ? 0 : delta[j]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Index " + index + " out of range for size " + size);
+        }
+    }
+
+    private void checkLength(int[] values) {
+        if (values.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " values, got " + values.length);
+        }
+    }
+
+    private static Matrix copy(Matrix M) {
+        Matrix copy = new Matrix(M.size);
+        for (int i = 0; i < M.size; i++) {
+            System.arraycopy(M.data[i], 0, copy.data[i], 0, M.size);
+        }
+        return copy;
+    }
+}
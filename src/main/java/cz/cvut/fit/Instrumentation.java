@@ -0,0 +1,136 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.ThreadMXBean;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// Per-run measurements from the platform MXBeans: bytes allocated by all threads, GC count and time,
+// peak heap and native memory and process CPU time. Start a Probe right before the run and stop it
+// right after; the probe itself allocates nothing in between.
+public class Instrumentation {
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final OperatingSystemMXBean OS = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    // Native bytes currently held by open off-heap matrices, and the peak since the last reset. Kept here rather
+    // than in OffHeapAlgorithms, whose class file needs --enable-preview on JDK 21, so every probe can read them
+    private static final AtomicLong NATIVE_BYTES = new AtomicLong();
+    private static final AtomicLong PEAK_NATIVE_BYTES = new AtomicLong();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+    private static final List<BufferPoolMXBean> BUFFER_POOLS = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+
+    // What one run used
+    static class Measurement {
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;  // by all threads, including pool workers and threads that ended during the run
+        long gcCount;
+        long gcMillis;
+        long peakHeapBytes;   // sum of the per-pool peaks, an upper bound of the heap actually in use at once
+        long peakNativeBytes; // off-heap matrices at their peak plus direct and mapped buffers at the end
+
+        // Classical 2 n^3 operations per product, so Strassen variants and the sparse kernel report effective GOPS
+        double gops(int size) {
+            return 2.0 * size * size * size / wallNanos;
+        }
+
+        // Compulsory traffic only, reading A and B once and writing C once
+        double bandwidthGBs(int size) {
+            return 3.0 * size * size * Integer.BYTES / wallNanos;
+        }
+    }
+
+    static class Probe {
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocatedStart;
+        private final long gcCountStart;
+        private final long gcMillisStart;
+
+        private Probe() {
+            for (MemoryPoolMXBean pool : HEAP_POOLS) {
+                pool.resetPeakUsage();
+            }
+            PEAK_NATIVE_BYTES.set(NATIVE_BYTES.get());
+            gcCountStart = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+            gcMillisStart = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+            allocatedStart = THREADS.getTotalThreadAllocatedBytes();
+            cpuStart = OS.getProcessCpuTime();
+            wallStart = System.nanoTime();
+        }
+
+        Measurement stop() {
+            long wallEnd = System.nanoTime();
+            long cpuEnd = OS.getProcessCpuTime();
+            long allocatedEnd = THREADS.getTotalThreadAllocatedBytes();
+            Measurement measurement = new Measurement();
+            measurement.wallNanos = wallEnd - wallStart;
+            measurement.cpuNanos = cpuEnd - cpuStart;
+            measurement.allocatedBytes = allocatedEnd - allocatedStart;
+            measurement.gcCount = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum() - gcCountStart;
+            measurement.gcMillis = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum() - gcMillisStart;
+            measurement.peakHeapBytes = HEAP_POOLS.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            measurement.peakNativeBytes = PEAK_NATIVE_BYTES.get()
+                    + BUFFER_POOLS.stream().mapToLong(BufferPoolMXBean::getMemoryUsed).sum();
+            return measurement;
+        }
+    }
+
+    static Probe start() {
+        return new Probe();
+    }
+
+    static void nativeAllocated(long bytes) {
+        PEAK_NATIVE_BYTES.accumulateAndGet(NATIVE_BYTES.addAndGet(bytes), Math::max);
+    }
+
+    static void nativeFreed(long bytes) {
+        NATIVE_BYTES.addAndGet(-bytes);
+    }
+
+    static long nativeBytes() {
+        return NATIVE_BYTES.get();
+    }
+
+    // JFR recording with the "profile" settings, null when recordings are not requested (jfrDir == null)
+    static Recording startRecording(Path jfrDir) {
+        if (jfrDir == null) {
+            return null;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.start();
+            return recording;
+        } catch (IOException | ParseException e) {
+            System.err.println("Error starting JFR recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static void stopRecording(Recording recording, Path file) {
+        if (recording == null) {
+            return;
+        }
+        try (recording) {
+            recording.stop();
+            Files.createDirectories(file.getParent());
+            recording.dump(file);
+        } catch (IOException e) {
+            System.err.println("Error writing JFR recording " + file + ": " + e.getMessage());
+        }
+    }
+}
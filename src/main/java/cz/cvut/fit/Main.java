@@ -1,119 +1,288 @@
 package cz.cvut.fit;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.management.ManagementFactory;
-import java.lang.management.MemoryMXBean;
-import java.lang.management.MemoryUsage;
-import com.sun.management.OperatingSystemMXBean;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
 import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.DoubleAlgorithms.DoubleMatrix;
+import cz.cvut.fit.FloatAlgorithms.FloatMatrix;
+import cz.cvut.fit.LongAlgorithms.LongMatrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
 
 public class Main {
 
     private static final int MAX_SIZE = 2048;
     private static final int MIN_SIZE = 2;
-    private static final String[] ALGORITHMS = {"basic", "loop", "cache", "strassen"};
-    private static final String[] MATRIX_TYPES = {"normal", "sparse"};
+    // Every registered dense algorithm, in registration order
+    private static final String[] ALGORITHMS = MultiplierRegistry.names().toArray(new String[0]);
+    private static final String[] MATRIX_TYPES = {"normal", "sparse", "clustered"};
 
-    // Benchmark results holder
+    // Parallel kernel settings, overridable with -Dmatrix.parallelism=N and -Dmatrix.tileSize=N
+    static final int PARALLELISM = Integer.getInteger("matrix.parallelism", Runtime.getRuntime().availableProcessors());
+    static final int TILE_SIZE = Integer.getInteger("matrix.tileSize", 64);
+    // Tile side of the block-sparse representation and its density histogram, -Dmatrix.blockTile=N
+    static final int BLOCK_TILE = Integer.getInteger("matrix.blockTile", 16);
+    // Sizes for --offheap, overridable with -Doffheap.sizes=4096,8192,...
+    private static final int[] OFF_HEAP_SIZES = Arrays.stream(System.getProperty("offheap.sizes", "4096,8192,16384").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    // --outofcore settings: -Doutofcore.sizes, -Doutofcore.tileSize, -Doutofcore.budgetMB, -Doutofcore.prefetch
+    // and -Doutofcore.dir for the tile files (default: the system temp directory)
+    private static final int[] OUT_OF_CORE_SIZES = Arrays.stream(System.getProperty("outofcore.sizes", "2048,4096").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final int OUT_OF_CORE_TILE_SIZE = Integer.getInteger("outofcore.tileSize", 256);
+    private static final long OUT_OF_CORE_BUDGET = Long.getLong("outofcore.budgetMB", 64) * 1024 * 1024;
+    private static final int OUT_OF_CORE_PREFETCH = Integer.getInteger("outofcore.prefetch", 2);
+    // --distributed settings: -Ddistributed.sizes and -Ddistributed.workers (square numbers, the first is the baseline)
+    private static final int[] DISTRIBUTED_SIZES = Arrays.stream(System.getProperty("distributed.sizes", "512,1024").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final int[] DISTRIBUTED_WORKERS = Arrays.stream(System.getProperty("distributed.workers", "1,4,9").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    // --batch settings: -Dbatch.sizes, -Dbatch.requests per run, -Dbatch.clients (virtual threads) and -Dbatch.maxBatch
+    private static final int[] BATCH_SIZES = Arrays.stream(System.getProperty("batch.sizes", "2,3,4,8,16,32,64").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final int BATCH_REQUESTS = Integer.getInteger("batch.requests", 100000);
+    private static final int BATCH_CLIENTS = Integer.getInteger("batch.clients", 256);
+    private static final int BATCH_MAX = Integer.getInteger("batch.maxBatch", 1024);
+    // Sizes for --expressions, overridable with -Dexpressions.sizes=256,512,...
+    private static final int[] EXPRESSION_SIZES = Arrays.stream(System.getProperty("expressions.sizes", "256,512").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    // --incremental settings: -Dincremental.sizes, -Dincremental.rates (updates between two reads of C)
+    // and -Dincremental.queries (reads of C per size and rate)
+    private static final int[] INCREMENTAL_SIZES = Arrays.stream(System.getProperty("incremental.sizes", "512,1024").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final int[] INCREMENTAL_RATES = Arrays.stream(System.getProperty("incremental.rates", "1,16,256").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final int INCREMENTAL_QUERIES = Integer.getInteger("incremental.queries", 5);
+    // --morton settings: the modelled caches (-Dmorton.l1KB, -Dmorton.l2KB) and the largest size traced through them
+    private static final int MORTON_L1_KB = Integer.getInteger("morton.l1KB", 32);
+    private static final int MORTON_L2_KB = Integer.getInteger("morton.l2KB", 1024);
+    private static final int MORTON_SIMULATE_MAX = Integer.getInteger("morton.simulateMax", 256);
+    // --types settings: the sizes (-Dtypes.sizes) and a factor every input value is multiplied by (-Dtypes.scale),
+    // large enough factors make the int products overflow where the long ones do not
+    private static final int[] TYPE_SIZES = Arrays.stream(System.getProperty("types.sizes", "256,512,1024").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final int TYPE_SCALE = Integer.getInteger("types.scale", 1);
+    // --memo settings: sizes (-Dmemo.sizes), the memory budget of the result cache (-Dmemo.budgetMB), requests and
+    // concurrent callers per run (-Dmemo.requests, -Dmemo.clients) and the algorithm that computes misses (-Dmemo.algorithm)
+    private static final int[] MEMO_SIZES = Arrays.stream(System.getProperty("memo.sizes", "256,512").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+    private static final long MEMO_BUDGET = Long.getLong("memo.budgetMB", 16) * 1024 * 1024;
+    private static final int MEMO_REQUESTS = Integer.getInteger("memo.requests", 200);
+    private static final int MEMO_CLIENTS = Integer.getInteger("memo.clients", 4);
+    private static final String MEMO_ALGORITHM = System.getProperty("memo.algorithm", "cache");
+    // -Dbenchmark.jfr=dir records every measured run with JFR into dir
+    private static final Path JFR_DIR = System.getProperty("benchmark.jfr") == null ? null
+            : Paths.get(System.getProperty("benchmark.jfr"));
+    // Trials of the Freivalds check in --verify=freivalds mode, each one halves the worst-case chance of missing an error
+    private static final int VERIFY_TRIALS = Integer.getInteger("verify.trials", 10);
+    // -Dmatrix.parallelLoad=true parses row ranges of the input files on PARALLELISM threads
+    private static final boolean PARALLEL_LOAD = Boolean.getBoolean("matrix.parallelLoad");
+    // Parsed inputs kept across algorithms (-Dpipeline.cacheMB) and loading the next size in the background while
+    // the current one warms up (-Dpipeline.prefetch=false turns it off, on few cores the loader slows the warmup)
+    private static final long PIPELINE_CACHE_BYTES = Long.getLong("pipeline.cacheMB", 512) * 1024 * 1024;
+    private static final boolean PIPELINE_PREFETCH = Boolean.parseBoolean(System.getProperty("pipeline.prefetch", "true"));
+    // Smallest size included in the speedup-vs-threads report
+    private static final int SPEEDUP_MIN_SIZE = 256;
+
+    // Benchmark results holder, averages over the measured runs
     static class BenchmarkResult {
+        static final String HEADER = "Size\tTime(s)\tMemory(MB)\tCPU(%)\tNative(MB)"
+                + "\tPeakHeap(MB)\tGCCount\tGCTime(ms)\tGOPS\tBandwidth(GB/s)";
+
         int size;
         double timeSeconds;
-        double memoryMB;
+        double memoryMB; // allocated on the heap by all threads during the run
         double cpuPercent;
+        double nativeMB; // peak off-heap memory held during the run
+        double peakHeapMB;
+        double gcCount;
+        double gcTimeMs;
+        double gops;
+        double bandwidthGBs;
+        Object output; // what the last measured run returned, not reported
 
-        BenchmarkResult(int size, double timeSeconds, double memoryMB, double cpuPercent) {
+        BenchmarkResult(int size, double timeSeconds, double memoryMB, double cpuPercent, double nativeMB,
+                        double peakHeapMB, double gcCount, double gcTimeMs, double gops, double bandwidthGBs) {
             this.size = size;
             this.timeSeconds = timeSeconds;
             this.memoryMB = memoryMB;
             this.cpuPercent = cpuPercent;
+            this.nativeMB = nativeMB;
+            this.peakHeapMB = peakHeapMB;
+            this.gcCount = gcCount;
+            this.gcTimeMs = gcTimeMs;
+            this.gops = gops;
+            this.bandwidthGBs = bandwidthGBs;
         }
 
         @Override
         public String toString() {
-            return String.format("%d\t%.4f\t%.2f\t%.1f", size, timeSeconds, memoryMB, cpuPercent);
+            return String.format(Locale.ROOT, "%d\t%.4f\t%.2f\t%.1f\t%.2f\t%.2f\t%.1f\t%.1f\t%.3f\t%.3f", size, timeSeconds,
+                    memoryMB, cpuPercent, nativeMB, peakHeapMB, gcCount, gcTimeMs, gops, bandwidthGBs);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"size\": %d, \"timeSeconds\": %.6f, \"allocatedMB\": %.3f, \"cpuPercent\": %.1f, "
+                            + "\"nativeMB\": %.3f, \"peakHeapMB\": %.3f, \"gcCount\": %.1f, \"gcTimeMs\": %.1f, "
+                            + "\"gops\": %.4f, \"bandwidthGBs\": %.4f}", size, timeSeconds, memoryMB, cpuPercent, nativeMB,
+                    peakHeapMB, gcCount, gcTimeMs, gops, bandwidthGBs);
+        }
+    }
+
+    // Reads a matrix file in one of the formats
+    private interface MatrixReader<T> {
+        T read(Path path) throws IOException;
+    }
+
+    // Load a matrix with the reader for its format, binary when the name ends with .bin; failures are reported
+    // and give null
+    private static <T> T loadFromFile(String fileName, MatrixReader<T> binary, MatrixReader<T> text) {
+        try {
+            Path path = Paths.get(fileName);
+            return BinaryMatrixFormat.isBinaryFile(fileName) ? binary.read(path) : text.read(path);
+        } catch (IOException e) {
+            System.err.println("Error: Could not open file " + fileName);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: Invalid matrix in " + fileName + ": " + e.getMessage());
         }
+        return null;
     }
 
     // Load a matrix from a text file
     public static Matrix loadMatrixFromFile(String fileName) {
-        List<List<Integer>> matrixList = new ArrayList<>();
+        return loadFromFile(fileName, BinaryMatrixFormat::readMatrix,
+                path -> MatrixParser.parseMatrix(path, PARALLEL_LOAD ? PARALLELISM : 1));
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.trim().split("\\s+");
-                List<Integer> row = new ArrayList<>();
+    // Load a matrix from a text file straight into CSR form, the dense matrix is never built
+    public static SparseMatrix loadSparseMatrixFromFile(String fileName) {
+        return loadFromFile(fileName, BinaryMatrixFormat::readSparse, MatrixParser::parseSparse);
+    }
 
-                for (String value : values) {
-                    if (!value.isEmpty()) {
-                        row.add(Integer.parseInt(value));
-                    }
-                }
+    // Load a matrix together with its content hash, computed row by row while the file is read
+    public static ResultCache.Operand loadOperandFromFile(String fileName) {
+        return loadFromFile(fileName, BinaryMatrixFormat::readOperand, MatrixParser::parseOperand);
+    }
 
-                if (!row.isEmpty()) {
-                    matrixList.add(row);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error: Could not open file " + fileName);
-            return null;
-        }
+    // Load a matrix as 64-bit integers, floating-point files are refused
+    public static LongMatrix loadLongMatrixFromFile(String fileName) {
+        return loadFromFile(fileName, BinaryMatrixFormat::readLongMatrix, MatrixParser::parseLongMatrix);
+    }
 
-        if (matrixList.isEmpty()) {
-            return null;
-        }
+    public static DoubleMatrix loadDoubleMatrixFromFile(String fileName) {
+        return loadFromFile(fileName, BinaryMatrixFormat::readDoubleMatrix, MatrixParser::parseDoubleMatrix);
+    }
 
-        int size = matrixList.size();
-        int[][] matrix = new int[size][size];
+    public static FloatMatrix loadFloatMatrixFromFile(String fileName) {
+        return loadFromFile(fileName, BinaryMatrixFormat::readFloatMatrix, MatrixParser::parseFloatMatrix);
+    }
 
-        for (int i = 0; i < size; i++) {
-            List<Integer> row = matrixList.get(i);
-            for (int j = 0; j < size; j++) {
-                matrix[i][j] = row.get(j);
+    // Load a matrix and keep it dense, in CSR or block-sparse, whichever its tile-density histogram favours
+    public static BlockSparseAlgorithms.HybridMatrix loadHybridMatrixFromFile(String fileName) {
+        return hybridOf(loadMatrixFromFile(fileName));
+    }
+
+    private static BlockSparseAlgorithms.HybridMatrix hybridOf(Matrix M) {
+        return M == null ? null : BlockSparseAlgorithms.HybridMatrix.of(M, BLOCK_TILE);
+    }
+
+    // Dense inputs are parsed once per file and shared by every algorithm that reads them
+    private static Matrix loadDenseInput(BenchmarkPipeline pipeline, Path path) {
+        return pipeline.load(path + "#dense", () -> loadMatrixFromFile(path.toString()));
+    }
+
+    // Queues the form the algorithm will ask for; hybrid inputs are built from the dense one on demand, since
+    // building them on the loader thread would wait on a dense load queued behind itself
+    private static void prefetchInput(BenchmarkPipeline pipeline, Path path, String algorithm) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        if (algorithm.equals("sparse")) {
+            pipeline.prefetch(path + "#csr", () -> loadSparseMatrixFromFile(path.toString()));
+        } else {
+            pipeline.prefetch(path + "#dense", () -> loadMatrixFromFile(path.toString()));
+        }
+    }
+
+    // Approximate heap footprint of a cached input, row arrays and their headers included
+    private static long inputBytes(Object input) {
+        if (input instanceof Matrix M) {
+            return (long) M.size * (4L * M.size + 16);
+        }
+        if (input instanceof SparseMatrix M) {
+            return 4L * (M.pointers.length + M.indices.length + M.values.length);
+        }
+        if (input instanceof BlockSparseAlgorithms.HybridMatrix M) {
+            switch (M.representation) {
+                case CSR:
+                    return inputBytes(M.csr);
+                case BLOCK_SPARSE:
+                    return 4L * (M.blocks.pointers.length + M.blocks.columns.length + M.blocks.values.length);
+                default:
+                    return inputBytes(M.dense);
             }
         }
+        return 0;
+    }
+
+    // Run the selected dense algorithm
+    public static Matrix multiply(Matrix A, Matrix B, int size, String algorithm) {
+        return MultiplierRegistry.get(algorithm).multiply(A, B, size);
+    }
 
-        return new Matrix(matrix);
+    private static BenchmarkResult benchmark(Supplier<?> multiplication, String label, int size) {
+        return benchmark(multiplication, label, size, 3, 5, null);
     }
 
-    // Improved benchmark with warmup and multiple runs
-    public static BenchmarkResult benchmark(Matrix A, Matrix B, int size, String algorithm) {
-        OperatingSystemMXBean osBean = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
-        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private static BenchmarkResult benchmark(Supplier<?> multiplication, String label, int size, int warmupRuns, int runs) {
+        return benchmark(multiplication, label, size, warmupRuns, runs, null);
+    }
 
+    // Improved benchmark with warmup and multiple runs; with -Dbenchmark.jfr=dir every measured run is also
+    // recorded to dir/<label>_<size>_run<k>_<timestamp>.jfr. afterWarmup, if given, runs between the warmup
+    // and the measured runs, to finish background work the process-wide probes would otherwise count
+    private static BenchmarkResult benchmark(Supplier<?> multiplication, String label, int size, int warmupRuns, int runs,
+                                             Runnable afterWarmup) {
         // Warmup runs (to let JIT compile)
-        int warmupRuns = 3;
         for (int i = 0; i < warmupRuns; i++) {
-            switch (algorithm) {
-                case "basic":
-                    Algorithms.matrixMultiplicationBasic(A, B, size);
-                    break;
-                case "loop":
-                    Algorithms.matrixMultiplicationLoopUnroll(A, B, size);
-                    break;
-                case "cache":
-                    Algorithms.matrixMultiplicationCache(A, B, size);
-                    break;
-                case "strassen":
-                    Algorithms.matrixMultiplicationStrassen(A, B, size);
-                    break;
-            }
+            multiplication.get();
+        }
+        if (afterWarmup != null) {
+            afterWarmup.run();
         }
 
         // Actual benchmark runs
-        int runs = 5;
         double totalTime = 0;
         double totalMemory = 0;
         double totalCpu = 0;
+        double totalNative = 0;
+        double totalPeakHeap = 0;
+        double totalGcCount = 0;
+        double totalGcTime = 0;
+        double totalGops = 0;
+        double totalBandwidth = 0;
+        Object output = null;
 
         for (int run = 0; run < runs; run++) {
             // Force garbage collection before measurement
@@ -124,67 +293,113 @@ public class Main {
                 Thread.currentThread().interrupt();
             }
 
-            // Get initial metrics
-            long cpuBefore = osBean.getProcessCpuTime();
-            MemoryUsage memBefore = memoryBean.getHeapMemoryUsage();
-            long timeBefore = System.nanoTime();
-
-            // Execute multiplication
-            Algorithms.Matrix result = null;
-            switch (algorithm) {
-                case "basic":
-                    result = Algorithms.matrixMultiplicationBasic(A, B, size);
-                    break;
-                case "loop":
-                    result = Algorithms.matrixMultiplicationLoopUnroll(A, B, size);
-                    break;
-                case "cache":
-                    result = Algorithms.matrixMultiplicationCache(A, B, size);
-                    break;
-                case "strassen":
-                    result = Algorithms.matrixMultiplicationStrassen(A, B, size);
-                    break;
-            }
-
-            // Get final metrics
-            long timeAfter = System.nanoTime();
-            MemoryUsage memAfter = memoryBean.getHeapMemoryUsage();
-            long cpuAfter = osBean.getProcessCpuTime();
-
-            // Calculate metrics for this run
-            double timeSeconds = (timeAfter - timeBefore) / 1_000_000_000.0;
-            double memoryMB = Math.abs((memAfter.getUsed() - memBefore.getUsed()) / (1024.0 * 1024.0));
-            long cpuTimeNanos = cpuAfter - cpuBefore;
-            long wallClockNanos = timeAfter - timeBefore;
-            double cpuPercent = (cpuTimeNanos / (double) wallClockNanos) * 100.0;
+            Recording recording = Instrumentation.startRecording(JFR_DIR);
+            Instrumentation.Probe probe = Instrumentation.start();
+
+            // Execute multiplication, only the last run's result is kept so earlier ones never add to the peak heap
+            Object result = multiplication.get();
 
+            Instrumentation.Measurement measurement = probe.stop();
+            if (run == runs - 1) {
+                output = result;
+            }
+            result = null;
+            if (recording != null) {
+                Instrumentation.stopRecording(recording, JFR_DIR.resolve(label.replace('/', '_') + "_" + size + "_run" + run
+                        + "_" + System.currentTimeMillis() + ".jfr"));
+            }
+
+            double cpuPercent = (measurement.cpuNanos / (double) measurement.wallNanos) * 100.0;
             // Clamp to reasonable range
             cpuPercent = Math.min(cpuPercent, 100.0 * Runtime.getRuntime().availableProcessors());
 
-            totalTime += timeSeconds;
-            totalMemory += memoryMB;
+            totalTime += measurement.wallNanos / 1_000_000_000.0;
+            totalMemory += measurement.allocatedBytes / (1024.0 * 1024.0);
             totalCpu += cpuPercent;
+            totalNative += measurement.peakNativeBytes / (1024.0 * 1024.0);
+            totalPeakHeap += measurement.peakHeapBytes / (1024.0 * 1024.0);
+            totalGcCount += measurement.gcCount;
+            totalGcTime += measurement.gcMillis;
+            totalGops += measurement.gops(size);
+            totalBandwidth += measurement.bandwidthGBs(size);
         }
 
         // Average the runs
-        double avgTime = totalTime / runs;
-        double avgMemory = totalMemory / runs;
-        double avgCpu = totalCpu / runs;
+        BenchmarkResult benchmarkResult = new BenchmarkResult(size, totalTime / runs, totalMemory / runs, totalCpu / runs,
+                totalNative / runs, totalPeakHeap / runs, totalGcCount / runs, totalGcTime / runs, totalGops / runs,
+                totalBandwidth / runs);
+        benchmarkResult.output = output;
+        return benchmarkResult;
+    }
 
-        return new BenchmarkResult(size, avgTime, avgMemory, avgCpu);
+    private interface MatrixWriter {
+        void write(Path path) throws IOException;
     }
 
+    private interface ElementFormatter {
+        void append(StringBuilder line, int i, int j);
+    }
 
-    // Save result matrix to file
+    // Save a size x size result with the binary writer when the path ends with .bin, otherwise as text with one
+    // line per row and the elements from the formatter separated by spaces
+    private static void saveResult(String filePath, int size, MatrixWriter binary, ElementFormatter element) {
+        if (BinaryMatrixFormat.isBinaryFile(filePath)) {
+            try {
+                binary.write(Paths.get(filePath));
+            } catch (IOException e) {
+                System.err.println("Error writing result to file: " + filePath);
+            }
+            return;
+        }
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(filePath)))) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                line.setLength(0);
+                for (int j = 0; j < size; j++) {
+                    if (j > 0) {
+                        line.append(" ");
+                    }
+                    element.append(line, i, j);
+                }
+                writer.println(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing result to file: " + filePath);
+        }
+    }
+
+    // Save result matrix to file, in the binary format when the path ends with .bin
     public static void saveMatrixResult(Matrix result, String filePath) {
+        saveResult(filePath, result.size, path -> BinaryMatrixFormat.writeDense(result, path),
+                (line, i, j) -> line.append(result.data[i][j]));
+    }
+
+    // Save a CSR result in the same dense text layout, one row at a time
+    public static void saveSparseMatrixResult(SparseMatrix result, String filePath) {
+        if (BinaryMatrixFormat.isBinaryFile(filePath)) {
+            try {
+                BinaryMatrixFormat.writeSparse(result, Paths.get(filePath));
+            } catch (IOException e) {
+                System.err.println("Error writing result to file: " + filePath);
+            }
+            return;
+        }
+
+        SparseMatrix csr = result.toCsr();
         try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(filePath)))) {
-            for (int i = 0; i < result.size; i++) {
+            for (int i = 0; i < csr.size; i++) {
                 StringBuilder line = new StringBuilder();
-                for (int j = 0; j < result.size; j++) {
+                int p = csr.pointers[i];
+                for (int j = 0; j < csr.size; j++) {
                     if (j > 0) {
                         line.append(" ");
                     }
-                    line.append(result.data[i][j]);
+                    if (p < csr.pointers[i + 1] && csr.indices[p] == j) {
+                        line.append(csr.values[p++]);
+                    } else {
+                        line.append(0);
+                    }
                 }
                 writer.println(line.toString());
             }
@@ -193,16 +408,1009 @@ public class Main {
         }
     }
 
+    public static void saveLongMatrixResult(LongMatrix result, String filePath) {
+        saveResult(filePath, result.size, path -> BinaryMatrixFormat.writeDense(result, path),
+                (line, i, j) -> line.append(result.data[i][j]));
+    }
+
+    // Floating-point values are written in their shortest form that reads back to the same value
+    public static void saveDoubleMatrixResult(DoubleMatrix result, String filePath) {
+        saveResult(filePath, result.size, path -> BinaryMatrixFormat.writeDense(result, path),
+                (line, i, j) -> line.append(result.data[i][j]));
+    }
+
+    public static void saveFloatMatrixResult(FloatMatrix result, String filePath) {
+        saveResult(filePath, result.size, path -> BinaryMatrixFormat.writeDense(result, path),
+                (line, i, j) -> line.append(result.data[i][j]));
+    }
+
     // Save benchmark results to file
+    // TSV for generateGraphs.py and the same records as a JSON array next to it (cache.txt -> cache.json)
     public static void saveBenchmarkResults(List<BenchmarkResult> results, String filePath) {
         try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(filePath)))) {
-            writer.println("Size\tTime(s)\tMemory(MB)\tCPU(%)");
+            writer.println(BenchmarkResult.HEADER);
             for (BenchmarkResult result : results) {
                 writer.println(result.toString());
             }
         } catch (IOException e) {
             System.err.println("Error writing benchmark results to file: " + filePath);
         }
+
+        String jsonPath = filePath.substring(0, filePath.lastIndexOf('.')) + ".json";
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(jsonPath)))) {
+            writer.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                writer.println("  " + results.get(i).toJson() + (i < results.size() - 1 ? "," : ""));
+            }
+            writer.println("]");
+        } catch (IOException e) {
+            System.err.println("Error writing benchmark results to file: " + jsonPath);
+        }
+    }
+
+    private static void printResult(BenchmarkResult result) {
+        System.out.println("Time=" + String.format("%.4f", result.timeSeconds) + "s, " +
+                "Memory=" + String.format("%.2f", result.memoryMB) + "MB, " +
+                "CPU=" + String.format("%.1f", result.cpuPercent) + "%, " +
+                "Native=" + String.format("%.2f", result.nativeMB) + "MB, " +
+                "GC=" + String.format("%.1f", result.gcCount) + "/" + String.format("%.1f", result.gcTimeMs) + "ms, " +
+                "GOPS=" + String.format("%.3f", result.gops));
+    }
+
+    // Measure the parallel kernel with 1, 2, 4, ... threads up to PARALLELISM and report speedup over 1 thread
+    public static void benchmarkSpeedup(Path inputDir, Path benchmarksDir, String matrixType, String extension) {
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < PARALLELISM; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(PARALLELISM);
+
+        Path reportPath = benchmarksDir.resolve(matrixType).resolve("parallel_speedup.txt");
+        try {
+            Files.createDirectories(reportPath.getParent());
+        } catch (IOException e) {
+            System.err.println("Error creating directory for " + reportPath);
+            return;
+        }
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath))) {
+            writer.println("Size\tThreads\tTime(s)\tSpeedup\tEfficiency");
+            for (int size = SPEEDUP_MIN_SIZE; size <= MAX_SIZE; size *= 2) {
+                Path matrixDir = inputDir.resolve(matrixType).resolve(String.valueOf(size));
+                Path matrix1Path = matrixDir.resolve("1" + extension);
+                Path matrix2Path = matrixDir.resolve("2" + extension);
+                if (!Files.exists(matrix1Path) || !Files.exists(matrix2Path)) {
+                    continue;
+                }
+                Matrix A = loadMatrixFromFile(matrix1Path.toString());
+                Matrix B = loadMatrixFromFile(matrix2Path.toString());
+                if (A == null || B == null) {
+                    continue;
+                }
+
+                double baseTime = 0;
+                for (int threads : threadCounts) {
+                    int n = size;
+                    BenchmarkResult result = benchmark(
+                            () -> ParallelAlgorithms.matrixMultiplicationCacheParallel(A, B, n, threads, TILE_SIZE),
+                            matrixType + "/parallel-" + threads + "t", size);
+                    if (threads == 1) {
+                        baseTime = result.timeSeconds;
+                    }
+                    double speedup = baseTime / result.timeSeconds;
+                    writer.println(String.format(Locale.ROOT, "%d\t%d\t%.4f\t%.2f\t%.2f",
+                            size, threads, result.timeSeconds, speedup, speedup / threads));
+                    System.out.println("Size " + size + ", " + threads + " threads: Time="
+                            + String.format("%.4f", result.timeSeconds) + "s, Speedup=" + String.format("%.2f", speedup));
+                }
+            }
+            System.out.println("Speedup report saved to: " + reportPath);
+        } catch (IOException e) {
+            System.err.println("Error writing speedup report to file: " + reportPath);
+        }
+    }
+
+    // Parallel blocked kernel on off-heap matrices for sizes beyond the inputs (and the heap), one measured run per size
+    public static void benchmarkOffHeap(Path benchmarksDir) {
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (int size : OFF_HEAP_SIZES) {
+            // try-with-resources frees the native memory of each size before the next one is allocated
+            try (OffHeapAlgorithms.OffHeapMatrix A = OffHeapAlgorithms.OffHeapMatrix.random(size, 1, 10);
+                 OffHeapAlgorithms.OffHeapMatrix B = OffHeapAlgorithms.OffHeapMatrix.random(size, 2, 10)) {
+                System.out.print("Size " + size + ": ");
+                BenchmarkResult result = benchmark(() -> {
+                    try (OffHeapAlgorithms.OffHeapMatrix C = new OffHeapAlgorithms.OffHeapMatrix(size)) {
+                        OffHeapAlgorithms.matrixMultiplicationCacheParallel(A, B, C, PARALLELISM, TILE_SIZE);
+                    }
+                    return null;
+                }, "offheap", size, 0, 1);
+                results.add(result);
+                printResult(result);
+            } catch (OutOfMemoryError e) {
+                System.err.println("Not enough native memory for size " + size + ": " + e.getMessage());
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("offheap").resolve("parallel.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            saveBenchmarkResults(results, benchmarkPath.toString());
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // Tiled multiplication from and to disk with a bounded tile cache; writes times and the I/O overlap per size
+    public static void benchmarkOutOfCore(Path benchmarksDir) {
+        String configured = System.getProperty("outofcore.dir");
+        Path tileDir;
+        try {
+            tileDir = configured != null ? Files.createDirectories(Paths.get(configured))
+                    : Files.createTempDirectory("matrix-tiles");
+        } catch (IOException e) {
+            System.err.println("Error creating tile directory: " + e.getMessage());
+            return;
+        }
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        List<String> overlapRows = new ArrayList<>();
+        try {
+            runOutOfCore(tileDir, results, overlapRows);
+        } finally {
+            // A configured directory is kept, the temporary one is empty once every size has removed its files
+            if (configured == null) {
+                try {
+                    Files.deleteIfExists(tileDir);
+                } catch (IOException e) {
+                    System.err.println("Error deleting tile directory: " + e.getMessage());
+                }
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("outofcore").resolve("tiled.txt");
+        Path overlapPath = benchmarksDir.resolve("outofcore").resolve("overlap.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            saveBenchmarkResults(results, benchmarkPath.toString());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(overlapPath))) {
+                writer.println("Size\tTile\tBudget(MB)\tRead(MB)\tWritten(MB)\tIO(s)\tCompute(s)\tStall(s)\tOverlap(%)\tHitRate(%)");
+                overlapRows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath + " and " + overlapPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // One out-of-core multiplication per size in tileDir, each product checked with Freivalds before it is recorded
+    private static void runOutOfCore(Path tileDir, List<BenchmarkResult> results, List<String> overlapRows) {
+        for (int size : OUT_OF_CORE_SIZES) {
+            Path pathA = tileDir.resolve(size + "_A.tiles");
+            Path pathB = tileDir.resolve(size + "_B.tiles");
+            Path pathC = tileDir.resolve(size + "_C.tiles");
+            try (OutOfCoreAlgorithms.TiledMatrix A = OutOfCoreAlgorithms.TiledMatrix.random(pathA, size, OUT_OF_CORE_TILE_SIZE, 1, 10);
+                 OutOfCoreAlgorithms.TiledMatrix B = OutOfCoreAlgorithms.TiledMatrix.random(pathB, size, OUT_OF_CORE_TILE_SIZE, 2, 10);
+                 OutOfCoreAlgorithms.TiledMatrix C = OutOfCoreAlgorithms.TiledMatrix.create(pathC, size, OUT_OF_CORE_TILE_SIZE)) {
+                System.out.print("Size " + size + ": ");
+                OutOfCoreAlgorithms.Stats[] stats = new OutOfCoreAlgorithms.Stats[1];
+                BenchmarkResult result = benchmark(() -> {
+                    try {
+                        stats[0] = OutOfCoreAlgorithms.matrixMultiplication(A, B, C, OUT_OF_CORE_BUDGET, OUT_OF_CORE_PREFETCH);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }, "outofcore", size, 0, 1);
+                printResult(result);
+                System.out.println("  " + stats[0]);
+                boolean verified = Freivalds.verify(A, B, C, VERIFY_TRIALS);
+                printVerification("outofcore", verified);
+                if (!verified) {
+                    continue;
+                }
+                results.add(result);
+                overlapRows.add(String.format(Locale.ROOT, "%d\t%d\t%.1f\t%.2f\t%.2f\t%.4f\t%.4f\t%.4f\t%.1f\t%.1f", size,
+                        OUT_OF_CORE_TILE_SIZE, OUT_OF_CORE_BUDGET / (1024.0 * 1024.0),
+                        stats[0].bytesRead / (1024.0 * 1024.0), stats[0].bytesWritten / (1024.0 * 1024.0),
+                        stats[0].ioNanos / 1e9, stats[0].computeNanos / 1e9, stats[0].stallNanos / 1e9,
+                        100 * stats[0].overlap(), 100 * stats[0].hitRate()));
+            } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+                System.err.println("Error processing size " + size + ": " + e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(pathA);
+                    Files.deleteIfExists(pathB);
+                    Files.deleteIfExists(pathC);
+                } catch (IOException e) {
+                    System.err.println("Error deleting tile files: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Cannon's algorithm on worker JVMs for each worker count: time, compute vs communication, speedup and efficiency
+    public static void benchmarkDistributed(Path benchmarksDir) {
+        List<String> rows = new ArrayList<>();
+        List<String> workerRows = new ArrayList<>();
+        Map<Integer, Double> baseline = new HashMap<>();
+
+        for (int workers : DISTRIBUTED_WORKERS) {
+            System.out.println("\n" + workers + " workers:");
+            // -Ddistributed.port=N waits for workers started by hand (on any host) instead of spawning local ones
+            Integer port = Integer.getInteger("distributed.port");
+            try (DistributedAlgorithms.Cluster cluster = port == null ? DistributedAlgorithms.Cluster.start(workers)
+                    : DistributedAlgorithms.Cluster.listen(workers, port)) {
+                for (int size : DISTRIBUTED_SIZES) {
+                    Matrix A = randomMatrix(size, 1);
+                    Matrix B = randomMatrix(size, 2);
+
+                    // One warmup run that is also checked against the local kernel, then the best of three
+                    DistributedAlgorithms.Result warmup = cluster.multiply(A, B, size);
+                    if (!matricesAreEqual(warmup.C, Algorithms.matrixMultiplicationCache(A, B, size))) {
+                        System.err.println("✗ Size " + size + ": distributed result does not match the cache algorithm");
+                        continue;
+                    }
+                    DistributedAlgorithms.Result best = null;
+                    for (int run = 0; run < 3; run++) {
+                        DistributedAlgorithms.Result result = cluster.multiply(A, B, size);
+                        if (best == null || result.wallNanos < best.wallNanos) {
+                            best = result;
+                        }
+                    }
+
+                    double time = best.wallNanos / 1e9;
+                    baseline.putIfAbsent(size, time * workers);
+                    double speedup = baseline.get(size) / time;
+                    double compute = Arrays.stream(best.computeNanos).max().getAsLong() / 1e9;
+                    double comm = Arrays.stream(best.commNanos).max().getAsLong() / 1e9;
+                    System.out.println(String.format(Locale.ROOT, "Size %d: Time=%.4fs, Compute=%.4fs, Comm=%.4fs, "
+                                    + "Scatter=%.4fs, Speedup=%.2f, Efficiency=%.1f%%", size, time, compute, comm,
+                            best.scatterNanos / 1e9, speedup, 100 * speedup / workers));
+                    rows.add(String.format(Locale.ROOT, "%d\t%d\t%.4f\t%.4f\t%.4f\t%.4f\t%.2f\t%.1f", size, workers, time,
+                            compute, comm, best.scatterNanos / 1e9, speedup, 100 * speedup / workers));
+                    for (int rank = 0; rank < workers; rank++) {
+                        workerRows.add(String.format(Locale.ROOT, "%d\t%d\t%d\t%.4f\t%.4f", size, workers, rank,
+                                best.computeNanos[rank] / 1e9, best.commNanos[rank] / 1e9));
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error running " + workers + " workers: " + e.getMessage());
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("distributed").resolve("cannon.txt");
+        Path workersPath = benchmarksDir.resolve("distributed").resolve("workers.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                // Compute and Comm are the slowest worker's, the efficiency is relative to the first worker count
+                writer.println("Size\tWorkers\tTime(s)\tCompute(s)\tComm(s)\tScatter(s)\tSpeedup\tEfficiency(%)");
+                rows.forEach(writer::println);
+            }
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(workersPath))) {
+                writer.println("Size\tWorkers\tRank\tCompute(s)\tComm(s)");
+                workerRows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath + " and " + workersPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // Small products from many virtual-thread clients, each size alone and all sizes mixed: one call per request
+    // against the batching service, throughput in multiplies per second and request latency percentiles
+    public static void benchmarkBatch(Path benchmarksDir) {
+        List<String> rows = new ArrayList<>();
+        List<Integer> runs = new ArrayList<>();
+        for (int size : BATCH_SIZES) {
+            runs.add(size);
+        }
+        runs.add(0); // all sizes mixed
+
+        for (int run : runs) {
+            int[] sizes = run == 0 ? BATCH_SIZES : new int[]{run};
+            String label = run == 0 ? "mixed" : String.valueOf(run);
+            // A pool of distinct operand pairs the requests cycle through, interleaving the sizes
+            Matrix[][] pairs = new Matrix[64 * sizes.length][];
+            for (int p = 0; p < pairs.length; p++) {
+                int n = sizes[p % sizes.length];
+                pairs[p] = new Matrix[]{randomMatrix(n, 2L * p + 1), randomMatrix(n, 2L * p + 2)};
+            }
+
+            try (BatchService service = new BatchService(BATCH_MAX, PARALLELISM)) {
+                // The batched results are checked once against the cache algorithm before anything is measured
+                for (Matrix[] pair : pairs) {
+                    if (!matricesAreEqual(service.submit(pair[0], pair[1]).join(),
+                            Algorithms.matrixMultiplicationCache(pair[0], pair[1], pair[0].size))) {
+                        System.err.println("✗ Size " + pair[0].size + ": batched result does not match the cache algorithm");
+                        return;
+                    }
+                }
+                rows.add(runBatchClients(label, "direct", pairs, (A, B) -> Algorithms.matrixMultiplicationCache(A, B, A.size), null));
+                rows.add(runBatchClients(label, "batched", pairs, (A, B) -> service.submit(A, B).join(), service));
+            } catch (IllegalStateException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("batch").resolve("throughput.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                writer.println("Size\tMode\tRequests\tClients\tTime(s)\tThroughput(mul/s)\tAvgBatch"
+                        + "\tP50(us)\tP90(us)\tP99(us)\tP99.9(us)\tMax(us)");
+                rows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // One warmup pass of a tenth of the requests, then BATCH_REQUESTS spread over BATCH_CLIENTS virtual threads;
+    // service is null for the direct mode, where every request is its own batch
+    private static String runBatchClients(String label, String mode, Matrix[][] pairs, BinaryOperator<Matrix> multiply,
+                                          BatchService service) {
+        int warmup = Math.max(1, BATCH_REQUESTS / 10);
+        runClients(warmup, pairs, multiply, new long[warmup]);
+        if (service != null) {
+            service.resetStatistics();
+        }
+        long[] latencies = new long[BATCH_REQUESTS];
+        long start = System.nanoTime();
+        runClients(BATCH_REQUESTS, pairs, multiply, latencies);
+        double time = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        double throughput = BATCH_REQUESTS / time;
+        String avgBatch = String.format(Locale.ROOT, "%.1f", service == null ? 1.0 : service.averageBatchSize());
+        System.out.println(String.format("Size %s, %s: %.0f mul/s, p50=%.1fus, p99=%.1fus, max=%.1fus", label, mode,
+                throughput, percentile(latencies, 50) / 1e3, percentile(latencies, 99) / 1e3,
+                latencies[latencies.length - 1] / 1e3));
+        return String.format(Locale.ROOT, "%s\t%s\t%d\t%d\t%.4f\t%.0f\t%s\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f", label, mode,
+                BATCH_REQUESTS, BATCH_CLIENTS, time, throughput, avgBatch, percentile(latencies, 50) / 1e3,
+                percentile(latencies, 90) / 1e3, percentile(latencies, 99) / 1e3, percentile(latencies, 99.9) / 1e3,
+                latencies[latencies.length - 1] / 1e3);
+    }
+
+    // Each client takes the next request number until all are done and records its latency by number
+    private static void runClients(int requests, Matrix[][] pairs, BinaryOperator<Matrix> multiply, long[] latencies) {
+        AtomicInteger next = new AtomicInteger();
+        runOnVirtualThreads(BATCH_CLIENTS, () -> {
+            for (int r = next.getAndIncrement(); r < requests; r = next.getAndIncrement()) {
+                Matrix[] pair = pairs[r % pairs.length];
+                long t0 = System.nanoTime();
+                multiply.apply(pair[0], pair[1]);
+                latencies[r] = System.nanoTime() - t0;
+            }
+        });
+    }
+
+    // Runs count copies of client on virtual threads and returns when all have finished; the first failure
+    // of a client is rethrown as an IllegalStateException
+    private static void runOnVirtualThreads(int count, Runnable client) {
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < count; c++) {
+                futures.add(clients.submit(client));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the clients", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Client failed: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+
+    // Lazy against eager evaluation of the same expressions: time, multiply-adds, allocation and peak intermediates
+    public static void benchmarkExpressions(Path benchmarksDir) {
+        List<String> rows = new ArrayList<>();
+        for (int size : EXPRESSION_SIZES) {
+            int thin = Math.max(1, size / 8);
+            MatrixExpression A = MatrixExpression.of(randomMatrix(size, 1));
+            MatrixExpression B = MatrixExpression.of(randomMatrix(size, 2));
+            MatrixExpression C = MatrixExpression.of(randomMatrix(size, 3));
+            MatrixExpression D = MatrixExpression.of(randomMatrix(size, 4));
+            // A chain of alternating wide and thin operands, where the source order is far from the cheapest one
+            MatrixExpression chain = MatrixExpression.of(randomArray(size, thin, 5))
+                    .times(MatrixExpression.of(randomArray(thin, size, 6)))
+                    .times(MatrixExpression.of(randomArray(size, thin, 7)))
+                    .times(MatrixExpression.of(randomArray(thin, size, 8)));
+            Map<String, MatrixExpression> expressions = new LinkedHashMap<>();
+            expressions.put("A*B*C*D(thin)", chain);
+            expressions.put("A^2+B*C", A.pow(2).plus(B.times(C)));
+            expressions.put("(A*B^T-C)*D+A^3", A.times(B.transpose()).minus(C).times(D).plus(A.pow(3)));
+
+            for (Map.Entry<String, MatrixExpression> expression : expressions.entrySet()) {
+                MatrixExpression.Evaluation eager = expression.getValue().evaluate(false);
+                MatrixExpression.Evaluation lazy = expression.getValue().evaluate(true);
+                if (!Arrays.equals(eager.result.data, lazy.result.data)) {
+                    System.err.println("✗ " + expression.getKey() + " size " + size + ": lazy and eager results differ");
+                    continue;
+                }
+                for (boolean optimize : new boolean[]{false, true}) {
+                    // Best of three after the checked run above
+                    MatrixExpression.Evaluation best = null;
+                    Instrumentation.Measurement bestMeasurement = null;
+                    for (int run = 0; run < 3; run++) {
+                        Instrumentation.Probe probe = Instrumentation.start();
+                        MatrixExpression.Evaluation evaluation = expression.getValue().evaluate(optimize);
+                        Instrumentation.Measurement measurement = probe.stop();
+                        if (bestMeasurement == null || measurement.wallNanos < bestMeasurement.wallNanos) {
+                            best = evaluation;
+                            bestMeasurement = measurement;
+                        }
+                    }
+                    String mode = optimize ? "lazy" : "eager";
+                    System.out.println(String.format("%s size %d, %s: Time=%.4fs, MultiplyAdds=%d, PeakBuffers=%.2fMB, "
+                                    + "Buffers=%d (+%d reused)", expression.getKey(), size, mode, bestMeasurement.wallNanos / 1e9,
+                            best.multiplyAdds, best.peakBytes / (1024.0 * 1024.0), best.allocations, best.reuses));
+                    rows.add(String.format(Locale.ROOT, "%s\t%d\t%s\t%.4f\t%d\t%.2f\t%.2f\t%d\t%d", expression.getKey(), size,
+                            mode, bestMeasurement.wallNanos / 1e9, best.multiplyAdds,
+                            bestMeasurement.allocatedBytes / (1024.0 * 1024.0), best.peakBytes / (1024.0 * 1024.0),
+                            best.allocations, best.reuses));
+                }
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("expressions").resolve("expressions.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                // PeakBuffers counts intermediates only, the leaves are the same for both modes
+                writer.println("Expression\tSize\tMode\tTime(s)\tMultiplyAdds\tAllocated(MB)\tPeakBuffers(MB)\tBuffers\tReused");
+                rows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // Blocked against Morton-order cache-oblivious multiplication on the dense inputs: time, and misses of both
+    // loop orders on a modelled two-level cache for sizes up to MORTON_SIMULATE_MAX
+    public static void benchmarkMorton(Path inputDir, Path benchmarksDir, String extension) {
+        List<String> rows = new ArrayList<>();
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size *= 2) {
+            Path matrixDir = inputDir.resolve("normal").resolve(String.valueOf(size));
+            if (!Files.exists(matrixDir.resolve("1" + extension)) || !Files.exists(matrixDir.resolve("2" + extension))) {
+                continue;
+            }
+            Matrix A = loadMatrixFromFile(matrixDir.resolve("1" + extension).toString());
+            Matrix B = loadMatrixFromFile(matrixDir.resolve("2" + extension).toString());
+            if (A == null || B == null) {
+                System.err.println("Failed to load matrices for size " + size);
+                continue;
+            }
+            int n = size;
+            if (!matricesAreEqual(MortonAlgorithms.matrixMultiplicationMorton(A, B, n), Algorithms.matrixMultiplicationCache(A, B, n))) {
+                System.err.println("✗ Size " + size + ": Morton result does not match the cache algorithm");
+                continue;
+            }
+            MortonAlgorithms.MortonMatrix mortonA = MortonAlgorithms.MortonMatrix.fromMatrix(A);
+            MortonAlgorithms.MortonMatrix mortonB = MortonAlgorithms.MortonMatrix.fromMatrix(B);
+
+            Map<String, Supplier<?>> kernels = new LinkedHashMap<>();
+            kernels.put("cache", () -> Algorithms.matrixMultiplicationCache(A, B, n));
+            kernels.put("morton", () -> MortonAlgorithms.matrixMultiplicationMorton(A, B, n));
+            // Operands already in Morton order, as when a whole computation stays in that layout
+            kernels.put("morton-kernel", () -> {
+                MortonAlgorithms.MortonMatrix C = new MortonAlgorithms.MortonMatrix(n);
+                MortonAlgorithms.multiply(mortonA, mortonB, C);
+                return C;
+            });
+
+            for (Map.Entry<String, Supplier<?>> kernel : kernels.entrySet()) {
+                BenchmarkResult result = benchmark(kernel.getValue(), "morton/" + kernel.getKey(), size);
+                String misses = "NaN\tNaN\tNaN\tNaN";
+                if (size <= MORTON_SIMULATE_MAX && !kernel.getKey().equals("morton")) {
+                    CacheSimulator simulator = new CacheSimulator(MORTON_L1_KB * 1024, 8, MORTON_L2_KB * 1024, 16);
+                    if (kernel.getKey().equals("cache")) {
+                        CacheSimulator.traceBlocked(simulator, size, 64);
+                    } else {
+                        CacheSimulator.traceMorton(simulator, size);
+                    }
+                    misses = String.format(Locale.ROOT, "%d\t%.2f\t%d\t%.2f", simulator.l1.misses,
+                            100 * simulator.l1.missRate(), simulator.l2.misses, 100 * simulator.l2.missRate());
+                }
+                System.out.println(String.format("Size %d, %s: Time=%.4fs, GOPS=%.2f, Misses(L1 L2)=%s", size,
+                        kernel.getKey(), result.timeSeconds, result.gops, misses.replace("\t", " ")));
+                rows.add(String.format(Locale.ROOT, "%d\t%s\t%.6f\t%.3f\t%s", size, kernel.getKey(), result.timeSeconds,
+                        result.gops, misses));
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("morton").resolve("morton.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                // Misses are modelled (L1 MORTON_L1_KB 8-way, L2 MORTON_L2_KB 16-way, 64-byte lines), kernel only
+                writer.println("Size\tKernel\tTime(s)\tGOPS\tL1Misses\tL1MissRate(%)\tL2Misses\tL2MissRate(%)");
+                rows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // The blocked, unrolled and Strassen kernels for each element type on the dense inputs. Each type loads the
+    // inputs through its own loader; the int rows are the i-j-k kernels of Algorithms, the long, float and double
+    // rows share one i-k-j structure, so float against double isolates the cost of eight-byte elements. Traffic
+    // is the compulsory 3 n^2 elements of the product, the last column compares it with the float kernel.
+    public static void benchmarkTypes(Path inputDir, Path resultsDir, Path benchmarksDir, String extension) {
+        String[] kernelNames = {"cache", "loop", "strassen"};
+        String[] types = {"int", "long", "float", "double"};
+        int[] bytes = {Integer.BYTES, Long.BYTES, Float.BYTES, Double.BYTES};
+        List<String> rows = new ArrayList<>();
+
+        for (int size : TYPE_SIZES) {
+            Path matrixDir = inputDir.resolve("normal").resolve(String.valueOf(size));
+            String file1 = matrixDir.resolve("1" + extension).toString();
+            String file2 = matrixDir.resolve("2" + extension).toString();
+            if (!Files.exists(Paths.get(file1)) || !Files.exists(Paths.get(file2))) {
+                System.err.println("Matrix files not found for size " + size + " (normal)");
+                continue;
+            }
+            Matrix A = loadMatrixFromFile(file1);
+            Matrix B = loadMatrixFromFile(file2);
+            LongMatrix longA = loadLongMatrixFromFile(file1);
+            LongMatrix longB = loadLongMatrixFromFile(file2);
+            DoubleMatrix doubleA = loadDoubleMatrixFromFile(file1);
+            DoubleMatrix doubleB = loadDoubleMatrixFromFile(file2);
+            FloatMatrix floatA = loadFloatMatrixFromFile(file1);
+            FloatMatrix floatB = loadFloatMatrixFromFile(file2);
+            if (A == null || B == null || longA == null || longB == null || doubleA == null || doubleB == null
+                    || floatA == null || floatB == null) {
+                System.err.println("Failed to load matrices for size " + size);
+                continue;
+            }
+            for (Object[] data : new Object[][] {A.data, B.data, longA.data, longB.data, doubleA.data, doubleB.data,
+                    floatA.data, floatB.data}) {
+                scale(data);
+            }
+
+            int n = size;
+            Map<String, Supplier<?>> kernels = new LinkedHashMap<>();
+            kernels.put("int/cache", () -> Algorithms.matrixMultiplicationCache(A, B, n));
+            kernels.put("int/loop", () -> Algorithms.matrixMultiplicationLoopUnroll(A, B, n));
+            kernels.put("int/strassen", () -> Algorithms.matrixMultiplicationStrassen(A, B, n));
+            kernels.put("long/cache", () -> LongAlgorithms.matrixMultiplicationCache(longA, longB, n));
+            kernels.put("long/loop", () -> LongAlgorithms.matrixMultiplicationLoopUnroll(longA, longB, n));
+            kernels.put("long/strassen", () -> LongAlgorithms.matrixMultiplicationStrassen(longA, longB, n));
+            kernels.put("float/cache", () -> FloatAlgorithms.matrixMultiplicationCache(floatA, floatB, n));
+            kernels.put("float/loop", () -> FloatAlgorithms.matrixMultiplicationLoopUnroll(floatA, floatB, n));
+            kernels.put("float/strassen", () -> FloatAlgorithms.matrixMultiplicationStrassen(floatA, floatB, n));
+            kernels.put("double/cache", () -> DoubleAlgorithms.matrixMultiplicationCache(doubleA, doubleB, n));
+            kernels.put("double/loop", () -> DoubleAlgorithms.matrixMultiplicationLoopUnroll(doubleA, doubleB, n));
+            kernels.put("double/strassen", () -> DoubleAlgorithms.matrixMultiplicationStrassen(doubleA, doubleB, n));
+
+            Map<String, BenchmarkResult> results = new HashMap<>();
+            Matrix intProduct = null;
+            for (int t = 0; t < types.length; t++) {
+                for (String kernelName : kernelNames) {
+                    String key = types[t] + "/" + kernelName;
+                    BenchmarkResult result = benchmark(kernels.get(key), "types/" + key, size);
+                    results.put(key, result);
+
+                    // Every product is checked; the first one of each type is also saved
+                    boolean verified;
+                    long intOverflows = 0;
+                    Path resultPath = resultsDir.resolve("types").resolve(types[t]).resolve(size + extension);
+                    boolean save = kernelName.equals(kernelNames[0]);
+                    switch (types[t]) {
+                        case "int": {
+                            Matrix C = (Matrix) result.output;
+                            verified = Freivalds.verify(A, B, C, n, VERIFY_TRIALS);
+                            if (intProduct == null) {
+                                intProduct = C;
+                            }
+                            if (save) {
+                                saveTypedResult(resultPath, () -> saveMatrixResult(C, resultPath.toString()));
+                            }
+                            break;
+                        }
+                        case "long": {
+                            LongMatrix C = (LongMatrix) result.output;
+                            verified = Freivalds.verify(longA, longB, C, n, VERIFY_TRIALS);
+                            intOverflows = countDifferences(intProduct, C);
+                            if (save) {
+                                saveTypedResult(resultPath, () -> saveLongMatrixResult(C, resultPath.toString()));
+                            }
+                            break;
+                        }
+                        case "float": {
+                            FloatMatrix C = (FloatMatrix) result.output;
+                            verified = Freivalds.verify(floatA, floatB, C, n, VERIFY_TRIALS);
+                            if (save) {
+                                saveTypedResult(resultPath, () -> saveFloatMatrixResult(C, resultPath.toString()));
+                            }
+                            break;
+                        }
+                        default: {
+                            DoubleMatrix C = (DoubleMatrix) result.output;
+                            verified = Freivalds.verify(doubleA, doubleB, C, n, VERIFY_TRIALS);
+                            if (save) {
+                                saveTypedResult(resultPath, () -> saveDoubleMatrixResult(C, resultPath.toString()));
+                            }
+                            break;
+                        }
+                    }
+                    result.output = null;
+
+                    // Same compulsory traffic model as Instrumentation, with the element width of the type
+                    double bandwidth = 3.0 * n * n * bytes[t] / (result.timeSeconds * 1e9);
+                    BenchmarkResult floatResult = results.get("float/" + kernelName);
+                    double relative = floatResult == null ? Double.NaN : result.timeSeconds / floatResult.timeSeconds;
+                    System.out.println(String.format(Locale.ROOT,
+                            "Size %d, %s: Time=%.4fs, GOPS=%.2f, Bandwidth=%.2fGB/s, %s%s", size, key,
+                            result.timeSeconds, result.gops, bandwidth, verified ? "verified" : "✗ VERIFICATION FAILED",
+                            types[t].equals("long") ? ", int overflows " + intOverflows : ""));
+                    rows.add(String.format(Locale.ROOT, "%d\t%s\t%s\t%d\t%.6f\t%.3f\t%.3f\t%.3f\t%s\t%s", size, types[t],
+                            kernelName, bytes[t], result.timeSeconds, result.gops, 3.0 * n * n * bytes[t] / (1024 * 1024),
+                            bandwidth, types[t].equals("long") ? String.valueOf(intOverflows) : "NaN",
+                            Double.isNaN(relative) ? "NaN" : String.format(Locale.ROOT, "%.3f", relative)));
+                }
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("types").resolve("types.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                writer.println("Size\tType\tKernel\tElementBytes\tTime(s)\tGOPS\tOperands(MB)\tBandwidth(GB/s)"
+                        + "\tIntOverflows\tTimeVsFloat");
+                rows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    private static void saveTypedResult(Path resultPath, Runnable save) {
+        try {
+            Files.createDirectories(resultPath.getParent());
+            save.run();
+        } catch (IOException e) {
+            System.err.println("Error creating directories: " + e.getMessage());
+        }
+    }
+
+    // Elements where the int product, wrapped mod 2^32, differs from the exact long one
+    private static long countDifferences(Matrix intProduct, LongMatrix longProduct) {
+        if (intProduct == null) {
+            return 0;
+        }
+        long count = 0;
+        for (int i = 0; i < longProduct.size; i++) {
+            for (int j = 0; j < longProduct.size; j++) {
+                if (intProduct.data[i][j] != longProduct.data[i][j]) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Input values times TYPE_SCALE, in the arithmetic of each type
+    private static void scale(Object[] rows) {
+        if (TYPE_SCALE == 1) {
+            return;
+        }
+        for (Object row : rows) {
+            switch (row) {
+                case int[] r -> Arrays.setAll(r, j -> r[j] * TYPE_SCALE);
+                case long[] r -> Arrays.setAll(r, j -> r[j] * TYPE_SCALE);
+                case double[] r -> Arrays.setAll(r, j -> r[j] * TYPE_SCALE);
+                case float[] r -> {
+                    for (int j = 0; j < r.length; j++) {
+                        r[j] *= TYPE_SCALE;
+                    }
+                }
+                default -> throw new IllegalArgumentException("Not a matrix row: " + row.getClass());
+            }
+        }
+    }
+
+    // Repeated products of the input matrices through the result cache, against computing every one of them:
+    // memory only, then with the disk tier under results/cache empty and again with it filled by that run.
+    // The pairs are drawn skewed towards a few popular ones, as repeated jobs tend to be.
+    public static void benchmarkMemo(Path inputDir, Path resultsDir, Path benchmarksDir, String extension) {
+        MatrixMultiplier multiplier = MultiplierRegistry.get(MEMO_ALGORITHM);
+        Path cacheDir = resultsDir.resolve("cache");
+        List<String> rows = new ArrayList<>();
+
+        for (int size : MEMO_SIZES) {
+            // Every input of this size, loaded once plainly and once hashed while loading. An untimed load through
+            // each path warms the page cache and the parser first, and the timed loads alternate which path runs
+            // first, so neither is measured on a file the other one just brought in
+            List<ResultCache.Operand> operands = new ArrayList<>();
+            long plainNanos = 0;
+            long hashedNanos = 0;
+            int loaded = 0;
+            for (String matrixType : MATRIX_TYPES) {
+                for (String name : new String[]{"1", "2"}) {
+                    String file = inputDir.resolve(matrixType).resolve(String.valueOf(size)).resolve(name + extension).toString();
+                    if (!Files.exists(Paths.get(file))) {
+                        continue;
+                    }
+                    if (loadMatrixFromFile(file) == null || loadOperandFromFile(file) == null) {
+                        System.err.println("Failed to load " + file);
+                        continue;
+                    }
+                    ResultCache.Operand operand;
+                    if (loaded++ % 2 == 0) {
+                        long t0 = System.nanoTime();
+                        loadMatrixFromFile(file);
+                        long t1 = System.nanoTime();
+                        operand = loadOperandFromFile(file);
+                        plainNanos += t1 - t0;
+                        hashedNanos += System.nanoTime() - t1;
+                    } else {
+                        long t0 = System.nanoTime();
+                        operand = loadOperandFromFile(file);
+                        long t1 = System.nanoTime();
+                        loadMatrixFromFile(file);
+                        hashedNanos += t1 - t0;
+                        plainNanos += System.nanoTime() - t1;
+                    }
+                    if (operand == null) {
+                        System.err.println("Failed to load " + file);
+                        continue;
+                    }
+                    operands.add(operand);
+                }
+            }
+            if (operands.isEmpty()) {
+                System.err.println("Matrix files not found for size " + size);
+                continue;
+            }
+            System.out.println(String.format(Locale.ROOT, "Size %d: %d inputs, loading %.1fms plain, %.1fms with hashing",
+                    size, operands.size(), plainNanos / 1e6, hashedNanos / 1e6));
+
+            // The smaller of two uniform draws: pair p comes up with probability (2(P - p) - 1) / P^2
+            int pairCount = operands.size() * operands.size();
+            Random random = new Random(size);
+            ResultCache.Operand[][] requests = new ResultCache.Operand[MEMO_REQUESTS][];
+            for (int r = 0; r < MEMO_REQUESTS; r++) {
+                int pair = Math.min(random.nextInt(pairCount), random.nextInt(pairCount));
+                requests[r] = new ResultCache.Operand[]{operands.get(pair / operands.size()), operands.get(pair % operands.size())};
+            }
+
+            try {
+                deleteCachedProducts(cacheDir);
+                int n = size;
+                rows.add(runMemoClients(size, "direct", requests, pair -> multiplier.multiply(pair[0].matrix, pair[1].matrix, n), null));
+
+                ResultCache memory = new ResultCache(MEMO_BUDGET, null);
+                rows.add(runMemoClients(size, "memory", requests, pair -> memory.multiply(pair[0], pair[1], multiplier), memory));
+                // Each distinct product the cache still holds after the run is checked once, outside its counters
+                Map<String, ResultCache.Operand[]> distinct = new LinkedHashMap<>();
+                for (ResultCache.Operand[] pair : requests) {
+                    distinct.putIfAbsent(pair[0].hash + "-" + pair[1].hash, pair);
+                }
+                for (ResultCache.Operand[] pair : distinct.values()) {
+                    Matrix C = memory.cached(pair[0], pair[1]);
+                    if (C != null && !Freivalds.verify(pair[0].matrix, pair[1].matrix, C, n, VERIFY_TRIALS)) {
+                        System.err.println("✗ Size " + size + ": cached product does not match its operands");
+                        return;
+                    }
+                }
+
+                ResultCache cold = new ResultCache(MEMO_BUDGET, cacheDir);
+                rows.add(runMemoClients(size, "disk-cold", requests, pair -> cold.multiply(pair[0], pair[1], multiplier), cold));
+                ResultCache warm = new ResultCache(MEMO_BUDGET, cacheDir);
+                rows.add(runMemoClients(size, "disk-warm", requests, pair -> warm.multiply(pair[0], pair[1], multiplier), warm));
+            } catch (IOException e) {
+                System.err.println("Error preparing the cache directory: " + e.getMessage());
+                return;
+            } catch (IllegalStateException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("memo").resolve("memo.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                writer.println("Size\tMode\tRequests\tClients\tTime(s)\tRequests/s\tHits\tShared\tDiskHits\tMisses"
+                        + "\tEvictions\tCached(MB)");
+                rows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    // MEMO_CLIENTS virtual threads take the requests in order; cache is null for the uncached run
+    private static String runMemoClients(int size, String mode, ResultCache.Operand[][] requests,
+                                         Function<ResultCache.Operand[], Matrix> multiply, ResultCache cache) {
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        runOnVirtualThreads(MEMO_CLIENTS, () -> {
+            for (int r = next.getAndIncrement(); r < requests.length; r = next.getAndIncrement()) {
+                multiply.apply(requests[r]);
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String counters = cache == null ? "NaN\tNaN\tNaN\tNaN\tNaN\tNaN" : String.format(Locale.ROOT, "%d\t%d\t%d\t%d\t%d\t%.2f",
+                cache.products.hits, cache.products.shared, cache.diskHits, cache.misses, cache.products.evictions,
+                cache.products.cachedBytes() / (1024.0 * 1024));
+        System.out.println(String.format(Locale.ROOT, "Size %d, %s: Time=%.3fs, %.1f requests/s%s", size, mode, seconds,
+                requests.length / seconds, cache == null ? "" : String.format(Locale.ROOT,
+                        ", hits %d (%d shared), disk hits %d, misses %d, evictions %d", cache.products.hits,
+                        cache.products.shared, cache.diskHits, cache.misses, cache.products.evictions)));
+        return String.format(Locale.ROOT, "%d\t%s\t%d\t%d\t%.6f\t%.3f\t%s", size, mode, requests.length, MEMO_CLIENTS, seconds,
+                requests.length / seconds, counters);
+    }
+
+    // Only the products the cache stored, so the disk-cold run starts from an empty tier
+    private static void deleteCachedProducts(Path cacheDir) throws IOException {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().matches("[0-9a-f]{64}-[0-9a-f]{64}\\.bin")).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // One random change to A or B: an element, a row or a column
+    private static class Update {
+        final int kind;   // 0/1 element of A/B, 2/3 row of A/B, 4/5 column of A/B
+        final int index;
+        final int other;  // column of an element update
+        final int[] values;
+
+        Update(Random random, int size) {
+            kind = random.nextInt(6);
+            index = random.nextInt(size);
+            other = random.nextInt(size);
+            values = new int[kind < 2 ? 1 : size];
+            for (int v = 0; v < values.length; v++) {
+                values[v] = random.nextInt(10);
+            }
+        }
+
+        void apply(IncrementalProduct product) {
+            switch (kind) {
+                case 0 -> product.updateA(index, other, values[0]);
+                case 1 -> product.updateB(index, other, values[0]);
+                case 2 -> product.updateRowA(index, values);
+                case 3 -> product.updateRowB(index, values);
+                case 4 -> product.updateColumnA(index, values);
+                default -> product.updateColumnB(index, values);
+            }
+        }
+
+        void apply(Matrix A, Matrix B) {
+            Matrix M = kind % 2 == 0 ? A : B;
+            if (kind < 2) {
+                M.data[index][other] = values[0];
+            } else if (kind < 4) {
+                System.arraycopy(values, 0, M.data[index], 0, values.length);
+            } else {
+                for (int i = 0; i < values.length; i++) {
+                    M.data[i][index] = values[i];
+                }
+            }
+        }
+    }
+
+    // Full recomputation against incremental maintenance, flushing after every update or once per read of C
+    public static void benchmarkIncremental(Path benchmarksDir) {
+        List<String> rows = new ArrayList<>();
+        for (int size : INCREMENTAL_SIZES) {
+            for (int rate : INCREMENTAL_RATES) {
+                List<Update> updates = new ArrayList<>();
+                Random random = new Random(size * 31L + rate);
+                for (int u = 0; u < rate * INCREMENTAL_QUERIES; u++) {
+                    updates.add(new Update(random, size));
+                }
+
+                Matrix A = randomMatrix(size, 1);
+                Matrix B = randomMatrix(size, 2);
+                Matrix expected = null;
+                double recomputeTime = 0;
+                for (String mode : new String[]{"recompute", "per-update", "batched"}) {
+                    IncrementalProduct product = mode.equals("recompute") ? null : new IncrementalProduct(A, B, size);
+                    Matrix a = randomMatrix(size, 1);
+                    Matrix b = randomMatrix(size, 2);
+                    Matrix C = null;
+                    long start = System.nanoTime();
+                    for (int q = 0; q < INCREMENTAL_QUERIES; q++) {
+                        for (Update update : updates.subList(q * rate, (q + 1) * rate)) {
+                            if (product == null) {
+                                update.apply(a, b);
+                            } else {
+                                update.apply(product);
+                                if (mode.equals("per-update")) {
+                                    product.flush();
+                                }
+                            }
+                        }
+                        C = product == null ? Algorithms.matrixMultiplicationCache(a, b, size) : product.result();
+                    }
+                    double time = (System.nanoTime() - start) / 1e9 / INCREMENTAL_QUERIES;
+
+                    if (expected == null) {
+                        expected = C;
+                        recomputeTime = time;
+                    } else if (!matricesAreEqual(expected, C)) {
+                        System.err.println("✗ Size " + size + ", " + mode + ": result does not match recomputation");
+                        continue;
+                    }
+                    long corrections = product == null ? 0 : product.corrections;
+                    long recomputations = product == null ? INCREMENTAL_QUERIES : product.recomputations;
+                    System.out.println(String.format("Size %d, %d updates/read, %s: %.4fs per read, speedup %.1fx, "
+                                    + "%d corrections, %d recomputations", size, rate, mode, time, recomputeTime / time,
+                            corrections, recomputations));
+                    rows.add(String.format(Locale.ROOT, "%d\t%d\t%s\t%.6f\t%.2f\t%d\t%d", size, rate, mode, time,
+                            recomputeTime / time, corrections, recomputations));
+                }
+            }
+        }
+
+        Path benchmarkPath = benchmarksDir.resolve("incremental").resolve("updates.txt");
+        try {
+            Files.createDirectories(benchmarkPath.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(benchmarkPath))) {
+                writer.println("Size\tUpdatesPerRead\tMode\tTimePerRead(s)\tSpeedup\tCorrections\tRecomputations");
+                rows.forEach(writer::println);
+            }
+            System.out.println("Benchmark saved to: " + benchmarkPath);
+        } catch (IOException e) {
+            System.err.println("Error saving benchmark: " + e.getMessage());
+        }
+    }
+
+    private static int[][] randomArray(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        int[][] data = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                data[i][j] = random.nextInt(10);
+            }
+        }
+        return data;
+    }
+
+    // Uniform values in [0, 10) like the generated inputs
+    private static Matrix randomMatrix(int size, long seed) {
+        Random random = new Random(seed);
+        Matrix M = new Matrix(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                M.data[i][j] = random.nextInt(10);
+            }
+        }
+        return M;
+    }
+
+    private static void printVerification(String algorithm, boolean correct) {
+        if (correct) {
+            System.out.println("  ✓ " + algorithm + ": Freivalds check passed (" + VERIFY_TRIALS + " trials)");
+        } else {
+            System.out.println("  ✗ " + algorithm + ": Freivalds check FAILED, result is wrong!");
+        }
     }
 
     // Compare two matrices for equality
@@ -227,14 +1435,18 @@ public class Main {
     }
 
     // Verify all results by comparing files from results directory
-    public static void verifyResults(Path resultsDir, String matrixType, int size) {
+    public static void verifyResults(Path resultsDir, String matrixType, int size, String extension) {
+        verifyResults(resultsDir, matrixType, size, extension, ALGORITHMS);
+    }
+
+    public static void verifyResults(Path resultsDir, String matrixType, int size, String extension, String[] algorithms) {
         System.out.println("\n--- Verifying results for " + matrixType + " matrix size " + size + " ---");
 
         Map<String, Matrix> results = new HashMap<>();
 
         // Load result for each algorithm from the results directory
-        for (String algorithm : ALGORITHMS) {
-            Path resultFile = resultsDir.resolve(matrixType).resolve(algorithm).resolve(size + ".txt");
+        for (String algorithm : algorithms) {
+            Path resultFile = resultsDir.resolve(matrixType).resolve(algorithm).resolve(size + extension);
 
             if (!Files.exists(resultFile)) {
                 System.err.println("✗ " + algorithm + ": Result file not found at " + resultFile);
@@ -258,7 +1470,7 @@ public class Main {
         }
 
         boolean allMatch = true;
-        for (String algorithm : ALGORITHMS) {
+        for (String algorithm : algorithms) {
             if (algorithm.equals("basic")) {
                 System.out.println("✓ " + algorithm + ": Reference");
             } else {
@@ -282,15 +1494,162 @@ public class Main {
         }
     }
 
+    // Writes the content hash of a result next to it, e.g. results/normal/cache/64.sha256
+    public static void saveChecksum(String checksum, Path resultPath) {
+        String name = resultPath.getFileName().toString();
+        Path checksumPath = resultPath.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".sha256");
+        try {
+            Files.writeString(checksumPath, checksum + System.lineSeparator());
+        } catch (IOException e) {
+            System.err.println("Error writing checksum to file: " + checksumPath);
+        }
+    }
+
+    // Cross-checks the results of all algorithms through their checksum files, without reading any result matrix
+    public static void verifyChecksums(Path resultsDir, String matrixType, int size, String[] algorithms) {
+        System.out.println("\n--- Verifying checksums for " + matrixType + " matrix size " + size + " ---");
+
+        Map<String, List<String>> byChecksum = new HashMap<>();
+        for (String algorithm : algorithms) {
+            Path checksumPath = resultsDir.resolve(matrixType).resolve(algorithm).resolve(size + ".sha256");
+            try {
+                String checksum = Files.readString(checksumPath).trim();
+                byChecksum.computeIfAbsent(checksum, key -> new ArrayList<>()).add(algorithm);
+            } catch (IOException e) {
+                System.err.println("✗ " + algorithm + ": Checksum file not found at " + checksumPath);
+            }
+        }
+
+        if (byChecksum.size() == 1) {
+            System.out.println("✓ " + byChecksum.values().iterator().next() + ": identical results");
+        } else if (byChecksum.size() > 1) {
+            for (Map.Entry<String, List<String>> group : byChecksum.entrySet()) {
+                System.out.println("✗ " + group.getValue() + ": " + group.getKey().substring(0, 16) + "...");
+            }
+            System.out.println("✗ Some algorithms produced different results!");
+        }
+    }
+
     public static void main(String[] args) {
         Path projectRoot = Paths.get("").toAbsolutePath();
         Path inputDir = projectRoot.resolve("input");
         Path resultsDir = projectRoot.resolve("results");
         Path benchmarksDir = projectRoot.resolve("benchmarks");
 
+        // --binary reads inputs from and writes results to .bin files, --convert creates them from input/*.txt first
+        List<String> options = Arrays.asList(args);
+        String extension = options.contains("--binary") ? ".bin" : ".txt";
+        // --verify=freivalds checks every result in memory right after it is computed and compares checksum
+        // files instead of result files, so basic does not have to run as a reference
+        boolean freivalds = options.contains("--verify=freivalds");
+        // --algorithms=cache,vector,... runs only the listed algorithms
+        String[] algorithms = options.stream().filter(option -> option.startsWith("--algorithms="))
+                .map(option -> option.substring("--algorithms=".length()).split(","))
+                .findFirst().orElse(ALGORITHMS);
+        for (String algorithm : algorithms) {
+            if (!MultiplierRegistry.contains(algorithm)) {
+                System.err.println("Unknown algorithm: " + algorithm);
+                return;
+            }
+        }
+
         System.out.println("Starting matrix multiplication benchmarks...");
         System.out.println("Project root: " + projectRoot);
 
+        // --offheap only runs the off-heap scaling benchmark, its matrices are generated and never touch the heap
+        if (options.contains("--offheap")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: off-heap - parallel, sizes " + Arrays.toString(OFF_HEAP_SIZES));
+            System.out.println("========================================");
+            benchmarkOffHeap(benchmarksDir);
+            return;
+        }
+
+        // --outofcore only runs the out-of-core benchmark, on generated tile files
+        if (options.contains("--outofcore")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: out-of-core - tiled, sizes " + Arrays.toString(OUT_OF_CORE_SIZES)
+                    + ", budget " + OUT_OF_CORE_BUDGET / (1024 * 1024) + "MB");
+            System.out.println("========================================");
+            benchmarkOutOfCore(benchmarksDir);
+            return;
+        }
+
+        // --distributed only runs the worker scaling benchmark, on generated matrices
+        if (options.contains("--distributed")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: distributed - Cannon, workers " + Arrays.toString(DISTRIBUTED_WORKERS));
+            System.out.println("========================================");
+            benchmarkDistributed(benchmarksDir);
+            return;
+        }
+
+        // --batch only runs the small-matrix batching benchmark, on generated matrices
+        if (options.contains("--batch")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: batch - sizes " + Arrays.toString(BATCH_SIZES) + ", " + BATCH_CLIENTS + " clients");
+            System.out.println("========================================");
+            benchmarkBatch(benchmarksDir);
+            return;
+        }
+
+        // --expressions only compares lazy and eager expression evaluation, on generated matrices
+        if (options.contains("--expressions")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: expressions - lazy vs eager, sizes " + Arrays.toString(EXPRESSION_SIZES));
+            System.out.println("========================================");
+            benchmarkExpressions(benchmarksDir);
+            return;
+        }
+
+        // --incremental only compares incremental maintenance of C with recomputation, on generated matrices
+        if (options.contains("--incremental")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: incremental - sizes " + Arrays.toString(INCREMENTAL_SIZES)
+                    + ", updates per read " + Arrays.toString(INCREMENTAL_RATES));
+            System.out.println("========================================");
+            benchmarkIncremental(benchmarksDir);
+            return;
+        }
+
+        if (options.contains("--convert")) {
+            try {
+                System.out.println("Converted " + MatrixConverter.convertTree(inputDir) + " input matrices to binary");
+            } catch (IOException e) {
+                System.err.println("Error converting input matrices: " + e.getMessage());
+                return;
+            }
+        }
+
+        // --morton only compares the blocked and the Morton-order kernels on the dense inputs
+        if (options.contains("--morton")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: morton - cache vs Morton order, modelled caches up to size " + MORTON_SIMULATE_MAX);
+            System.out.println("========================================");
+            benchmarkMorton(inputDir, benchmarksDir, extension);
+            return;
+        }
+
+        // --memo only runs repeated products through the result cache
+        if (options.contains("--memo")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: memo - result cache, sizes " + Arrays.toString(MEMO_SIZES) + ", "
+                    + MEMO_REQUESTS + " requests from " + MEMO_CLIENTS + " clients, budget " + MEMO_BUDGET / (1024 * 1024) + " MB");
+            System.out.println("========================================");
+            benchmarkMemo(inputDir, resultsDir, benchmarksDir, extension);
+            return;
+        }
+
+        // --types only compares the element types on the dense inputs
+        if (options.contains("--types")) {
+            System.out.println("\n========================================");
+            System.out.println("Processing: types - int, long, float and double kernels, sizes " + Arrays.toString(TYPE_SIZES)
+                    + (TYPE_SCALE != 1 ? ", inputs scaled by " + TYPE_SCALE : ""));
+            System.out.println("========================================");
+            benchmarkTypes(inputDir, resultsDir, benchmarksDir, extension);
+            return;
+        }
+
         // Create directories if they don't exist
         try {
             Files.createDirectories(resultsDir);
@@ -301,8 +1660,10 @@ public class Main {
         }
 
         // Iterate over all combinations
+        long driverStart = System.nanoTime();
+        BenchmarkPipeline pipeline = new BenchmarkPipeline(PIPELINE_CACHE_BYTES, Main::inputBytes);
         for (String matrixType : MATRIX_TYPES) {
-            for (String algorithm : ALGORITHMS) {
+            for (String algorithm : algorithms) {
                 System.out.println("\n========================================");
                 System.out.println("Processing: " + matrixType + " - " + algorithm);
                 System.out.println("========================================");
@@ -313,16 +1674,85 @@ public class Main {
                     try {
                         // Load matrices
                         Path matrixDir = inputDir.resolve(matrixType).resolve(String.valueOf(size));
-                        Path matrix1Path = matrixDir.resolve("1.txt");
-                        Path matrix2Path = matrixDir.resolve("2.txt");
+                        Path matrix1Path = matrixDir.resolve("1" + extension);
+                        Path matrix2Path = matrixDir.resolve("2" + extension);
 
                         if (!Files.exists(matrix1Path) || !Files.exists(matrix2Path)) {
                             System.err.println("Matrix files not found for size " + size + " (" + matrixType + ")");
                             continue;
                         }
 
-                        Algorithms.Matrix A = loadMatrixFromFile(matrix1Path.toString());
-                        Algorithms.Matrix B = loadMatrixFromFile(matrix2Path.toString());
+                        Path resultPath = resultsDir.resolve(matrixType).resolve(algorithm).resolve(size + extension);
+                        Files.createDirectories(resultPath.getParent());
+
+                        // The next size parses on the loader thread during this one's warmup runs
+                        Path nextDir = inputDir.resolve(matrixType).resolve(String.valueOf(size * 2));
+                        if (PIPELINE_PREFETCH && size * 2 <= MAX_SIZE) {
+                            prefetchInput(pipeline, nextDir.resolve("1" + extension), algorithm);
+                            prefetchInput(pipeline, nextDir.resolve("2" + extension), algorithm);
+                        }
+
+                        // The sparse algorithm loads straight into CSR and never builds the dense matrices
+                        if (algorithm.equals("sparse")) {
+                            SparseMatrix A = pipeline.load(matrix1Path + "#csr", () -> loadSparseMatrixFromFile(matrix1Path.toString()));
+                            SparseMatrix B = pipeline.load(matrix2Path + "#csr", () -> loadSparseMatrixFromFile(matrix2Path.toString()));
+
+                            if (A == null || B == null) {
+                                System.err.println("Failed to load matrices for size " + size);
+                                continue;
+                            }
+
+                            System.out.print("Size " + size + " (density " + String.format("%.3f", A.density()) + "/"
+                                    + String.format("%.3f", B.density()) + "): ");
+                            BenchmarkResult result = benchmark(() -> SparseAlgorithms.matrixMultiplicationSparse(A, B),
+                                matrixType + "/" + algorithm, size, 3, 5, pipeline::drain);
+                            benchmarkResults.add(result);
+                            printResult(result);
+
+                            SparseMatrix C = (SparseMatrix) result.output;
+                            result.output = null;
+                            pipeline.write(() -> {
+                                saveSparseMatrixResult(C, resultPath.toString());
+                                saveChecksum(ContentHash.of(C), resultPath);
+                            });
+                            if (freivalds) {
+                                printVerification(algorithm, Freivalds.verify(A, B, C, VERIFY_TRIALS));
+                            }
+                            continue;
+                        }
+
+                        // The hybrid algorithm picks each operand's representation while loading, only the kernel is timed
+                        if (algorithm.equals("hybrid")) {
+                            BlockSparseAlgorithms.HybridMatrix A = pipeline.load(matrix1Path + "#hybrid",
+                                    () -> hybridOf(loadDenseInput(pipeline, matrix1Path)));
+                            BlockSparseAlgorithms.HybridMatrix B = pipeline.load(matrix2Path + "#hybrid",
+                                    () -> hybridOf(loadDenseInput(pipeline, matrix2Path)));
+
+                            if (A == null || B == null) {
+                                System.err.println("Failed to load matrices for size " + size);
+                                continue;
+                            }
+
+                            System.out.print("Size " + size + " (" + A.representation + "/" + B.representation + "): ");
+                            BenchmarkResult result = benchmark(() -> BlockSparseAlgorithms.matrixMultiplicationHybrid(A, B),
+                                matrixType + "/" + algorithm, size, 3, 5, pipeline::drain);
+                            benchmarkResults.add(result);
+                            printResult(result);
+
+                            Matrix C = (Matrix) result.output;
+                            result.output = null;
+                            pipeline.write(() -> {
+                                saveMatrixResult(C, resultPath.toString());
+                                saveChecksum(ContentHash.of(C), resultPath);
+                            });
+                            if (freivalds) {
+                                printVerification(algorithm, Freivalds.verify(A.toMatrix(), B.toMatrix(), C, size, VERIFY_TRIALS));
+                            }
+                            continue;
+                        }
+
+                        Algorithms.Matrix A = loadDenseInput(pipeline, matrix1Path);
+                        Algorithms.Matrix B = loadDenseInput(pipeline, matrix2Path);
 
                         if (A == null || B == null) {
                             System.err.println("Failed to load matrices for size " + size);
@@ -331,32 +1761,22 @@ public class Main {
 
                         // Perform benchmark
                         System.out.print("Size " + size + ": ");
-                        BenchmarkResult result = benchmark(A, B, size, algorithm);
+                        int n = size;
+                        BenchmarkResult result = benchmark(() -> multiply(A, B, n, algorithm), matrixType + "/" + algorithm, size,
+                                3, 5, pipeline::drain);
                         benchmarkResults.add(result);
-                        System.out.println("Time=" + String.format("%.4f", result.timeSeconds) + "s, " +
-                                "Memory=" + String.format("%.2f", result.memoryMB) + "MB, " +
-                                "CPU=" + String.format("%.1f", result.cpuPercent) + "%");
-
-                        // Save result matrix
-                        Algorithms.Matrix C = null;
-                        switch (algorithm) {
-                            case "basic":
-                                C = Algorithms.matrixMultiplicationBasic(A, B, size);
-                                break;
-                            case "loop":
-                                C = Algorithms.matrixMultiplicationLoopUnroll(A, B, size);
-                                break;
-                            case "cache":
-                                C = Algorithms.matrixMultiplicationCache(A, B, size);
-                                break;
-                            case "strassen":
-                                C = Algorithms.matrixMultiplicationStrassen(A, B, size);
-                                break;
-                        }
+                        printResult(result);
 
-                        Path resultPath = resultsDir.resolve(matrixType).resolve(algorithm).resolve(size + ".txt");
-                        Files.createDirectories(resultPath.getParent());
-                        saveMatrixResult(C, resultPath.toString());
+                        // Save the last measured run's result matrix
+                        Matrix C = (Matrix) result.output;
+                        result.output = null;
+                        pipeline.write(() -> {
+                            saveMatrixResult(C, resultPath.toString());
+                            saveChecksum(ContentHash.of(C), resultPath);
+                        });
+                        if (freivalds) {
+                            printVerification(algorithm, Freivalds.verify(A, B, C, size, VERIFY_TRIALS));
+                        }
 
                     } catch (Exception e) {
                         System.err.println("Error processing size " + size + ": " + e.getMessage());
@@ -375,15 +1795,36 @@ public class Main {
             }
         }
 
+        // Result files still being written are waited for here, before anything reads them back
+        pipeline.close();
+        System.out.println(String.format(Locale.ROOT,
+                "\nTotal wall time: %.2fs (waiting for inputs %.2fs, %d cache hits, %d misses, %d prefetched, %.2fs writing in background)",
+                (System.nanoTime() - driverStart) / 1e9, pipeline.waitNanos / 1e9, pipeline.inputs.hits,
+                pipeline.inputs.misses, pipeline.inputs.prefetches, pipeline.writeNanos / 1e9));
+
+        // Report how the parallel kernel scales with the number of threads
+        System.out.println("\n\n========================================");
+        System.out.println("SPEEDUP PHASE - Parallel kernel, " + PARALLELISM + " threads max");
+        System.out.println("========================================");
+
+        for (String matrixType : MATRIX_TYPES) {
+            System.out.println("\n" + matrixType.toUpperCase() + " MATRICES:");
+            benchmarkSpeedup(inputDir, benchmarksDir, matrixType, extension);
+        }
+
         // Verify all results from the results directory
         System.out.println("\n\n========================================");
-        System.out.println("VERIFICATION PHASE - Comparing Result Files");
+        System.out.println("VERIFICATION PHASE - " + (freivalds ? "Comparing Checksums" : "Comparing Result Files"));
         System.out.println("========================================");
 
         for (String matrixType : MATRIX_TYPES) {
             System.out.println("\n" + matrixType.toUpperCase() + " MATRICES:");
             for (int size = MIN_SIZE; size <= MAX_SIZE; size *= 2) {
-                verifyResults(resultsDir, matrixType, size);
+                if (freivalds) {
+                    verifyChecksums(resultsDir, matrixType, size, algorithms);
+                } else {
+                    verifyResults(resultsDir, matrixType, size, extension, algorithms);
+                }
             }
         }
 
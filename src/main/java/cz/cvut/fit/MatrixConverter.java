@@ -0,0 +1,64 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// Converts every text matrix under a directory (input/ by default) to the binary format next to it,
+// e.g. input/sparse/64/1.txt -> input/sparse/64/1.bin
+public class MatrixConverter {
+
+    public static void main(String[] args) {
+        Path root = Paths.get(args.length > 0 ? args[0] : "input").toAbsolutePath();
+        try {
+            int converted = convertTree(root);
+            System.out.println("Converted " + converted + " matrices under " + root);
+        } catch (IOException e) {
+            System.err.println("Error converting matrices under " + root + ": " + e.getMessage());
+        }
+    }
+
+    public static int convertTree(Path root) throws IOException {
+        List<Path> textFiles;
+        try (Stream<Path> files = Files.walk(root)) {
+            textFiles = files.filter(p -> p.toString().endsWith(".txt")).sorted().collect(Collectors.toList());
+        }
+
+        int converted = 0;
+        for (Path textFile : textFiles) {
+            String name = textFile.getFileName().toString();
+            Path binaryFile = textFile.resolveSibling(name.substring(0, name.length() - 4) + ".bin");
+            try {
+                convert(textFile, binaryFile);
+                converted++;
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping " + textFile + ": " + e.getMessage());
+            }
+        }
+        return converted;
+    }
+
+    // Stores whichever layout is smaller: CSR pays a 4-byte column index per nonzero plus the row pointers
+    public static void convert(Path textFile, Path binaryFile) throws IOException {
+        SparseMatrix sparse = MatrixParser.parseSparse(textFile);
+        int min = 0, max = 0;
+        for (int p = 0; p < sparse.nonZeros(); p++) {
+            min = Math.min(min, sparse.values[p]);
+            max = Math.max(max, sparse.values[p]);
+        }
+        int elementBytes = 1 << BinaryMatrixFormat.narrowestType(min, max);
+        long csrBytes = 4L * (sparse.size + 1) + (4L + elementBytes) * sparse.nonZeros();
+        long denseBytes = (long) elementBytes * sparse.size * sparse.size;
+
+        if (csrBytes < denseBytes) {
+            BinaryMatrixFormat.writeSparse(sparse, binaryFile);
+        } else {
+            BinaryMatrixFormat.writeDense(sparse.toMatrix(), binaryFile);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package cz.cvut.fit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Lazy matrix expressions: times, plus, minus, transpose and pow only build a DAG, evaluate() runs it.
+// Evaluation multiplies every chain in the cheapest order (matrix-chain dynamic programming), accumulates
+// the last product of each chain straight into the enclosing sum instead of materializing it, computes
+// shared subexpressions once and returns intermediate buffers to a pool as soon as their last consumer ran.
+// Operands may be rectangular, so int[][] leaves are accepted next to the square Matrix.
+public abstract class MatrixExpression {
+
+    final int rows;
+    final int cols;
+
+    private MatrixExpression(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static MatrixExpression of(Matrix M) {
+        return new Leaf(Dense.fromArray(M.data, M.size, M.size));
+    }
+
+    public static MatrixExpression of(int[][] data) {
+        if (data.length == 0 || data[0].length == 0) {
+            throw new IllegalArgumentException("Matrix must not be empty");
+        }
+        for (int[] row : data) {
+            if (row.length != data[0].length) {
+                throw new IllegalArgumentException("Matrix rows differ in length: " + row.length + ", " + data[0].length);
+            }
+        }
+        return new Leaf(Dense.fromArray(data, data.length, data[0].length));
+    }
+
+    public MatrixExpression times(MatrixExpression other) {
+        if (cols != other.rows) {
+            throw new IllegalArgumentException("Cannot multiply " + rows + "x" + cols + " by " + other.rows + "x" + other.cols);
+        }
+        return new Product(this, other);
+    }
+
+    public MatrixExpression plus(MatrixExpression other) {
+        return sum(other, 1);
+    }
+
+    public MatrixExpression minus(MatrixExpression other) {
+        return sum(other, -1);
+    }
+
+    private MatrixExpression sum(MatrixExpression other, int sign) {
+        if (rows != other.rows || cols != other.cols) {
+            throw new IllegalArgumentException("Cannot add " + rows + "x" + cols + " and " + other.rows + "x" + other.cols);
+        }
+        return new Sum(this, other, sign);
+    }
+
+    // Pushed down to the leaves while building, (AB)^T = B^T A^T, so chains keep their shape for the ordering
+    public abstract MatrixExpression transpose();
+
+    public MatrixExpression pow(int exponent) {
+        if (rows != cols) {
+            throw new IllegalArgumentException("Cannot raise a " + rows + "x" + cols + " matrix to a power");
+        }
+        if (exponent < 1) {
+            throw new IllegalArgumentException("Exponent must be positive: " + exponent);
+        }
+        return exponent == 1 ? this : new Power(this, exponent);
+    }
+
+    public int[][] evaluateArray() {
+        return evaluate(true).result.toArray();
+    }
+
+    public Matrix evaluate() {
+        if (rows != cols) {
+            throw new IllegalArgumentException("Result is " + rows + "x" + cols + ", not a square Matrix");
+        }
+        Matrix M = new Matrix(rows);
+        Dense result = evaluate(true).result;
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(result.data, i * cols, M.data[i], 0, cols);
+        }
+        return M;
+    }
+
+    // optimize = false evaluates the DAG in source order with a fresh buffer per node, like calling the
+    // kernels one at a time; it is the baseline the benchmark compares against
+    Evaluation evaluate(boolean optimize) {
+        Evaluation evaluation = new Evaluation(optimize);
+        evaluation.countUses(this);
+        evaluation.result = evaluation.acquire(this);
+        return evaluation;
+    }
+
+    // Row-major rows x cols values; computed buffers come from the pool and count their remaining consumers
+    static class Dense {
+        final int rows;
+        final int cols;
+        final int[] data;
+        final boolean pooled;
+        int refs;
+
+        Dense(int rows, int cols, int[] data, boolean pooled) {
+            this.rows = rows;
+            this.cols = cols;
+            this.data = data;
+            this.pooled = pooled;
+        }
+
+        static Dense fromArray(int[][] source, int rows, int cols) {
+            int[] data = new int[rows * cols];
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(source[i], 0, data, i * cols, cols);
+            }
+            return new Dense(rows, cols, data, false);
+        }
+
+        int[][] toArray() {
+            int[][] result = new int[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(data, i * cols, result[i], 0, cols);
+            }
+            return result;
+        }
+    }
+
+    private static class Leaf extends MatrixExpression {
+        final Dense value;
+        private Transposed transposed;
+
+        Leaf(Dense value) {
+            super(value.rows, value.cols);
+            this.value = value;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            // One node per leaf, so A^T used twice is still transposed once
+            if (transposed == null) {
+                transposed = new Transposed(this);
+            }
+            return transposed;
+        }
+    }
+
+    private static class Transposed extends MatrixExpression {
+        final Leaf source;
+
+        Transposed(Leaf source) {
+            super(source.cols, source.rows);
+            this.source = source;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return source;
+        }
+    }
+
+    private static class Product extends MatrixExpression {
+        final MatrixExpression left;
+        final MatrixExpression right;
+
+        Product(MatrixExpression left, MatrixExpression right) {
+            super(left.rows, right.cols);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return right.transpose().times(left.transpose());
+        }
+    }
+
+    private static class Sum extends MatrixExpression {
+        final MatrixExpression left;
+        final MatrixExpression right;
+        final int sign;
+
+        Sum(MatrixExpression left, MatrixExpression right, int sign) {
+            super(left.rows, left.cols);
+            this.left = left;
+            this.right = right;
+            this.sign = sign;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return new Sum(left.transpose(), right.transpose(), sign);
+        }
+    }
+
+    private static class Power extends MatrixExpression {
+        final MatrixExpression base;
+        final int exponent;
+
+        Power(MatrixExpression base, int exponent) {
+            super(base.rows, base.cols);
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return base.transpose().pow(exponent);
+        }
+    }
+
+    // One run over the DAG with its buffer pool and counters
+    static class Evaluation {
+        final boolean optimize;
+        Dense result;
+        long multiplyAdds;
+        long allocations;
+        long reuses;
+        long liveBytes;
+        long peakBytes;
+
+        private final Map<MatrixExpression, Integer> uses = new IdentityHashMap<>();
+        private final Map<MatrixExpression, Dense> shared = new IdentityHashMap<>();
+        private final Map<Integer, ArrayDeque<int[]>> free = new HashMap<>();
+
+        Evaluation(boolean optimize) {
+            this.optimize = optimize;
+        }
+
+        void countUses(MatrixExpression node) {
+            if (uses.merge(node, 1, Integer::sum) > 1) {
+                return;
+            }
+            if (node instanceof Product product) {
+                countUses(product.left);
+                countUses(product.right);
+            } else if (node instanceof Sum sum) {
+                countUses(sum.left);
+                countUses(sum.right);
+            } else if (node instanceof Power power) {
+                countUses(power.base);
+            } else if (node instanceof Transposed transposed) {
+                countUses(transposed.source);
+            }
+        }
+
+        // The value of node; every acquire is paired with one done once the caller has read it
+        Dense acquire(MatrixExpression node) {
+            Dense value = shared.get(node);
+            if (value == null) {
+                value = compute(node);
+                int count = uses.get(node);
+                if (value.pooled) {
+                    value.refs = count;
+                }
+                if (count > 1) {
+                    shared.put(node, value);
+                }
+            }
+            return value;
+        }
+
+        void done(Dense value) {
+            if (value.pooled && --value.refs == 0) {
+                liveBytes -= (long) value.data.length * Integer.BYTES;
+                if (optimize) {
+                    free.computeIfAbsent(value.data.length, length -> new ArrayDeque<>()).push(value.data);
+                }
+            }
+        }
+
+        private Dense allocate(int rows, int cols) {
+            int length = rows * cols;
+            ArrayDeque<int[]> buffers = free.get(length);
+            int[] data;
+            if (buffers != null && !buffers.isEmpty()) {
+                data = buffers.pop();
+                Arrays.fill(data, 0);
+                reuses++;
+            } else {
+                data = new int[length];
+                allocations++;
+            }
+            liveBytes += (long) length * Integer.BYTES;
+            peakBytes = Math.max(peakBytes, liveBytes);
+            Dense value = new Dense(rows, cols, data, true);
+            value.refs = 1;
+            return value;
+        }
+
+        private Dense compute(MatrixExpression node) {
+            if (node instanceof Leaf leaf) {
+                return leaf.value;
+            }
+            if (node instanceof Transposed transposed) {
+                Dense source = acquire(transposed.source);
+                Dense result = allocate(source.cols, source.rows);
+                for (int i = 0; i < source.rows; i++) {
+                    for (int j = 0; j < source.cols; j++) {
+                        result.data[j * source.rows + i] = source.data[i * source.cols + j];
+                    }
+                }
+                done(source);
+                return result;
+            }
+            if (node instanceof Power power) {
+                return power(power);
+            }
+            Dense result = allocate(node.rows, node.cols);
+            if (!optimize) {
+                if (node instanceof Product product) {
+                    multiplyInto(acquire(product.left), acquire(product.right), result, 1);
+                } else {
+                    Sum sum = (Sum) node;
+                    addInto(acquire(sum.left), result, 1);
+                    addInto(acquire(sum.right), result, sum.sign);
+                }
+                return result;
+            }
+            if (node instanceof Product) {
+                accumulateChain(factors(node, new ArrayList<>()), result, 1);
+            } else {
+                for (Term term : terms(node, 1, new ArrayList<>())) {
+                    if (term.node instanceof Product && uses.get(term.node) == 1) {
+                        // Fused: the chain's last multiplication adds into the sum, no buffer for the product
+                        accumulateChain(factors(term.node, new ArrayList<>()), result, term.sign);
+                    } else {
+                        addInto(acquire(term.node), result, term.sign);
+                    }
+                }
+            }
+            return result;
+        }
+
+        // Factors of a product, inlining nested products nobody else uses
+        private List<MatrixExpression> factors(MatrixExpression node, List<MatrixExpression> out) {
+            Product product = (Product) node;
+            for (MatrixExpression child : new MatrixExpression[]{product.left, product.right}) {
+                if (child instanceof Product && uses.get(child) == 1) {
+                    factors(child, out);
+                } else {
+                    out.add(child);
+                }
+            }
+            return out;
+        }
+
+        private record Term(MatrixExpression node, int sign) {
+        }
+
+        private List<Term> terms(MatrixExpression node, int sign, List<Term> out) {
+            Sum sum = (Sum) node;
+            MatrixExpression[] children = {sum.left, sum.right};
+            int[] signs = {sign, sign * sum.sign};
+            for (int c = 0; c < 2; c++) {
+                if (children[c] instanceof Sum && uses.get(children[c]) == 1) {
+                    terms(children[c], signs[c], out);
+                } else {
+                    out.add(new Term(children[c], signs[c]));
+                }
+            }
+            return out;
+        }
+
+        // target += sign * (f_0 ... f_n-1), multiplied in the order with the fewest multiply-adds
+        private void accumulateChain(List<MatrixExpression> factors, Dense target, int sign) {
+            int n = factors.size();
+            long[] dims = new long[n + 1];
+            for (int f = 0; f < n; f++) {
+                dims[f] = factors.get(f).rows;
+            }
+            dims[n] = factors.get(n - 1).cols;
+
+            // cost[i][j] is the cheapest way to form f_i ... f_j, split[i][j] the last multiplication of it
+            long[][] cost = new long[n][n];
+            int[][] split = new int[n][n];
+            for (int length = 2; length <= n; length++) {
+                for (int i = 0; i + length - 1 < n; i++) {
+                    int j = i + length - 1;
+                    cost[i][j] = Long.MAX_VALUE;
+                    for (int s = i; s < j; s++) {
+                        long c = cost[i][s] + cost[s + 1][j] + dims[i] * dims[s + 1] * dims[j + 1];
+                        if (c < cost[i][j]) {
+                            cost[i][j] = c;
+                            split[i][j] = s;
+                        }
+                    }
+                }
+            }
+            int s = split[0][n - 1];
+            multiplyInto(chain(factors, split, 0, s), chain(factors, split, s + 1, n - 1), target, sign);
+        }
+
+        private Dense chain(List<MatrixExpression> factors, int[][] split, int i, int j) {
+            if (i == j) {
+                return acquire(factors.get(i));
+            }
+            int s = split[i][j];
+            Dense left = chain(factors, split, i, s);
+            Dense right = chain(factors, split, s + 1, j);
+            Dense result = allocate(left.rows, right.cols);
+            multiplyInto(left, right, result, 1);
+            return result;
+        }
+
+        // Square-and-multiply, releasing every square once the next one is formed; multiplyInto consumes one
+        // reference per operand, so an operand that is still needed afterwards gets an extra one first
+        private Dense power(Power node) {
+            Dense result = null;
+            Dense square = acquire(node.base);
+            for (int k = node.exponent; ; ) {
+                if ((k & 1) != 0) {
+                    square.refs++;
+                    if (result == null) {
+                        result = square;
+                    } else {
+                        Dense next = allocate(node.rows, node.cols);
+                        multiplyInto(result, square, next, 1);
+                        result = next;
+                    }
+                }
+                k >>= 1;
+                if (k == 0) {
+                    break;
+                }
+                Dense next = allocate(node.rows, node.cols);
+                square.refs++;
+                multiplyInto(square, square, next, 1);
+                square = next;
+            }
+            done(square);
+            return result;
+        }
+
+        // C += sign * A * B in blocked i-k-j order, then A and B are done
+        private void multiplyInto(Dense A, Dense B, Dense C, int sign) {
+            int m = A.cols, n = B.cols;
+            multiplyAdds += (long) A.rows * m * n;
+            for (int kk = 0; kk < m; kk += BLOCK) {
+                int kEnd = Math.min(kk + BLOCK, m);
+                for (int jj = 0; jj < n; jj += BLOCK) {
+                    int jEnd = Math.min(jj + BLOCK, n);
+                    for (int i = 0; i < A.rows; i++) {
+                        int cRow = i * n;
+                        for (int k = kk; k < kEnd; k++) {
+                            int a = sign * A.data[i * m + k];
+                            if (a == 0) {
+                                continue;
+                            }
+                            int bRow = k * n;
+                            for (int j = jj; j < jEnd; j++) {
+                                C.data[cRow + j] += a * B.data[bRow + j];
+                            }
+                        }
+                    }
+                }
+            }
+            done(A);
+            done(B);
+        }
+
+        private void addInto(Dense A, Dense C, int sign) {
+            for (int i = 0; i < A.data.length; i++) {
+                C.data[i] += sign * A.data[i];
+            }
+            done(A);
+        }
+    }
+
+    private static final int BLOCK = 64;
+}
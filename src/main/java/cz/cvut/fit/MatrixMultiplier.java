@@ -0,0 +1,10 @@
+package cz.cvut.fit;
+
+import cz.cvut.fit.Algorithms.Matrix;
+
+// A dense multiplication kernel, C = A * B for size x size matrices, registered by name in MultiplierRegistry
+@FunctionalInterface
+public interface MatrixMultiplier {
+
+    Matrix multiply(Matrix A, Matrix B, int size);
+}
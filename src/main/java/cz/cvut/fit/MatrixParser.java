@@ -0,0 +1,461 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveAction;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.DoubleAlgorithms.DoubleMatrix;
+import cz.cvut.fit.FlatAlgorithms.FlatMatrix;
+import cz.cvut.fit.FloatAlgorithms.FloatMatrix;
+import cz.cvut.fit.LongAlgorithms.LongMatrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+// Parses text matrices (whitespace-separated integers, one row per line) straight from a
+// memory-mapped file into primitive arrays, without Strings, regexes or boxed values.
+// The long and floating-point variants read the same layout with wider or decimal values.
+public class MatrixParser {
+
+    // Rows parsed per fork/join task in parallel mode
+    private static final int ROWS_PER_TASK = 16;
+
+    // Line boundaries of the non-empty rows, found by a single byte scan before any value is parsed
+    private static class Layout {
+        final MappedByteBuffer buffer;
+        final int size;
+        final int[] starts;
+        final int[] ends;
+
+        Layout(MappedByteBuffer buffer, int size, int[] starts, int[] ends) {
+            this.buffer = buffer;
+            this.size = size;
+            this.starts = starts;
+            this.ends = ends;
+        }
+    }
+
+    public static Matrix parseMatrix(Path path, int parallelism) throws IOException {
+        Layout layout = scan(path);
+        int[][] rows = new int[layout.size][layout.size];
+        parseRows(layout, rows, null, parallelism);
+        return new Matrix(rows);
+    }
+
+    // Each row is hashed right after it is parsed, while its values are still in cache
+    public static ResultCache.Operand parseOperand(Path path) throws IOException {
+        Layout layout = scan(path);
+        int n = layout.size;
+        int[][] rows = new int[n][n];
+        ContentHash hash = new ContentHash(n, n);
+        for (int i = 0; i < n; i++) {
+            parseRow(layout, layout.buffer, i, rows[i], 0);
+            hash.update(rows[i], 0, n);
+        }
+        return new ResultCache.Operand(new Matrix(rows), hash.finish());
+    }
+
+    public static FlatMatrix parseFlat(Path path, int parallelism) throws IOException {
+        Layout layout = scan(path);
+        int[] data = new int[layout.size * layout.size];
+        parseRows(layout, null, data, parallelism);
+        return new FlatMatrix(data, layout.size);
+    }
+
+    // CSR form: nonzeros are appended row by row, the dense matrix is never built
+    public static SparseMatrix parseSparse(Path path) throws IOException {
+        Layout layout = scan(path);
+        int n = layout.size;
+        SparseAlgorithms.CsrBuilder builder = new SparseAlgorithms.CsrBuilder(n, n);
+        int[] row = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            parseRow(layout, layout.buffer, i, row, 0);
+            for (int j = 0; j < n; j++) {
+                builder.add(j, row[j]);
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    public static LongMatrix parseLongMatrix(Path path) throws IOException {
+        Layout layout = scan(path);
+        long[][] rows = new long[layout.size][layout.size];
+        for (int i = 0; i < layout.size; i++) {
+            parseRow(layout, i, rows[i]);
+        }
+        return new LongMatrix(rows);
+    }
+
+    public static DoubleMatrix parseDoubleMatrix(Path path) throws IOException {
+        Layout layout = scan(path);
+        double[][] rows = new double[layout.size][layout.size];
+        for (int i = 0; i < layout.size; i++) {
+            parseRow(layout, i, rows[i]);
+        }
+        return new DoubleMatrix(rows);
+    }
+
+    // Values are parsed as doubles and rounded to float, which differs from a direct parse only in rare ties
+    public static FloatMatrix parseFloatMatrix(Path path) throws IOException {
+        Layout layout = scan(path);
+        float[][] rows = new float[layout.size][layout.size];
+        double[] row = new double[layout.size];
+        for (int i = 0; i < layout.size; i++) {
+            parseRow(layout, i, row);
+            for (int j = 0; j < layout.size; j++) {
+                rows[i][j] = (float) row[j];
+            }
+        }
+        return new FloatMatrix(rows);
+    }
+
+    // Maps the file, takes the size from the first row and records where each of the n rows starts and ends
+    private static Layout scan(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map as text: " + path + " (" + length + " bytes)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        int length = buffer.limit();
+
+        // Skip leading empty lines, then count the values in the first row
+        int pos = 0;
+        while (pos < length && isSpaceOrNewline(buffer.get(pos))) {
+            pos++;
+        }
+        if (pos == length) {
+            throw new IllegalArgumentException("Empty matrix file: " + path);
+        }
+        int size = 0;
+        boolean inToken = false;
+        for (int p = pos; p < length && buffer.get(p) != '\n'; p++) {
+            boolean space = isSpace(buffer.get(p));
+            if (!space && !inToken) {
+                size++;
+            }
+            inToken = !space;
+        }
+
+        // Every value takes at least one digit and one separator, reject truncated files before allocating
+        long minimumLength = 2L * size * size - 1;
+        if (length - pos < minimumLength) {
+            throw new IllegalArgumentException("File " + path + " is too short for a " + size + "x" + size + " matrix");
+        }
+
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        int rows = 0;
+        int lineStart = pos;
+        boolean hasContent = false;
+        for (int p = pos; p <= length; p++) {
+            byte b = p < length ? buffer.get(p) : (byte) '\n';
+            if (b == '\n') {
+                if (hasContent) {
+                    if (rows == size) {
+                        throw new IllegalArgumentException("Matrix in " + path + " has more than " + size + " rows");
+                    }
+                    starts[rows] = lineStart;
+                    ends[rows] = p;
+                    rows++;
+                }
+                lineStart = p + 1;
+                hasContent = false;
+            } else if (!isSpace(b)) {
+                hasContent = true;
+            }
+        }
+        if (rows != size) {
+            throw new IllegalArgumentException("Matrix in " + path + " has " + rows + " rows but " + size + " columns");
+        }
+        return new Layout(buffer, size, starts, ends);
+    }
+
+    // Parses all rows into either rows[i] or flat[i * size], splitting row ranges over a pool in parallel mode
+    private static void parseRows(Layout layout, int[][] rows, int[] flat, int parallelism) {
+        if (parallelism <= 1 || layout.size < 2 * ROWS_PER_TASK) {
+            for (int i = 0; i < layout.size; i++) {
+                parseRow(layout, layout.buffer, i, rows, flat);
+            }
+            return;
+        }
+        ParallelAlgorithms.pool(parallelism).invoke(new RowRangeTask(layout, rows, flat, 0, layout.size));
+    }
+
+    private static class RowRangeTask extends RecursiveAction {
+        private final Layout layout;
+        private final int[][] rows;
+        private final int[] flat;
+        private final int from, to;
+
+        RowRangeTask(Layout layout, int[][] rows, int[] flat, int from, int to) {
+            this.layout = layout;
+            this.rows = rows;
+            this.flat = flat;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                // Rows are read with absolute get(int) only, which never touches the shared buffer's position,
+                // so every task can read the one mapped buffer directly
+                for (int i = from; i < to; i++) {
+                    parseRow(layout, layout.buffer, i, rows, flat);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowRangeTask(layout, rows, flat, from, mid), new RowRangeTask(layout, rows, flat, mid, to));
+        }
+    }
+
+    private static void parseRow(Layout layout, MappedByteBuffer buffer, int i, int[][] rows, int[] flat) {
+        if (flat != null) {
+            parseRow(layout, buffer, i, flat, i * layout.size);
+        } else {
+            parseRow(layout, buffer, i, rows[i], 0);
+        }
+    }
+
+    // Parses row i into dst[offset .. offset + size), failing unless it holds exactly size values
+    private static void parseRow(Layout layout, MappedByteBuffer buffer, int i, int[] dst, int offset) {
+        int n = layout.size;
+        int pos = layout.starts[i];
+        int end = layout.ends[i];
+        int column = 0;
+
+        while (true) {
+            while (pos < end && isSpace(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos == end) {
+                break;
+            }
+            if (column == n) {
+                throw rowLengthError(i, n);
+            }
+            int tokenStart = pos;
+            while (pos < end && !isSpace(buffer.get(pos))) {
+                pos++;
+            }
+            dst[offset + column++] = parseInt(buffer, tokenStart, pos, i);
+        }
+        if (column != n) {
+            throw rowLengthError(i, n);
+        }
+    }
+
+    private static void parseRow(Layout layout, int i, long[] dst) {
+        MappedByteBuffer buffer = layout.buffer;
+        int pos = layout.starts[i];
+        int end = layout.ends[i];
+        int column = 0;
+
+        while (true) {
+            while (pos < end && isSpace(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos == end) {
+                break;
+            }
+            if (column == layout.size) {
+                throw rowLengthError(i, layout.size);
+            }
+            int tokenStart = pos;
+            while (pos < end && !isSpace(buffer.get(pos))) {
+                pos++;
+            }
+            dst[column++] = parseLong(buffer, tokenStart, pos, i);
+        }
+        if (column != layout.size) {
+            throw rowLengthError(i, layout.size);
+        }
+    }
+
+    private static void parseRow(Layout layout, int i, double[] dst) {
+        MappedByteBuffer buffer = layout.buffer;
+        int pos = layout.starts[i];
+        int end = layout.ends[i];
+        int column = 0;
+
+        while (true) {
+            while (pos < end && isSpace(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos == end) {
+                break;
+            }
+            if (column == layout.size) {
+                throw rowLengthError(i, layout.size);
+            }
+            int tokenStart = pos;
+            while (pos < end && !isSpace(buffer.get(pos))) {
+                pos++;
+            }
+            dst[column++] = parseDouble(buffer, tokenStart, pos, i);
+        }
+        if (column != layout.size) {
+            throw rowLengthError(i, layout.size);
+        }
+    }
+
+    private static long parseLong(MappedByteBuffer buffer, int start, int end, int row) {
+        int pos = start;
+        boolean negative = false;
+        byte first = buffer.get(pos);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            pos++;
+        }
+        if (pos == end) {
+            throw new NumberFormatException("Invalid value in row " + row + " at byte " + start);
+        }
+
+        // Accumulated negative, which reaches Long.MIN_VALUE without overflowing
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid value in row " + row + " at byte " + start);
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Value out of long range in row " + row + " at byte " + start);
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException("Value out of long range in row " + row + " at byte " + start);
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    // Exact powers of ten as doubles, the fast path of parseDouble
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // [sign] digits [. digits] [e|E [sign] digits]. Up to 15 significant digits and a decimal exponent within
+    // +-22 are one exact integer and one exact power of ten, so a single multiply or divide rounds correctly;
+    // anything else (long mantissas, large exponents, NaN, Infinity) goes through Double.parseDouble
+    private static double parseDouble(MappedByteBuffer buffer, int start, int end, int row) {
+        int pos = start;
+        boolean negative = false;
+        byte first = buffer.get(pos);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    // Leading zeros are not significant
+                } else if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                } else {
+                    digits++;
+                    exponent++;
+                }
+                if (seenPoint) {
+                    exponent--;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (seenDigit && pos < end && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+                negativeExponent = buffer.get(pos) == '-';
+                pos++;
+            }
+            int value = 0;
+            int exponentStart = pos;
+            for (; pos < end && buffer.get(pos) >= '0' && buffer.get(pos) <= '9'; pos++) {
+                value = Math.min(value * 10 + (buffer.get(pos) - '0'), 100000);
+            }
+            if (pos == exponentStart) {
+                return parseDoubleSlowly(buffer, start, end, row);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (!seenDigit || pos != end || digits > 15 || exponent < -22 || exponent > 22) {
+            return parseDoubleSlowly(buffer, start, end, row);
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleSlowly(MappedByteBuffer buffer, int start, int end, int row) {
+        byte[] token = new byte[end - start];
+        buffer.get(start, token);
+        try {
+            return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Invalid value in row " + row + " at byte " + start);
+        }
+    }
+
+    private static int parseInt(MappedByteBuffer buffer, int start, int end, int row) {
+        int pos = start;
+        boolean negative = false;
+        byte first = buffer.get(pos);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 10) {
+            throw new NumberFormatException("Invalid value in row " + row + " at byte " + start);
+        }
+
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid value in row " + row + " at byte " + start);
+            }
+            value = value * 10 + digit;
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range in row " + row + " at byte " + start);
+        }
+        return (int) value;
+    }
+
+    private static IllegalArgumentException rowLengthError(int row, int size) {
+        return new IllegalArgumentException("Row " + row + " does not have exactly " + size + " values");
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isSpaceOrNewline(byte b) {
+        return isSpace(b) || b == '\n';
+    }
+}
@@ -0,0 +1,174 @@
+package cz.cvut.fit;
+
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Cache-oblivious multiplication over a Morton (Z-order) tiled layout. The matrix is cut into LEAF x LEAF
+// row-major tiles stored in the order of a recursive quadrant split, so every quadrant, and every quadrant of a
+// quadrant, is one contiguous range. A side of an odd number of tiles splits with the larger half first; for a
+// power-of-two tile count this is exactly Z-order, and other sizes are padded only up to whole leaf tiles.
+// The recursion halves the problem until three operands fit whatever cache level is next, without knowing
+// its size; only the leaf tile is fixed and it is sized for registers and L1, not tuned per host like the
+// block size of matrixMultiplicationCache.
+public class MortonAlgorithms {
+
+    // Leaf tile side, three int tiles take 12 KB
+    static final int LEAF = 32;
+    private static final int LEAF_AREA = LEAF * LEAF;
+
+    // size x size values padded with zeros to tiles x tiles leaf tiles
+    static class MortonMatrix {
+        final int size;
+        final int tiles;
+        final int[] data;
+        // Position in the layout of tile (ti, tj), at ti * tiles + tj
+        private final int[] tileIndex;
+
+        MortonMatrix(int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Size must be positive: " + size);
+            }
+            int tiles = tilesPerSide(size);
+            long elements = (long) tiles * tiles * LEAF_AREA;
+            if (elements > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Matrix of size " + size + " is too large for the Morton layout");
+            }
+            this.size = size;
+            this.tiles = tiles;
+            this.data = new int[(int) elements];
+            this.tileIndex = new int[tiles * tiles];
+            layout(tileIndex, tiles, 0, 0, tiles, tiles, 0);
+        }
+
+        static MortonMatrix fromMatrix(Matrix M) {
+            MortonMatrix Z = new MortonMatrix(M.size);
+            // One tile row at a time: consecutive j of a source row land in one tile row
+            for (int i = 0; i < M.size; i++) {
+                int[] row = M.data[i];
+                int tileRow = i / LEAF;
+                int inTile = (i % LEAF) * LEAF;
+                for (int tj = 0; tj * LEAF < M.size; tj++) {
+                    int length = Math.min(LEAF, M.size - tj * LEAF);
+                    System.arraycopy(row, tj * LEAF, Z.data, Z.tile(tileRow, tj) * LEAF_AREA + inTile, length);
+                }
+            }
+            return Z;
+        }
+
+        Matrix toMatrix() {
+            Matrix M = new Matrix(size);
+            for (int i = 0; i < size; i++) {
+                int[] row = M.data[i];
+                int tileRow = i / LEAF;
+                int inTile = (i % LEAF) * LEAF;
+                for (int tj = 0; tj * LEAF < size; tj++) {
+                    int length = Math.min(LEAF, size - tj * LEAF);
+                    System.arraycopy(data, tile(tileRow, tj) * LEAF_AREA + inTile, row, tj * LEAF, length);
+                }
+            }
+            return M;
+        }
+
+        int get(int i, int j) {
+            return data[tile(i / LEAF, j / LEAF) * LEAF_AREA + (i % LEAF) * LEAF + j % LEAF];
+        }
+
+        int tile(int ti, int tj) {
+            return tileIndex[ti * tiles + tj];
+        }
+    }
+
+    // Leaf tiles per side of a size x size matrix
+    static int tilesPerSide(int size) {
+        return (size + LEAF - 1) / LEAF;
+    }
+
+    // Rows or columns of tiles in the first half of a split, the larger one for an odd count
+    static int firstHalf(int tiles) {
+        return (tiles + 1) / 2;
+    }
+
+    // Numbers the tiles of the rows x cols block at tile (row, col) from position on, quadrants 11, 12, 21, 22
+    // one after another. A side of one tile splits into one and zero, so thin blocks keep the same order.
+    private static void layout(int[] index, int tiles, int row, int col, int rows, int cols, int position) {
+        if (rows == 0 || cols == 0) {
+            return;
+        }
+        if (rows == 1 && cols == 1) {
+            index[row * tiles + col] = position;
+            return;
+        }
+        int rows1 = firstHalf(rows), cols1 = firstHalf(cols);
+        int rows2 = rows - rows1, cols2 = cols - cols1;
+        layout(index, tiles, row, col, rows1, cols1, position);
+        layout(index, tiles, row, col + cols1, rows1, cols2, position + rows1 * cols1);
+        layout(index, tiles, row + rows1, col, rows2, cols1, position + rows1 * cols);
+        layout(index, tiles, row + rows1, col + cols1, rows2, cols2, position + rows1 * cols + rows2 * cols1);
+    }
+
+    public static Matrix matrixMultiplicationMorton(Matrix A, Matrix B, int size) {
+        if (A.size != size || B.size != size) {
+            throw new IllegalArgumentException("Matrices must be " + size + "x" + size + ": " + A.size + ", " + B.size);
+        }
+        MortonMatrix C = new MortonMatrix(size);
+        multiply(MortonMatrix.fromMatrix(A), MortonMatrix.fromMatrix(B), C);
+        return C.toMatrix();
+    }
+
+    // C += A * B for operands of the same size
+    static void multiply(MortonMatrix A, MortonMatrix B, MortonMatrix C) {
+        if (A.size != B.size || A.size != C.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + ", " + B.size + ", " + C.size);
+        }
+        multiply(A.data, 0, B.data, 0, C.data, 0, A.tiles, A.tiles, A.tiles);
+    }
+
+    // C (rows x cols tiles) += A (rows x inner) * B (inner x cols). Each side is split as layout splits it, so
+    // the quadrants of every block are the consecutive ranges 11, 12, 21, 22; halves of zero tiles end the
+    // recursion, which is how uneven splits stay correct without padding to a power of two.
+    private static void multiply(int[] a, int aOff, int[] b, int bOff, int[] c, int cOff,
+                                 int rows, int inner, int cols) {
+        if (rows == 0 || inner == 0 || cols == 0) {
+            return;
+        }
+        if (rows == 1 && inner == 1 && cols == 1) {
+            multiplyLeaf(a, aOff, b, bOff, c, cOff);
+            return;
+        }
+        int r1 = firstHalf(rows), m1 = firstHalf(inner), c1 = firstHalf(cols);
+        int r2 = rows - r1, m2 = inner - m1, c2 = cols - c1;
+        int a11 = aOff, a12 = aOff + r1 * m1 * LEAF_AREA;
+        int a21 = aOff + r1 * inner * LEAF_AREA, a22 = a21 + r2 * m1 * LEAF_AREA;
+        int b11 = bOff, b12 = bOff + m1 * c1 * LEAF_AREA;
+        int b21 = bOff + m1 * cols * LEAF_AREA, b22 = b21 + m2 * c1 * LEAF_AREA;
+        int c11 = cOff, c12 = cOff + r1 * c1 * LEAF_AREA;
+        int c21 = cOff + r1 * cols * LEAF_AREA, c22 = c21 + r2 * c1 * LEAF_AREA;
+
+        // Consecutive products share a quadrant of A, B or C, so one of the three is always still cached
+        multiply(a, a11, b, b11, c, c11, r1, m1, c1);
+        multiply(a, a12, b, b21, c, c11, r1, m2, c1);
+        multiply(a, a12, b, b22, c, c12, r1, m2, c2);
+        multiply(a, a11, b, b12, c, c12, r1, m1, c2);
+        multiply(a, a21, b, b12, c, c22, r2, m1, c2);
+        multiply(a, a22, b, b22, c, c22, r2, m2, c2);
+        multiply(a, a22, b, b21, c, c21, r2, m2, c1);
+        multiply(a, a21, b, b11, c, c21, r2, m1, c1);
+    }
+
+    // i-k-j over one tile of each operand, the j loop streams a row of B and a row of C
+    private static void multiplyLeaf(int[] a, int aOff, int[] b, int bOff, int[] c, int cOff) {
+        for (int i = 0; i < LEAF; i++) {
+            int cRow = cOff + i * LEAF;
+            int aRow = aOff + i * LEAF;
+            for (int k = 0; k < LEAF; k++) {
+                int aik = a[aRow + k];
+                if (aik == 0) {
+                    continue;
+                }
+                int bRow = bOff + k * LEAF;
+                for (int j = 0; j < LEAF; j++) {
+                    c[cRow + j] += aik * b[bRow + j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package cz.cvut.fit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Name -> kernel lookup for every dense algorithm, the single place where an algorithm name is resolved
+public class MultiplierRegistry {
+
+    private static final Map<String, MatrixMultiplier> MULTIPLIERS = new LinkedHashMap<>();
+
+    static {
+        register("basic", Algorithms::matrixMultiplicationBasic);
+        register("loop", Algorithms::matrixMultiplicationLoopUnroll);
+        register("cache", Algorithms::matrixMultiplicationCache);
+        register("strassen", Algorithms::matrixMultiplicationStrassen);
+        // Dense in and out, converts through CSR; Main benchmarks the sparse kernel on CSR inputs directly
+        register("sparse", (A, B, size) -> SparseAlgorithms.matrixMultiplicationSparse(
+                SparseAlgorithms.SparseMatrix.fromMatrix(A), SparseAlgorithms.SparseMatrix.fromMatrix(B)).toMatrix());
+        register("parallel", (A, B, size) ->
+                ParallelAlgorithms.matrixMultiplicationCacheParallel(A, B, size, Main.PARALLELISM, Main.TILE_SIZE));
+        register("strassen-parallel", (A, B, size) ->
+                ParallelStrassen.matrixMultiplicationStrassenParallel(A, B, size, Main.PARALLELISM, 64,
+                        ParallelStrassen.defaultParallelDepth(Main.PARALLELISM)));
+        register("winograd", StrassenWinograd::matrixMultiplicationWinograd);
+        register("vector", VectorAlgorithms::matrixMultiplicationVector);
+        register("morton", MortonAlgorithms::matrixMultiplicationMorton);
+        register("block-sparse", (A, B, size) ->
+                BlockSparseAlgorithms.matrixMultiplicationBlockSparse(A, B, size, Main.BLOCK_TILE));
+        // Chooses each operand's representation from its tile histogram on every call
+        register("hybrid", (A, B, size) -> BlockSparseAlgorithms.matrixMultiplicationHybrid(
+                BlockSparseAlgorithms.HybridMatrix.of(A, Main.BLOCK_TILE), BlockSparseAlgorithms.HybridMatrix.of(B, Main.BLOCK_TILE)));
+        register("auto", new AutoTuner());
+    }
+
+    public static synchronized void register(String name, MatrixMultiplier multiplier) {
+        if (MULTIPLIERS.putIfAbsent(name, multiplier) != null) {
+            throw new IllegalArgumentException("Algorithm already registered: " + name);
+        }
+    }
+
+    public static synchronized MatrixMultiplier get(String name) {
+        MatrixMultiplier multiplier = MULTIPLIERS.get(name);
+        if (multiplier == null) {
+            throw new IllegalArgumentException("Unknown algorithm: " + name);
+        }
+        return multiplier;
+    }
+
+    public static synchronized boolean contains(String name) {
+        return MULTIPLIERS.containsKey(name);
+    }
+
+    // Registration order
+    public static synchronized List<String> names() {
+        return new ArrayList<>(MULTIPLIERS.keySet());
+    }
+}
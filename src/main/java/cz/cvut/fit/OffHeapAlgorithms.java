@@ -0,0 +1,177 @@
+package cz.cvut.fit;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+import cz.cvut.fit.Algorithms.Matrix;
+
+public class OffHeapAlgorithms {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    // Square int matrix in native memory, row-major, freed deterministically by close()
+    static class OffHeapMatrix implements AutoCloseable {
+        final int size;
+        final MemorySegment segment;
+        private final Arena arena;
+
+        OffHeapMatrix(int size) {
+            this.size = size;
+            // Shared so fork/join workers can read and write it, zero-filled on allocation
+            this.arena = Arena.ofShared();
+            this.segment = arena.allocate((long) size * size * Integer.BYTES, 64);
+            Instrumentation.nativeAllocated(segment.byteSize());
+        }
+
+        int get(int i, int j) {
+            return segment.getAtIndex(INT, (long) i * size + j);
+        }
+
+        void set(int i, int j, int value) {
+            segment.setAtIndex(INT, (long) i * size + j, value);
+        }
+
+        static OffHeapMatrix fromMatrix(Matrix M) {
+            OffHeapMatrix result = new OffHeapMatrix(M.size);
+            for (int i = 0; i < M.size; i++) {
+                MemorySegment.copy(M.data[i], 0, result.segment, INT, (long) i * M.size * Integer.BYTES, M.size);
+            }
+            return result;
+        }
+
+        Matrix toMatrix() {
+            Matrix M = new Matrix(size);
+            for (int i = 0; i < size; i++) {
+                MemorySegment.copy(segment, INT, (long) i * size * Integer.BYTES, M.data[i], 0, size);
+            }
+            return M;
+        }
+
+        // Uniform values in [0, bound), for sizes that have no input files
+        static OffHeapMatrix random(int size, long seed, int bound) {
+            OffHeapMatrix result = new OffHeapMatrix(size);
+            SplittableRandom random = new SplittableRandom(seed);
+            long count = (long) size * size;
+            for (long index = 0; index < count; index++) {
+                result.segment.setAtIndex(INT, index, random.nextInt(bound));
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            arena.close();
+            Instrumentation.nativeFreed(segment.byteSize());
+        }
+    }
+
+    // Matrix multiplication - cache optimization, C = A * B with all three matrices off-heap
+    public static void matrixMultiplicationCache(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int tileSize) {
+        checkOperands(A, B, C, tileSize);
+        int tilesPerSide = (A.size + tileSize - 1) / tileSize;
+        new TileTask(A, B, C, tileSize, tilesPerSide, 0, tilesPerSide * tilesPerSide).compute();
+    }
+
+    // Matrix multiplication - cache optimization on a fork/join pool, each task owns a disjoint set of C tiles
+    public static void matrixMultiplicationCacheParallel(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C,
+                                                         int parallelism, int tileSize) {
+        checkOperands(A, B, C, tileSize);
+        int tilesPerSide = (A.size + tileSize - 1) / tileSize;
+        ParallelAlgorithms.pool(parallelism).invoke(new TileTask(A, B, C, tileSize, tilesPerSide, 0, tilesPerSide * tilesPerSide));
+    }
+
+    private static void checkOperands(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int tileSize) {
+        if (A.size != B.size || A.size != C.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + ", " + B.size + ", " + C.size);
+        }
+        if (C == A || C == B) {
+            throw new IllegalArgumentException("Result matrix must not alias an operand");
+        }
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+    }
+
+    // Per-thread tile buffers, so a run allocates nothing on the heap once every worker has its buffers
+    private static final ThreadLocal<int[][]> TILE_BUFFERS = new ThreadLocal<>();
+
+    private static int[][] tileBuffers(int tileSize) {
+        int[][] buffers = TILE_BUFFERS.get();
+        if (buffers == null || buffers[0].length < tileSize * tileSize) {
+            int elements = tileSize * tileSize;
+            buffers = new int[][]{new int[elements], new int[elements], new int[elements]};
+            TILE_BUFFERS.set(buffers);
+        }
+        return buffers;
+    }
+
+    // Splits a range of output tiles in halves; a leaf copies A and B tiles onto the heap, multiplies, writes its C tile back
+    private static class TileTask extends RecursiveAction {
+        private final OffHeapMatrix A, B, C;
+        private final int tileSize, tilesPerSide;
+        private final int from, to;
+
+        TileTask(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int tileSize, int tilesPerSide, int from, int to) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.tileSize = tileSize;
+            this.tilesPerSide = tilesPerSide;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1 || getPool() == null) {
+                for (int tile = from; tile < to; tile++) {
+                    multiplyTile(tile / tilesPerSide * tileSize, tile % tilesPerSide * tileSize);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(A, B, C, tileSize, tilesPerSide, from, mid),
+                    new TileTask(A, B, C, tileSize, tilesPerSide, mid, to));
+        }
+
+        private void multiplyTile(int ii, int jj) {
+            int n = A.size;
+            int rows = Math.min(tileSize, n - ii);
+            int cols = Math.min(tileSize, n - jj);
+            int[][] buffers = tileBuffers(tileSize);
+            int[] aTile = buffers[0], bTile = buffers[1], cTile = buffers[2];
+            Arrays.fill(cTile, 0, rows * tileSize, 0);
+
+            for (int kk = 0; kk < n; kk += tileSize) {
+                int depth = Math.min(tileSize, n - kk);
+                for (int i = 0; i < rows; i++) {
+                    MemorySegment.copy(A.segment, INT, ((long) (ii + i) * n + kk) * Integer.BYTES, aTile, i * tileSize, depth);
+                }
+                for (int k = 0; k < depth; k++) {
+                    MemorySegment.copy(B.segment, INT, ((long) (kk + k) * n + jj) * Integer.BYTES, bTile, k * tileSize, cols);
+                }
+
+                for (int i = 0; i < rows; i++) {
+                    int ci = i * tileSize;
+                    for (int k = 0; k < depth; k++) {
+                        int aik = aTile[i * tileSize + k];
+                        if (aik == 0) {
+                            continue;
+                        }
+                        int bk = k * tileSize;
+                        for (int j = 0; j < cols; j++) {
+                            cTile[ci + j] += aik * bTile[bk + j];
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < rows; i++) {
+                MemorySegment.copy(cTile, i * tileSize, C.segment, INT, ((long) (ii + i) * n + jj) * Integer.BYTES, cols);
+            }
+        }
+    }
+}
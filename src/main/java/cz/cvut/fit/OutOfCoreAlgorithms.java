@@ -0,0 +1,451 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Multiplication of matrices stored as tiles on local disk. Only a bounded cache of tiles is in memory:
+// an I/O thread reads the tiles of the next steps ahead of the compute thread and writes finished C tiles
+// behind it, so disk time overlaps with compute time.
+public class OutOfCoreAlgorithms {
+
+    // Square int matrix as tileSize x tileSize tiles in one file, tile (ti, tj) at index ti * tilesPerSide + tj.
+    // Edge tiles are stored zero-padded to full size so every tile has the same length.
+    static class TiledMatrix implements AutoCloseable {
+        final Path path;
+        final int size;
+        final int tileSize;
+        final int tilesPerSide;
+        private final FileChannel channel;
+
+        private TiledMatrix(Path path, int size, int tileSize, FileChannel channel) {
+            this.path = path;
+            this.size = size;
+            this.tileSize = tileSize;
+            this.tilesPerSide = (size + tileSize - 1) / tileSize;
+            this.channel = channel;
+        }
+
+        // New file of size x size zeros (sparse on most file systems until tiles are written)
+        static TiledMatrix create(Path path, int size, int tileSize) throws IOException {
+            if (size < 1 || tileSize < 1) {
+                throw new IllegalArgumentException("Size and tile size must be positive: " + size + ", " + tileSize);
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            TiledMatrix matrix = new TiledMatrix(path, size, tileSize, channel);
+            channel.write(ByteBuffer.allocate(1), matrix.fileBytes() - 1);
+            return matrix;
+        }
+
+        static TiledMatrix fromMatrix(Matrix M, Path path, int tileSize) throws IOException {
+            TiledMatrix result = create(path, M.size, tileSize);
+            result.fill((i, j) -> M.data[i][j]);
+            return result;
+        }
+
+        // Tiles a dense binary matrix file through its mapping, the matrix is never loaded onto the heap
+        static TiledMatrix fromBinary(Path binary, Path path, int tileSize) throws IOException {
+            BinaryMatrixFormat.MappedDense source = BinaryMatrixFormat.mapDense(binary);
+            TiledMatrix result = create(path, source.size, tileSize);
+            result.fill(source::get);
+            return result;
+        }
+
+        // Uniform values in [0, bound), for sizes that have no input files
+        static TiledMatrix random(Path path, int size, int tileSize, long seed, int bound) throws IOException {
+            TiledMatrix result = create(path, size, tileSize);
+            SplittableRandom random = new SplittableRandom(seed);
+            result.fill((i, j) -> random.nextInt(bound));
+            return result;
+        }
+
+        private interface ElementSource {
+            int get(int i, int j);
+        }
+
+        // Writes every tile from source, visiting elements tile by tile with one tile of memory
+        private void fill(ElementSource source) throws IOException {
+            int[] tile = new int[tileSize * tileSize];
+            ByteBuffer buffer = tileBuffer();
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int tj = 0; tj < tilesPerSide; tj++) {
+                    Arrays.fill(tile, 0);
+                    int rows = Math.min(tileSize, size - ti * tileSize);
+                    int cols = Math.min(tileSize, size - tj * tileSize);
+                    for (int i = 0; i < rows; i++) {
+                        for (int j = 0; j < cols; j++) {
+                            tile[i * tileSize + j] = source.get(ti * tileSize + i, tj * tileSize + j);
+                        }
+                    }
+                    writeTile(ti, tj, tile, buffer);
+                }
+            }
+        }
+
+        Matrix toMatrix() throws IOException {
+            Matrix M = new Matrix(size);
+            int[] tile = new int[tileSize * tileSize];
+            ByteBuffer buffer = tileBuffer();
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int tj = 0; tj < tilesPerSide; tj++) {
+                    readTile(ti, tj, tile, buffer);
+                    int rows = Math.min(tileSize, size - ti * tileSize);
+                    int cols = Math.min(tileSize, size - tj * tileSize);
+                    for (int i = 0; i < rows; i++) {
+                        System.arraycopy(tile, i * tileSize, M.data[ti * tileSize + i], tj * tileSize, cols);
+                    }
+                }
+            }
+            return M;
+        }
+
+        // y = this * x mod 2^32, streaming the tiles with one tile of memory
+        int[] multiplyVector(int[] x) throws IOException {
+            int[] y = new int[size];
+            int[] tile = new int[tileSize * tileSize];
+            ByteBuffer buffer = tileBuffer();
+            for (int ti = 0; ti < tilesPerSide; ti++) {
+                for (int tj = 0; tj < tilesPerSide; tj++) {
+                    readTile(ti, tj, tile, buffer);
+                    int rows = Math.min(tileSize, size - ti * tileSize);
+                    int cols = Math.min(tileSize, size - tj * tileSize);
+                    for (int i = 0; i < rows; i++) {
+                        int sum = 0;
+                        for (int j = 0; j < cols; j++) {
+                            sum += tile[i * tileSize + j] * x[tj * tileSize + j];
+                        }
+                        y[ti * tileSize + i] += sum;
+                    }
+                }
+            }
+            return y;
+        }
+
+        long tileBytes() {
+            return (long) tileSize * tileSize * Integer.BYTES;
+        }
+
+        long fileBytes() {
+            return (long) tilesPerSide * tilesPerSide * tileBytes();
+        }
+
+        // Reusable little-endian transfer buffer for readTile and writeTile
+        ByteBuffer tileBuffer() {
+            return ByteBuffer.allocateDirect((int) tileBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void readTile(int ti, int tj, int[] dst, ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            long position = ((long) ti * tilesPerSide + tj) * tileBytes();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of tile file " + path);
+                }
+            }
+            buffer.flip();
+            buffer.asIntBuffer().get(dst, 0, tileSize * tileSize);
+        }
+
+        void writeTile(int ti, int tj, int[] src, ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            buffer.asIntBuffer().put(src, 0, tileSize * tileSize);
+            long position = ((long) ti * tilesPerSide + tj) * tileBytes();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Counters of one multiplication; times in nanoseconds
+    static class Stats {
+        long steps;      // tile products, each uses one A and one B tile
+        long tileReads;  // tiles read from disk, on demand or ahead
+        long evictions;
+        long bytesRead;
+        long bytesWritten;
+        long ioNanos;
+        long computeNanos;
+        long stallNanos;
+        long wallNanos;
+        int cachedTiles;
+
+        // Share of the I/O thread's busy time during which the compute thread did not wait for it
+        double overlap() {
+            return ioNanos == 0 ? 1 : Math.max(0, 1 - (double) stallNanos / ioNanos);
+        }
+
+        // Share of the tiles the steps used that did not have to be read again
+        double hitRate() {
+            long requests = 2 * steps;
+            return requests == 0 ? 0 : Math.max(0, 1 - (double) tileReads / requests);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("cache=%d tiles, reads=%d, hits=%.1f%%, evictions=%d, read=%.1fMB, written=%.1fMB, "
+                            + "io=%.3fs, compute=%.3fs, stall=%.3fs, wall=%.3fs, overlap=%.1f%%",
+                    cachedTiles, tileReads, 100 * hitRate(), evictions, bytesRead / (1024.0 * 1024.0), bytesWritten / (1024.0 * 1024.0),
+                    ioNanos / 1e9, computeNanos / 1e9, stallNanos / 1e9, wallNanos / 1e9, 100 * overlap());
+        }
+    }
+
+    // C = A * B with at most budgetBytes of tiles in memory, reading up to prefetchDepth steps ahead.
+    // C must be a distinct tile file of the same size and tile size.
+    public static Stats matrixMultiplication(TiledMatrix A, TiledMatrix B, TiledMatrix C, long budgetBytes,
+                                             int prefetchDepth) throws IOException {
+        if (A.size != B.size || A.size != C.size || A.tileSize != B.tileSize || A.tileSize != C.tileSize) {
+            throw new IllegalArgumentException("Tile files differ in size or tile size");
+        }
+        if (C == A || C == B) {
+            throw new IllegalArgumentException("Result matrix must not alias an operand");
+        }
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("Prefetch depth must not be negative: " + prefetchDepth);
+        }
+        // Two output tiles (one computing, one being written) plus the A and B tiles of the current and prefetched steps
+        long tileBytes = A.tileBytes();
+        long capacity = budgetBytes / tileBytes - 2;
+        long needed = 2L * (prefetchDepth + 1);
+        if (capacity < needed) {
+            throw new IllegalArgumentException("Memory budget of " + budgetBytes + " bytes holds " + Math.max(capacity, 0)
+                    + " cached tiles of " + tileBytes + " bytes, at least " + needed + " are needed");
+        }
+
+        ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tile-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return new Multiplication(A, B, C, (int) Math.min(capacity, Integer.MAX_VALUE), prefetchDepth, io).run();
+        } finally {
+            io.shutdown();
+        }
+    }
+
+    // One run: the step schedule, the tile cache and the counters
+    private static class Multiplication {
+        private final TiledMatrix A, B, C;
+        private final int t;
+        private final int capacity;
+        private final int prefetchDepth;
+        private final ExecutorService io;
+        private final Stats stats = new Stats();
+        private final AtomicLong ioNanos = new AtomicLong();
+
+        // LRU order: access-ordered, the eldest entry is the least recently used tile
+        private final LinkedHashMap<Long, CompletableFuture<int[]>> cache = new LinkedHashMap<>(16, 0.75f, true);
+        private final ArrayDeque<int[]> freeTiles = new ArrayDeque<>();
+        private final ArrayDeque<int[]> freeOutputTiles = new ArrayDeque<>();
+        private long pinnedA = -1, pinnedB = -1;
+
+        // I/O thread transfer buffer, only touched by tasks on the single-threaded executor
+        private final ByteBuffer ioBuffer;
+
+        Multiplication(TiledMatrix A, TiledMatrix B, TiledMatrix C, int capacity, int prefetchDepth, ExecutorService io) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.t = A.tilesPerSide;
+            this.capacity = capacity;
+            this.prefetchDepth = prefetchDepth;
+            this.io = io;
+            this.ioBuffer = A.tileBuffer();
+            stats.cachedTiles = capacity;
+        }
+
+        // Step s multiplies A(i, k) by B(k, j) into C(i, j). C tiles go row by row and k runs forwards and
+        // backwards on alternate tiles, so the tiles used last are the first ones needed again and LRU keeps them.
+        private int stepI(long s) {
+            return (int) (s / ((long) t * t));
+        }
+
+        private int stepJ(long s) {
+            return (int) (s / t % t);
+        }
+
+        private int stepK(long s) {
+            int k = (int) (s % t);
+            return (stepI(s) * t + stepJ(s)) % 2 == 0 ? k : t - 1 - k;
+        }
+
+        Stats run() throws IOException {
+            long start = System.nanoTime();
+            long steps = (long) t * t * t;
+            stats.steps = steps;
+            int elements = C.tileSize * C.tileSize;
+            freeOutputTiles.add(new int[elements]);
+            freeOutputTiles.add(new int[elements]);
+            CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+            int[] cTile = null;
+            for (long s = 0; s < steps; s++) {
+                // The current tiles are requested before the prefetches so they are never the least recently used
+                pinnedA = key(0, stepI(s), stepK(s));
+                pinnedB = key(1, stepK(s), stepJ(s));
+                CompletableFuture<int[]> aFuture = request(A, 0, stepI(s), stepK(s));
+                CompletableFuture<int[]> bFuture = request(B, 1, stepK(s), stepJ(s));
+                for (long p = s + 1; p <= Math.min(s + prefetchDepth, steps - 1); p++) {
+                    request(A, 0, stepI(p), stepK(p));
+                    request(B, 1, stepK(p), stepJ(p));
+                }
+                if (s % t == 0) {
+                    cTile = takeOutputTile();
+                    Arrays.fill(cTile, 0);
+                }
+
+                int[] aTile = await(aFuture);
+                int[] bTile = await(bFuture);
+
+                long computeStart = System.nanoTime();
+                multiplyTile(aTile, bTile, cTile, C.tileSize);
+                stats.computeNanos += System.nanoTime() - computeStart;
+
+                if (s % t == t - 1) {
+                    lastWrite = writeBehind(stepI(s), stepJ(s), cTile);
+                }
+            }
+            await(lastWrite);
+
+            stats.ioNanos = ioNanos.get();
+            stats.wallNanos = System.nanoTime() - start;
+            return stats;
+        }
+
+        private static long key(int matrix, int ti, int tj) {
+            return ((long) matrix << 62) | ((long) ti << 31) | tj;
+        }
+
+        // Cached future of a tile, submitting its read to the I/O thread on a miss
+        private synchronized CompletableFuture<int[]> request(TiledMatrix M, int matrix, int ti, int tj) {
+            long key = key(matrix, ti, tj);
+            CompletableFuture<int[]> tile = cache.get(key);
+            if (tile != null) {
+                return tile;
+            }
+            stats.tileReads++;
+            evictFor(1);
+            int[] dst = freeTiles.isEmpty() ? new int[M.tileSize * M.tileSize] : freeTiles.poll();
+            tile = CompletableFuture.supplyAsync(() -> {
+                long ioStart = System.nanoTime();
+                try {
+                    M.readTile(ti, tj, dst, ioBuffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    ioNanos.addAndGet(System.nanoTime() - ioStart);
+                }
+                return dst;
+            }, io);
+            stats.bytesRead += M.tileBytes();
+            cache.put(key, tile);
+            return tile;
+        }
+
+        // Evicts least recently used tiles that are loaded and not in use by the current step
+        private void evictFor(int incoming) {
+            Iterator<Map.Entry<Long, CompletableFuture<int[]>>> entries = cache.entrySet().iterator();
+            while (cache.size() + incoming > capacity && entries.hasNext()) {
+                Map.Entry<Long, CompletableFuture<int[]>> entry = entries.next();
+                long key = entry.getKey();
+                CompletableFuture<int[]> tile = entry.getValue();
+                if (key == pinnedA || key == pinnedB || !tile.isDone() || tile.isCompletedExceptionally()) {
+                    continue;
+                }
+                entries.remove();
+                freeTiles.add(tile.join());
+                stats.evictions++;
+            }
+        }
+
+        // Queues the finished C tile for writing; the buffer returns to the pool once it is on disk
+        private CompletableFuture<Void> writeBehind(int ti, int tj, int[] cTile) {
+            stats.bytesWritten += C.tileBytes();
+            return CompletableFuture.runAsync(() -> {
+                long ioStart = System.nanoTime();
+                try {
+                    C.writeTile(ti, tj, cTile, ioBuffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    ioNanos.addAndGet(System.nanoTime() - ioStart);
+                    synchronized (this) {
+                        freeOutputTiles.add(cTile);
+                        notifyAll();
+                    }
+                }
+            }, io);
+        }
+
+        private synchronized int[] takeOutputTile() throws IOException {
+            long stallStart = System.nanoTime();
+            try {
+                while (freeOutputTiles.isEmpty()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a tile write", e);
+            }
+            stats.stallNanos += System.nanoTime() - stallStart;
+            return freeOutputTiles.poll();
+        }
+
+        // Waits for an I/O task, the waiting time is what prefetching did not hide
+        private <T> T await(CompletableFuture<T> future) throws IOException {
+            long stallStart = System.nanoTime();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for tile I/O", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IOException("Tile I/O failed", e.getCause());
+            } finally {
+                stats.stallNanos += System.nanoTime() - stallStart;
+            }
+        }
+    }
+
+    // c += a * b on full t x t tiles, i-k-j order
+    static void multiplyTile(int[] a, int[] b, int[] c, int t) {
+        for (int i = 0; i < t; i++) {
+            int ci = i * t;
+            for (int k = 0; k < t; k++) {
+                int aik = a[ci + k];
+                if (aik == 0) {
+                    continue;
+                }
+                int bk = k * t;
+                for (int j = 0; j < t; j++) {
+                    c[ci + j] += aik * b[bk + j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package cz.cvut.fit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import cz.cvut.fit.Algorithms.Matrix;
+
+public class ParallelAlgorithms {
+
+    // One pool per parallelism level, reused across calls so benchmarks do not measure thread start-up
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    static ForkJoinPool pool(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    // Matrix multiplication - cache optimization on all cores, each task owns a disjoint set of C tiles
+    public static Matrix matrixMultiplicationCacheParallel(Matrix A, Matrix B, int size, int parallelism, int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        Matrix C = new Matrix(size);
+        // No tiles to split: the task below only stops at a range of exactly one tile
+        if (size == 0) {
+            return C;
+        }
+        int tilesPerSide = (size + tileSize - 1) / tileSize;
+        pool(parallelism).invoke(new TileTask(A, B, C, size, tileSize, tilesPerSide, 0, tilesPerSide * tilesPerSide));
+        return C;
+    }
+
+    // Splits a range of output tiles (numbered row-major) in halves until a single tile remains
+    private static class TileTask extends RecursiveAction {
+        private final Matrix A, B, C;
+        private final int size, tileSize, tilesPerSide;
+        private final int from, to;
+
+        TileTask(Matrix A, Matrix B, Matrix C, int size, int tileSize, int tilesPerSide, int from, int to) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.size = size;
+            this.tileSize = tileSize;
+            this.tilesPerSide = tilesPerSide;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                multiplyTile(from / tilesPerSide * tileSize, from % tilesPerSide * tileSize);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(A, B, C, size, tileSize, tilesPerSide, from, mid),
+                    new TileTask(A, B, C, size, tileSize, tilesPerSide, mid, to));
+        }
+
+        // C[ii.., jj..] = sum over kk of A[ii.., kk..] * B[kk.., jj..], in i-k-j order inside the tile
+        private void multiplyTile(int ii, int jj) {
+            int iEnd = Math.min(ii + tileSize, size);
+            int jEnd = Math.min(jj + tileSize, size);
+            for (int kk = 0; kk < size; kk += tileSize) {
+                int kEnd = Math.min(kk + tileSize, size);
+                for (int i = ii; i < iEnd; i++) {
+                    int[] rowA = A.data[i];
+                    int[] rowC = C.data[i];
+                    for (int k = kk; k < kEnd; k++) {
+                        int aik = rowA[k];
+                        if (aik == 0) {
+                            continue;
+                        }
+                        int[] rowB = B.data[k];
+                        for (int j = jj; j < jEnd; j++) {
+                            rowC[j] += aik * rowB[j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Strassen's algorithm on flat views (array, offset, stride) into one preallocated workspace arena.
+// The top parallelDepth levels run their seven products as fork/join tasks, deeper levels run sequentially.
+public class ParallelStrassen {
+
+    // Arena kept between calls, so repeated multiplications of the same size allocate only the result
+    private static final AtomicReference<int[]> CACHED_ARENA = new AtomicReference<>();
+
+    public static Matrix matrixMultiplicationStrassenParallel(Matrix A, Matrix B, int size) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return matrixMultiplicationStrassenParallel(A, B, size, parallelism, 64, defaultParallelDepth(parallelism));
+    }
+
+    // 7 tasks per level, two levels are enough to keep up to 49 workers busy
+    static int defaultParallelDepth(int parallelism) {
+        if (parallelism <= 1) {
+            return 0;
+        }
+        return parallelism <= 7 ? 1 : 2;
+    }
+
+    public static Matrix matrixMultiplicationStrassenParallel(Matrix A, Matrix B, int size,
+                                                             int parallelism, int cutoff, int parallelDepth) {
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        }
+
+        // Split until the leaf is at most cutoff, then pad once to leaf * 2^levels instead of to a power of two
+        int levels = 0;
+        while (ceilDiv(size, 1 << levels) > cutoff) {
+            levels++;
+        }
+        int leaf = ceilDiv(size, 1 << levels);
+        int n = leaf << levels;
+        parallelDepth = Math.min(parallelDepth, levels);
+
+        long needed = 3L * n * n + workspaceSize(n, levels, 0, parallelDepth);
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Workspace for size " + size + " exceeds a single array, lower parallelDepth");
+        }
+
+        int[] arena = CACHED_ARENA.getAndSet(null);
+        if (arena == null || arena.length < needed) {
+            arena = new int[(int) needed];
+        }
+
+        try {
+            int aOff = 0;
+            int bOff = n * n;
+            int cOff = 2 * n * n;
+            int wsOff = 3 * n * n;
+            copyPadded(A, size, arena, aOff, n);
+            copyPadded(B, size, arena, bOff, n);
+
+            Multiply root = new Multiply(arena, aOff, n, arena, bOff, n, arena, cOff, n, n, levels, 0, parallelDepth, arena, wsOff);
+            if (parallelDepth > 0) {
+                ParallelAlgorithms.pool(parallelism).invoke(root);
+            } else {
+                root.compute();
+            }
+
+            Matrix C = new Matrix(size);
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(arena, cOff + i * n, C.data[i], 0, size);
+            }
+            return C;
+        } finally {
+            CACHED_ARENA.set(arena);
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    // Workspace ints needed below a node of size n with the given levels left to split
+    static long workspaceSize(int n, int levels, int depth, int parallelDepth) {
+        if (levels == 0) {
+            return 0;
+        }
+        long h = n / 2;
+        long child = workspaceSize(n / 2, levels - 1, depth + 1, parallelDepth);
+        if (depth < parallelDepth) {
+            // Every task owns two operand temporaries, its product and the workspace of its subtree
+            return 7 * (3 * h * h + child);
+        }
+        // Sequential levels reuse two operand temporaries and one product buffer
+        return 3 * h * h + child;
+    }
+
+    private static void copyPadded(Matrix M, int size, int[] dst, int off, int n) {
+        for (int i = 0; i < n; i++) {
+            int row = off + i * n;
+            if (i < size) {
+                System.arraycopy(M.data[i], 0, dst, row, size);
+                Arrays.fill(dst, row + size, row + n, 0);
+            } else {
+                Arrays.fill(dst, row, row + n, 0);
+            }
+        }
+    }
+
+    // C = A * B for n x n views, recursing with Strassen's seven products
+    private static class Multiply extends RecursiveAction {
+        private final int[] a, b, c, ws;
+        private final int aOff, aStride, bOff, bStride, cOff, cStride;
+        private final int n, levels, depth, parallelDepth, wsOff;
+
+        Multiply(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride, int[] c, int cOff, int cStride,
+                 int n, int levels, int depth, int parallelDepth, int[] ws, int wsOff) {
+            this.a = a;
+            this.aOff = aOff;
+            this.aStride = aStride;
+            this.b = b;
+            this.bOff = bOff;
+            this.bStride = bStride;
+            this.c = c;
+            this.cOff = cOff;
+            this.cStride = cStride;
+            this.n = n;
+            this.levels = levels;
+            this.depth = depth;
+            this.parallelDepth = parallelDepth;
+            this.ws = ws;
+            this.wsOff = wsOff;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth < parallelDepth && levels > 0) {
+                computeParallel();
+            } else {
+                multiplySequential(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, levels, ws, wsOff);
+            }
+        }
+
+        private void computeParallel() {
+            int h = n / 2;
+            int hh = h * h;
+            long child = workspaceSize(h, levels - 1, depth + 1, parallelDepth);
+            int slot = (int) (3L * hh + child);
+
+            Product[] products = new Product[7];
+            for (int p = 0; p < 7; p++) {
+                products[p] = new Product(this, p + 1, wsOff + p * slot, h);
+            }
+            invokeAll(products);
+
+            // M1..M7 sit at the start of each slot's product buffer
+            int m1 = products[0].mOff, m2 = products[1].mOff, m3 = products[2].mOff, m4 = products[3].mOff;
+            int m5 = products[4].mOff, m6 = products[5].mOff, m7 = products[6].mOff;
+            int c11 = cOff, c12 = cOff + h, c21 = cOff + h * cStride, c22 = c21 + h;
+            for (int i = 0; i < h; i++) {
+                int r = i * h;
+                int ci = i * cStride;
+                for (int j = 0; j < h; j++) {
+                    int x1 = ws[m1 + r + j], x2 = ws[m2 + r + j], x3 = ws[m3 + r + j], x4 = ws[m4 + r + j];
+                    int x5 = ws[m5 + r + j], x6 = ws[m6 + r + j], x7 = ws[m7 + r + j];
+                    c[c11 + ci + j] = x1 + x4 - x5 + x7;
+                    c[c12 + ci + j] = x3 + x5;
+                    c[c21 + ci + j] = x2 + x4;
+                    c[c22 + ci + j] = x1 - x2 + x3 + x6;
+                }
+            }
+        }
+    }
+
+    // One of M1..M7: builds its operands in its own slot of the arena and multiplies them into its product buffer
+    private static class Product extends RecursiveAction {
+        private final Multiply parent;
+        private final int index, slotOff, h;
+        final int mOff;
+
+        Product(Multiply parent, int index, int slotOff, int h) {
+            this.parent = parent;
+            this.index = index;
+            this.slotOff = slotOff;
+            this.h = h;
+            this.mOff = slotOff + 2 * h * h;
+        }
+
+        @Override
+        protected void compute() {
+            Multiply p = parent;
+            int[] ws = p.ws;
+            int t1 = slotOff, t2 = slotOff + h * h;
+            int a11 = p.aOff, a12 = a11 + h, a21 = a11 + h * p.aStride, a22 = a21 + h;
+            int b11 = p.bOff, b12 = b11 + h, b21 = b11 + h * p.bStride, b22 = b21 + h;
+
+            // Each operand is either a quadrant view of the parent or a sum/difference in a temporary
+            int[] x = ws, y = ws;
+            int xOff = t1, xStride = h, yOff = t2, yStride = h;
+            switch (index) {
+                case 1:
+                    combine(p.a, a11, p.aStride, p.a, a22, p.aStride, 1, ws, t1, h, h);
+                    combine(p.b, b11, p.bStride, p.b, b22, p.bStride, 1, ws, t2, h, h);
+                    break;
+                case 2:
+                    combine(p.a, a21, p.aStride, p.a, a22, p.aStride, 1, ws, t1, h, h);
+                    y = p.b; yOff = b11; yStride = p.bStride;
+                    break;
+                case 3:
+                    x = p.a; xOff = a11; xStride = p.aStride;
+                    combine(p.b, b12, p.bStride, p.b, b22, p.bStride, -1, ws, t2, h, h);
+                    break;
+                case 4:
+                    x = p.a; xOff = a22; xStride = p.aStride;
+                    combine(p.b, b21, p.bStride, p.b, b11, p.bStride, -1, ws, t2, h, h);
+                    break;
+                case 5:
+                    combine(p.a, a11, p.aStride, p.a, a12, p.aStride, 1, ws, t1, h, h);
+                    y = p.b; yOff = b22; yStride = p.bStride;
+                    break;
+                case 6:
+                    combine(p.a, a21, p.aStride, p.a, a11, p.aStride, -1, ws, t1, h, h);
+                    combine(p.b, b11, p.bStride, p.b, b12, p.bStride, 1, ws, t2, h, h);
+                    break;
+                default:
+                    combine(p.a, a12, p.aStride, p.a, a22, p.aStride, -1, ws, t1, h, h);
+                    combine(p.b, b21, p.bStride, p.b, b22, p.bStride, 1, ws, t2, h, h);
+                    break;
+            }
+
+            new Multiply(x, xOff, xStride, y, yOff, yStride, ws, mOff, h,
+                    h, p.levels - 1, p.depth + 1, p.parallelDepth, ws, mOff + h * h).compute();
+        }
+    }
+
+    // Sequential Strassen: each product is accumulated into the C quadrants as soon as it is computed
+    static void multiplySequential(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                                   int[] c, int cOff, int cStride, int n, int levels, int[] ws, int wsOff) {
+        if (levels == 0) {
+            multiplyLeaf(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n);
+            return;
+        }
+
+        int h = n / 2;
+        int t1 = wsOff, t2 = wsOff + h * h, m = wsOff + 2 * h * h, sub = wsOff + 3 * h * h;
+        int a11 = aOff, a12 = aOff + h, a21 = aOff + h * aStride, a22 = a21 + h;
+        int b11 = bOff, b12 = bOff + h, b21 = bOff + h * bStride, b22 = b21 + h;
+        int c11 = cOff, c12 = cOff + h, c21 = cOff + h * cStride, c22 = c21 + h;
+
+        // M1 = (A11 + A22)(B11 + B22): C11 = M1, C22 = M1
+        combine(a, a11, aStride, a, a22, aStride, 1, ws, t1, h, h);
+        combine(b, b11, bStride, b, b22, bStride, 1, ws, t2, h, h);
+        multiplySequential(ws, t1, h, ws, t2, h, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c11, cStride, h, 0);
+        accumulate(ws, m, c, c22, cStride, h, 0);
+
+        // M2 = (A21 + A22) B11: C21 = M2, C22 -= M2
+        combine(a, a21, aStride, a, a22, aStride, 1, ws, t1, h, h);
+        multiplySequential(ws, t1, h, b, b11, bStride, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c21, cStride, h, 0);
+        accumulate(ws, m, c, c22, cStride, h, -1);
+
+        // M3 = A11 (B12 - B22): C12 = M3, C22 += M3
+        combine(b, b12, bStride, b, b22, bStride, -1, ws, t2, h, h);
+        multiplySequential(a, a11, aStride, ws, t2, h, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c12, cStride, h, 0);
+        accumulate(ws, m, c, c22, cStride, h, 1);
+
+        // M4 = A22 (B21 - B11): C11 += M4, C21 += M4
+        combine(b, b21, bStride, b, b11, bStride, -1, ws, t2, h, h);
+        multiplySequential(a, a22, aStride, ws, t2, h, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c11, cStride, h, 1);
+        accumulate(ws, m, c, c21, cStride, h, 1);
+
+        // M5 = (A11 + A12) B22: C11 -= M5, C12 += M5
+        combine(a, a11, aStride, a, a12, aStride, 1, ws, t1, h, h);
+        multiplySequential(ws, t1, h, b, b22, bStride, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c11, cStride, h, -1);
+        accumulate(ws, m, c, c12, cStride, h, 1);
+
+        // M6 = (A21 - A11)(B11 + B12): C22 += M6
+        combine(a, a21, aStride, a, a11, aStride, -1, ws, t1, h, h);
+        combine(b, b11, bStride, b, b12, bStride, 1, ws, t2, h, h);
+        multiplySequential(ws, t1, h, ws, t2, h, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c22, cStride, h, 1);
+
+        // M7 = (A12 - A22)(B21 + B22): C11 += M7
+        combine(a, a12, aStride, a, a22, aStride, -1, ws, t1, h, h);
+        combine(b, b21, bStride, b, b22, bStride, 1, ws, t2, h, h);
+        multiplySequential(ws, t1, h, ws, t2, h, ws, m, h, h, levels - 1, ws, sub);
+        accumulate(ws, m, c, c11, cStride, h, 1);
+    }
+
+    // out = x + sign * y on n x n views
+    private static void combine(int[] x, int xOff, int xStride, int[] y, int yOff, int yStride, int sign,
+                                int[] out, int outOff, int outStride, int n) {
+        for (int i = 0; i < n; i++) {
+            int xi = xOff + i * xStride, yi = yOff + i * yStride, oi = outOff + i * outStride;
+            if (sign > 0) {
+                for (int j = 0; j < n; j++) {
+                    out[oi + j] = x[xi + j] + y[yi + j];
+                }
+            } else {
+                for (int j = 0; j < n; j++) {
+                    out[oi + j] = x[xi + j] - y[yi + j];
+                }
+            }
+        }
+    }
+
+    // Compact n x n block m (stride n) into the C view: sign 0 assigns, 1 adds, -1 subtracts
+    private static void accumulate(int[] m, int mOff, int[] c, int cOff, int cStride, int n, int sign) {
+        for (int i = 0; i < n; i++) {
+            int mi = mOff + i * n, ci = cOff + i * cStride;
+            if (sign == 0) {
+                System.arraycopy(m, mi, c, ci, n);
+            } else if (sign > 0) {
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += m[mi + j];
+                }
+            } else {
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] -= m[mi + j];
+                }
+            }
+        }
+    }
+
+    // Base case on views, i-k-j order so the inner loop streams rows of B and C
+    static void multiplyLeaf(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                             int[] c, int cOff, int cStride, int n) {
+        for (int i = 0; i < n; i++) {
+            int ci = cOff + i * cStride;
+            Arrays.fill(c, ci, ci + n, 0);
+            int ai = aOff + i * aStride;
+            for (int k = 0; k < n; k++) {
+                int aik = a[ai + k];
+                if (aik == 0) {
+                    continue;
+                }
+                int bk = bOff + k * bStride;
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += aik * b[bk + j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package cz.cvut.fit;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Memoized products keyed by the content of the operands: A * B is computed once per distinct pair of
+// ContentHash digests, whichever algorithm the caller asks for, since every int kernel gives the same result.
+// Products stay in memory in LRU order up to a byte budget; with a directory, each one is also written there
+// as a binary matrix file, so evicted products and later runs read them back instead of multiplying again.
+// Callers asking for a product that is being computed wait for that computation instead of starting their own.
+// Returned matrices are shared between callers and must not be modified.
+public class ResultCache {
+
+    // A matrix with the ContentHash of its values, taken while it was loaded or computed
+    static class Operand {
+        final Matrix matrix;
+        final String hash;
+
+        Operand(Matrix matrix, String hash) {
+            this.matrix = matrix;
+            this.hash = hash;
+        }
+
+        static Operand of(Matrix M) {
+            return new Operand(M, ContentHash.of(M));
+        }
+    }
+
+    private final Path directory;
+
+    // Products kept in memory; its hits count requests that waited for another caller's computation too
+    final SingleFlightCache<Matrix> products;
+
+    // Products read from the directory and computed
+    long diskHits;
+    long misses;
+
+    // directory may be null for a memory-only cache
+    public ResultCache(long budgetBytes, Path directory) throws IOException {
+        this.products = new SingleFlightCache<>(budgetBytes, ResultCache::bytesOf);
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    public Matrix multiply(Operand A, Operand B, MatrixMultiplier multiplier) {
+        if (A.matrix.size != B.matrix.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.matrix.size + ", " + B.matrix.size);
+        }
+        String key = key(A, B);
+        return products.get(key, () -> {
+            Matrix C = readStored(key);
+            if (C == null) {
+                C = multiplier.multiply(A.matrix, B.matrix, A.matrix.size);
+                store(key, C);
+            }
+            return C;
+        });
+    }
+
+    // The product of A and B if it is held in memory, null otherwise; nothing is counted or computed
+    Matrix cached(Operand A, Operand B) {
+        return products.peek(key(A, B));
+    }
+
+    private static String key(Operand A, Operand B) {
+        return A.hash + "-" + B.hash;
+    }
+
+    // A stored product, or null when there is none or it cannot be read; counts as a miss when it is computed
+    private Matrix readStored(String key) {
+        Path path = directory == null ? null : directory.resolve(key + ".bin");
+        if (path != null && Files.exists(path)) {
+            try {
+                Matrix C = BinaryMatrixFormat.readMatrix(path);
+                synchronized (this) {
+                    diskHits++;
+                }
+                return C;
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Warning: ignoring unreadable cached product " + path + ": " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            misses++;
+        }
+        return null;
+    }
+
+    // Written under a temporary name and moved into place, so a reader never sees a partial file
+    private void store(String key, Matrix C) {
+        if (directory == null) {
+            return;
+        }
+        Path path = directory.resolve(key + ".bin");
+        Path temporary = directory.resolve(key + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            BinaryMatrixFormat.writeDense(C, temporary);
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not store cached product " + path + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // Nothing else to clean up
+            }
+        }
+    }
+
+    // Row arrays with their headers
+    static long bytesOf(Matrix M) {
+        return (long) M.size * (4L * M.size + 16);
+    }
+}
@@ -0,0 +1,155 @@
+package cz.cvut.fit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Values computed at most once per key and kept in LRU order up to a byte budget. The first caller for a key
+// computes the value, callers asking for it meanwhile wait for that computation instead of starting their own.
+// Failures and null results are handed to the waiting callers but not kept, the next request computes again.
+class SingleFlightCache<V> {
+
+    private static class Entry<V> {
+        final CompletableFuture<V> value;
+        long bytes; // 0 until computed
+
+        Entry(CompletableFuture<V> value) {
+            this.value = value;
+        }
+    }
+
+    private final long budgetBytes;
+    private final ToLongFunction<? super V> weight;
+    private final Map<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    // Requests served by an existing entry, those of them that waited for a computation still running,
+    // values computed for a request, computations started ahead of any request and values dropped for the budget
+    long hits;
+    long shared;
+    long misses;
+    long prefetches;
+    long evictions;
+
+    SingleFlightCache(long budgetBytes, ToLongFunction<? super V> weight) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+        this.weight = weight;
+    }
+
+    // The value for key, computed on the calling thread if nobody has started it yet; a RuntimeException or Error
+    // of the computation is rethrown in every caller that waited for it
+    V get(String key, Supplier<V> compute) {
+        CompletableFuture<V> value;
+        boolean owner = false;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(new CompletableFuture<>());
+                entries.put(key, entry);
+                owner = true;
+                misses++;
+            } else {
+                hits++;
+                if (!entry.value.isDone()) {
+                    shared++;
+                }
+            }
+            value = entry.value;
+        }
+        if (owner) {
+            complete(key, value, compute);
+        }
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Starts computing key on the executor unless it is cached or being computed already; the returned task
+    // finishes with the computation, failed or not, and is null when nothing was started
+    CompletableFuture<Void> prefetch(String key, Supplier<V> compute, Executor executor) {
+        CompletableFuture<V> value;
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return null;
+            }
+            value = new CompletableFuture<>();
+            entries.put(key, new Entry<>(value));
+            prefetches++;
+        }
+        // The failure reaches the callers through value, the task itself always finishes normally
+        return CompletableFuture.runAsync(() -> complete(key, value, compute), executor).exceptionally(e -> null);
+    }
+
+    // Anything the computation throws, Errors such as OutOfMemoryError included, fails the entry before it is
+    // rethrown; otherwise the callers waiting for it and every later caller for the key would block forever
+    private void complete(String key, CompletableFuture<V> value, Supplier<V> compute) {
+        V result;
+        try {
+            result = compute.get();
+            if (result == null) {
+                remove(key, value);
+            } else {
+                synchronized (this) {
+                    Entry<V> entry = entries.get(key);
+                    if (entry != null && entry.value == value) {
+                        entry.bytes = weight.applyAsLong(result);
+                        cachedBytes += entry.bytes;
+                        evict(entry);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            remove(key, value);
+            value.completeExceptionally(e);
+            throw e;
+        }
+        value.complete(result);
+    }
+
+    private synchronized void remove(String key, CompletableFuture<V> value) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.value == value) {
+            entries.remove(key);
+            cachedBytes -= entry.bytes;
+        }
+    }
+
+    // Least recently used computed entries go first; the one just added always stays, even over the budget
+    private void evict(Entry<V> keep) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (cachedBytes > budgetBytes && iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (entry != keep && entry.bytes > 0) {
+                cachedBytes -= entry.bytes;
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    // The computed value for key if one is held, without counting a request or starting a computation
+    synchronized V peek(String key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null || entry.bytes == 0 ? null : entry.value.getNow(null);
+    }
+
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+}
@@ -0,0 +1,245 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+
+public class SparseAlgorithms {
+
+    // Storage order of a compressed sparse matrix
+    enum Layout {
+        CSR, // pointers index rows, indices hold column numbers
+        CSC  // pointers index columns, indices hold row numbers
+    }
+
+    // Compressed sparse matrix, only nonzero values are stored
+    static class SparseMatrix {
+        Layout layout;
+        int size;
+        int[] pointers; // size + 1 offsets into indices/values
+        int[] indices;
+        int[] values;
+
+        SparseMatrix(Layout layout, int size, int[] pointers, int[] indices, int[] values) {
+            if (pointers.length != size + 1 || indices.length < pointers[size] || values.length < pointers[size]) {
+                throw new IllegalArgumentException("Inconsistent compressed arrays for size " + size);
+            }
+            this.layout = layout;
+            this.size = size;
+            this.pointers = pointers;
+            this.indices = indices;
+            this.values = values;
+        }
+
+        int nonZeros() {
+            return pointers[size];
+        }
+
+        double density() {
+            return size == 0 ? 0.0 : nonZeros() / ((double) size * size);
+        }
+
+        static SparseMatrix fromMatrix(Algorithms.Matrix M) {
+            int size = M.size;
+            int nnz = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (M.data[i][j] != 0) {
+                        nnz++;
+                    }
+                }
+            }
+
+            int[] pointers = new int[size + 1];
+            int[] indices = new int[nnz];
+            int[] values = new int[nnz];
+            int pos = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (M.data[i][j] != 0) {
+                        indices[pos] = j;
+                        values[pos] = M.data[i][j];
+                        pos++;
+                    }
+                }
+                pointers[i + 1] = pos;
+            }
+            return new SparseMatrix(Layout.CSR, size, pointers, indices, values);
+        }
+
+        Algorithms.Matrix toMatrix() {
+            Algorithms.Matrix M = new Algorithms.Matrix(size);
+            for (int outer = 0; outer < size; outer++) {
+                for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                    if (layout == Layout.CSR) {
+                        M.data[outer][indices[p]] = values[p];
+                    } else {
+                        M.data[indices[p]][outer] = values[p];
+                    }
+                }
+            }
+            return M;
+        }
+
+        SparseMatrix toCsr() {
+            return layout == Layout.CSR ? this : switchLayout(Layout.CSR);
+        }
+
+        SparseMatrix toCsc() {
+            return layout == Layout.CSC ? this : switchLayout(Layout.CSC);
+        }
+
+        // Counting-sort transposition of the compressed arrays, O(nnz + size)
+        private SparseMatrix switchLayout(Layout target) {
+            int nnz = nonZeros();
+            int[] newPointers = new int[size + 1];
+            int[] newIndices = new int[nnz];
+            int[] newValues = new int[nnz];
+
+            for (int p = 0; p < nnz; p++) {
+                newPointers[indices[p] + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                newPointers[i + 1] += newPointers[i];
+            }
+
+            int[] next = Arrays.copyOf(newPointers, size);
+            for (int outer = 0; outer < size; outer++) {
+                for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                    int dest = next[indices[p]]++;
+                    newIndices[dest] = outer;
+                    newValues[dest] = values[p];
+                }
+            }
+            return new SparseMatrix(target, size, newPointers, newIndices, newValues);
+        }
+    }
+
+    // Builds a CSR matrix row by row without ever holding the dense form
+    static class CsrBuilder {
+        private final int[] pointers;
+        private int[] indices;
+        private int[] values;
+        private int rows;
+        private int nnz;
+
+        CsrBuilder(int size, int expectedNonZeros) {
+            this.pointers = new int[size + 1];
+            this.indices = new int[Math.max(expectedNonZeros, 16)];
+            this.values = new int[Math.max(expectedNonZeros, 16)];
+        }
+
+        void add(int column, int value) {
+            if (value == 0) {
+                return;
+            }
+            if (nnz == indices.length) {
+                indices = Arrays.copyOf(indices, nnz * 2);
+                values = Arrays.copyOf(values, nnz * 2);
+            }
+            indices[nnz] = column;
+            values[nnz] = value;
+            nnz++;
+        }
+
+        void endRow() {
+            pointers[++rows] = nnz;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        int size() {
+            return pointers.length - 1;
+        }
+
+        SparseMatrix build() {
+            if (rows != size()) {
+                throw new IllegalStateException("Expected " + size() + " rows, got " + rows);
+            }
+            return new SparseMatrix(Layout.CSR, rows, pointers, Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+        }
+    }
+
+    // Sparse matrix multiplication - Gustavson's row-by-row algorithm, C = A * B in CSR
+    public static SparseMatrix matrixMultiplicationSparse(SparseMatrix A, SparseMatrix B) {
+        if (A.size != B.size) {
+            throw new IllegalArgumentException("Matrix sizes differ: " + A.size + " and " + B.size);
+        }
+        A = A.toCsr();
+        B = B.toCsr();
+        int size = A.size;
+
+        // Symbolic phase: count the distinct columns of every result row to size C exactly
+        int[] marker = new int[size];
+        Arrays.fill(marker, -1);
+        int[] pointers = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            int rowCount = 0;
+            for (int pa = A.pointers[i]; pa < A.pointers[i + 1]; pa++) {
+                int k = A.indices[pa];
+                for (int pb = B.pointers[k]; pb < B.pointers[k + 1]; pb++) {
+                    int j = B.indices[pb];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        rowCount++;
+                    }
+                }
+            }
+            pointers[i + 1] = pointers[i] + rowCount;
+        }
+
+        // Numeric phase: scatter into a dense accumulator, then gather the touched columns
+        int[] indices = new int[pointers[size]];
+        int[] values = new int[pointers[size]];
+        int[] accumulator = new int[size];
+        Arrays.fill(marker, -1);
+        for (int i = 0; i < size; i++) {
+            int rowStart = pointers[i];
+            int rowEnd = rowStart;
+            for (int pa = A.pointers[i]; pa < A.pointers[i + 1]; pa++) {
+                int k = A.indices[pa];
+                int aik = A.values[pa];
+                for (int pb = B.pointers[k]; pb < B.pointers[k + 1]; pb++) {
+                    int j = B.indices[pb];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        indices[rowEnd++] = j;
+                        accumulator[j] = aik * B.values[pb];
+                    } else {
+                        accumulator[j] += aik * B.values[pb];
+                    }
+                }
+            }
+
+            Arrays.sort(indices, rowStart, rowEnd);
+            for (int p = rowStart; p < rowEnd; p++) {
+                values[p] = accumulator[indices[p]];
+            }
+        }
+
+        return dropZeros(new SparseMatrix(Layout.CSR, size, pointers, indices, values));
+    }
+
+    // Removes entries whose products cancelled out to zero, compacting in place
+    private static SparseMatrix dropZeros(SparseMatrix M) {
+        int write = 0;
+        int rowStart = 0;
+        for (int outer = 0; outer < M.size; outer++) {
+            int rowEnd = M.pointers[outer + 1];
+            for (int p = rowStart; p < rowEnd; p++) {
+                if (M.values[p] != 0) {
+                    M.indices[write] = M.indices[p];
+                    M.values[write] = M.values[p];
+                    write++;
+                }
+            }
+            rowStart = rowEnd;
+            M.pointers[outer + 1] = write;
+        }
+        if (write == M.indices.length) {
+            return M;
+        }
+        return new SparseMatrix(M.layout, M.size, M.pointers,
+                Arrays.copyOf(M.indices, write), Arrays.copyOf(M.values, write));
+    }
+}
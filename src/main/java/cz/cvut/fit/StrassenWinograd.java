@@ -0,0 +1,260 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Winograd's form of Strassen (7 products, 15 additions) on flat views (array, offset, stride).
+// Odd sizes are handled by peeling off the last row and column instead of padding,
+// and the switch to the blocked kernel happens at a tunable or calibrated crossover.
+public class StrassenWinograd {
+
+    private static final int[] CALIBRATION_SIZES = {32, 64, 128, 256};
+
+    // Crossover measured on this host, 0 until the first call calibrates it
+    private static volatile int calibratedCrossover;
+
+    private static final AtomicReference<int[]> CACHED_ARENA = new AtomicReference<>();
+
+    public static Matrix matrixMultiplicationWinograd(Matrix A, Matrix B, int size) {
+        return matrixMultiplicationWinograd(A, B, size, crossover());
+    }
+
+    public static Matrix matrixMultiplicationWinograd(Matrix A, Matrix B, int size, int crossover) {
+        if (crossover < 1) {
+            throw new IllegalArgumentException("Crossover must be positive: " + crossover);
+        }
+
+        long needed = 3L * size * size + workspaceSize(size, crossover);
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Workspace for size " + size + " exceeds a single array");
+        }
+        int[] arena = CACHED_ARENA.getAndSet(null);
+        if (arena == null || arena.length < needed) {
+            arena = new int[(int) needed];
+        }
+
+        try {
+            int bOff = size * size;
+            int cOff = 2 * size * size;
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(A.data[i], 0, arena, i * size, size);
+                System.arraycopy(B.data[i], 0, arena, bOff + i * size, size);
+            }
+
+            multiply(arena, 0, size, arena, bOff, size, arena, cOff, size, size, crossover, arena, 3 * size * size);
+
+            Matrix C = new Matrix(size);
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(arena, cOff + i * size, C.data[i], 0, size);
+            }
+            return C;
+        } finally {
+            CACHED_ARENA.set(arena);
+        }
+    }
+
+    // -Dstrassen.crossover=N fixes the crossover, otherwise it is calibrated once per JVM
+    static int crossover() {
+        Integer configured = Integer.getInteger("strassen.crossover");
+        if (configured != null) {
+            return configured;
+        }
+        if (calibratedCrossover == 0) {
+            synchronized (StrassenWinograd.class) {
+                if (calibratedCrossover == 0) {
+                    calibratedCrossover = calibrateCrossover();
+                }
+            }
+        }
+        return calibratedCrossover;
+    }
+
+    // Smallest c for which one Winograd level over blocked c x c leaves beats the blocked kernel at 2c
+    static int calibrateCrossover() {
+        Random random = new Random(42);
+        for (int c : CALIBRATION_SIZES) {
+            int n = 2 * c;
+            int[] a = new int[n * n];
+            int[] b = new int[n * n];
+            int[] out = new int[n * n];
+            int[] ws = new int[(int) workspaceSize(n, c)];
+            for (int i = 0; i < n * n; i++) {
+                a[i] = random.nextInt(10);
+                b[i] = random.nextInt(10);
+            }
+
+            long blocked = Long.MAX_VALUE;
+            long winograd = Long.MAX_VALUE;
+            for (int rep = 0; rep < 5; rep++) {
+                long start = System.nanoTime();
+                multiplyBlocked(a, 0, n, b, 0, n, out, 0, n, n);
+                long middle = System.nanoTime();
+                multiply(a, 0, n, b, 0, n, out, 0, n, n, c, ws, 0);
+                long end = System.nanoTime();
+                blocked = Math.min(blocked, middle - start);
+                winograd = Math.min(winograd, end - middle);
+            }
+            if (winograd < blocked) {
+                return c;
+            }
+        }
+        return CALIBRATION_SIZES[CALIBRATION_SIZES.length - 1];
+    }
+
+    // Workspace ints needed below a node of size n: two quadrant temporaries per even level, none for peeling
+    static long workspaceSize(int n, int crossover) {
+        if (n <= crossover) {
+            return 0;
+        }
+        if ((n & 1) == 1) {
+            return workspaceSize(n - 1, crossover);
+        }
+        long h = n / 2;
+        return 2 * h * h + workspaceSize(n / 2, crossover);
+    }
+
+    // C = A * B on n x n views
+    static void multiply(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                         int[] c, int cOff, int cStride, int n, int crossover, int[] ws, int wsOff) {
+        if (n <= crossover) {
+            multiplyBlocked(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n);
+            return;
+        }
+        if ((n & 1) == 1) {
+            multiplyPeeled(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, n, crossover, ws, wsOff);
+            return;
+        }
+
+        int h = n / 2;
+        int x = wsOff, y = wsOff + h * h, sub = wsOff + 2 * h * h;
+        int a11 = aOff, a12 = aOff + h, a21 = aOff + h * aStride, a22 = a21 + h;
+        int b11 = bOff, b12 = bOff + h, b21 = bOff + h * bStride, b22 = b21 + h;
+        int c11 = cOff, c12 = cOff + h, c21 = cOff + h * cStride, c22 = c21 + h;
+
+        // Schedule with two temporaries X and Y, the C quadrants hold the other intermediate products
+        subtract(a, a11, aStride, a, a21, aStride, ws, x, h, h);                                 // S3 = A11 - A21
+        subtract(b, b22, bStride, b, b12, bStride, ws, y, h, h);                                 // T3 = B22 - B12
+        multiply(ws, x, h, ws, y, h, c, c21, cStride, h, crossover, ws, sub);                    // P7 = S3 T3
+        add(a, a21, aStride, a, a22, aStride, ws, x, h, h);                                      // S1 = A21 + A22
+        subtract(b, b12, bStride, b, b11, bStride, ws, y, h, h);                                 // T1 = B12 - B11
+        multiply(ws, x, h, ws, y, h, c, c22, cStride, h, crossover, ws, sub);                    // P5 = S1 T1
+        subtract(ws, x, h, a, a11, aStride, ws, x, h, h);                                        // S2 = S1 - A11
+        subtract(b, b22, bStride, ws, y, h, ws, y, h, h);                                        // T2 = B22 - T1
+        multiply(ws, x, h, ws, y, h, c, c12, cStride, h, crossover, ws, sub);                    // P6 = S2 T2
+        subtract(a, a12, aStride, ws, x, h, ws, x, h, h);                                        // S4 = A12 - S2
+        multiply(ws, x, h, b, b22, bStride, c, c11, cStride, h, crossover, ws, sub);             // P3 = S4 B22
+        multiply(a, a11, aStride, b, b11, bStride, ws, x, h, h, crossover, ws, sub);             // P1 = A11 B11
+        add(ws, x, h, c, c12, cStride, c, c12, cStride, h);                                      // U2 = P1 + P6
+        add(c, c12, cStride, c, c21, cStride, c, c21, cStride, h);                               // U3 = U2 + P7
+        add(c, c12, cStride, c, c22, cStride, c, c12, cStride, h);                               // U4 = U2 + P5
+        add(c, c21, cStride, c, c22, cStride, c, c22, cStride, h);                               // U7 = U3 + P5 -> C22
+        add(c, c12, cStride, c, c11, cStride, c, c12, cStride, h);                               // U5 = U4 + P3 -> C12
+        subtract(ws, y, h, b, b21, bStride, ws, y, h, h);                                        // T4 = T2 - B21
+        multiply(a, a22, aStride, ws, y, h, c, c11, cStride, h, crossover, ws, sub);             // P4 = A22 T4
+        subtract(c, c21, cStride, c, c11, cStride, c, c21, cStride, h);                          // U6 = U3 - P4 -> C21
+        multiply(a, a12, aStride, b, b21, bStride, c, c11, cStride, h, crossover, ws, sub);      // P2 = A12 B21
+        add(ws, x, h, c, c11, cStride, c, c11, cStride, h);                                      // U1 = P1 + P2 -> C11
+    }
+
+    // Odd n: recurse on the even (n-1) x (n-1) leading block, then fix up with the peeled row and column
+    private static void multiplyPeeled(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                                       int[] c, int cOff, int cStride, int n, int crossover, int[] ws, int wsOff) {
+        int m = n - 1;
+        multiply(a, aOff, aStride, b, bOff, bStride, c, cOff, cStride, m, crossover, ws, wsOff);
+
+        // C11 += a12 * b21, the rank-1 contribution of the peeled column of A and row of B
+        int bm = bOff + m * bStride;
+        for (int i = 0; i < m; i++) {
+            int aim = a[aOff + i * aStride + m];
+            if (aim == 0) {
+                continue;
+            }
+            int ci = cOff + i * cStride;
+            for (int j = 0; j < m; j++) {
+                c[ci + j] += aim * b[bm + j];
+            }
+        }
+
+        // Last column of C: all rows of A times the last column of B
+        for (int i = 0; i < m; i++) {
+            int ai = aOff + i * aStride;
+            int sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += a[ai + k] * b[bOff + k * bStride + m];
+            }
+            c[cOff + i * cStride + m] = sum;
+        }
+
+        // Last row of C: the last row of A times all of B
+        int am = aOff + m * aStride;
+        int cm = cOff + m * cStride;
+        Arrays.fill(c, cm, cm + n, 0);
+        for (int k = 0; k < n; k++) {
+            int amk = a[am + k];
+            if (amk == 0) {
+                continue;
+            }
+            int bk = bOff + k * bStride;
+            for (int j = 0; j < n; j++) {
+                c[cm + j] += amk * b[bk + j];
+            }
+        }
+    }
+
+    // out = x + y on n x n views, out may alias either operand
+    private static void add(int[] x, int xOff, int xStride, int[] y, int yOff, int yStride,
+                            int[] out, int outOff, int outStride, int n) {
+        for (int i = 0; i < n; i++) {
+            int xi = xOff + i * xStride, yi = yOff + i * yStride, oi = outOff + i * outStride;
+            for (int j = 0; j < n; j++) {
+                out[oi + j] = x[xi + j] + y[yi + j];
+            }
+        }
+    }
+
+    // out = x - y on n x n views, out may alias either operand
+    private static void subtract(int[] x, int xOff, int xStride, int[] y, int yOff, int yStride,
+                                 int[] out, int outOff, int outStride, int n) {
+        for (int i = 0; i < n; i++) {
+            int xi = xOff + i * xStride, yi = yOff + i * yStride, oi = outOff + i * outStride;
+            for (int j = 0; j < n; j++) {
+                out[oi + j] = x[xi + j] - y[yi + j];
+            }
+        }
+    }
+
+    // Blocked i-k-j kernel on views, the same scheme as Algorithms.matrixMultiplicationCache
+    static void multiplyBlocked(int[] a, int aOff, int aStride, int[] b, int bOff, int bStride,
+                                int[] c, int cOff, int cStride, int n) {
+        int blockSize = 64;
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(c, cOff + i * cStride, cOff + i * cStride + n, 0);
+        }
+
+        for (int ii = 0; ii < n; ii += blockSize) {
+            int iEnd = Math.min(ii + blockSize, n);
+            for (int kk = 0; kk < n; kk += blockSize) {
+                int kEnd = Math.min(kk + blockSize, n);
+                for (int jj = 0; jj < n; jj += blockSize) {
+                    int jEnd = Math.min(jj + blockSize, n);
+                    for (int i = ii; i < iEnd; i++) {
+                        int ai = aOff + i * aStride;
+                        int ci = cOff + i * cStride;
+                        for (int k = kk; k < kEnd; k++) {
+                            int aik = a[ai + k];
+                            if (aik == 0) {
+                                continue;
+                            }
+                            int bk = bOff + k * bStride;
+                            for (int j = jj; j < jEnd; j++) {
+                                c[ci + j] += aik * b[bk + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
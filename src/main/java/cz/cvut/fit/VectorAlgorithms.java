@@ -0,0 +1,36 @@
+package cz.cvut.fit;
+
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.FlatAlgorithms.FlatMatrix;
+
+public class VectorAlgorithms {
+
+    // The Vector API only resolves when the JVM runs with --add-modules jdk.incubator.vector
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    // Matrix multiplication - SIMD register-blocked kernel, falls back to the flat cache kernel without the module
+    public static void matrixMultiplicationVector(FlatMatrix A, FlatMatrix B, FlatMatrix C, int size) {
+        if (!AVAILABLE) {
+            FlatAlgorithms.matrixMultiplicationCache(A, B, C, size);
+            return;
+        }
+        if (A.size != size || B.size != size || C.size != size) {
+            throw new IllegalArgumentException("All matrices must be " + size + "x" + size);
+        }
+        if (C == A || C == B) {
+            throw new IllegalArgumentException("Result buffer must not alias an operand");
+        }
+        VectorKernel.multiply(A.data, B.data, C.data, size);
+        C.invalidatePacked();
+    }
+
+    public static Matrix matrixMultiplicationVector(Matrix A, Matrix B, int size) {
+        FlatMatrix C = new FlatMatrix(size);
+        matrixMultiplicationVector(FlatMatrix.fromMatrix(A), FlatMatrix.fromMatrix(B), C, size);
+        return C.toMatrix();
+    }
+}
@@ -0,0 +1,115 @@
+package cz.cvut.fit;
+
+import java.util.Arrays;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD kernel on the incubating Vector API. Only touched through VectorAlgorithms,
+// which checks that jdk.incubator.vector is present before this class is loaded.
+class VectorKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    // Register block: 4 rows of C by 2 vectors of columns, 8 accumulators
+    private static final int ROWS = 4;
+    private static final int COLS = 2 * LANES;
+    // k is processed in panels so the touched rows of B stay in cache between row blocks
+    private static final int K_BLOCK = 256;
+
+    static int lanes() {
+        return LANES;
+    }
+
+    // C = A * B for row-major size x size arrays
+    static void multiply(int[] a, int[] b, int[] c, int size) {
+        Arrays.fill(c, 0, size * size, 0);
+
+        for (int kk = 0; kk < size; kk += K_BLOCK) {
+            int kEnd = Math.min(kk + K_BLOCK, size);
+            int i = 0;
+            for (; i <= size - ROWS; i += ROWS) {
+                int j = 0;
+                for (; j <= size - COLS; j += COLS) {
+                    microKernel(a, b, c, size, i, j, kk, kEnd);
+                }
+                for (; j <= size - LANES; j += LANES) {
+                    for (int r = 0; r < ROWS; r++) {
+                        rowVector(a, b, c, size, i + r, j, kk, kEnd);
+                    }
+                }
+                for (int r = 0; r < ROWS; r++) {
+                    rowScalar(a, b, c, size, i + r, j, kk, kEnd);
+                }
+            }
+            for (; i < size; i++) {
+                int j = 0;
+                for (; j <= size - LANES; j += LANES) {
+                    rowVector(a, b, c, size, i, j, kk, kEnd);
+                }
+                rowScalar(a, b, c, size, i, j, kk, kEnd);
+            }
+        }
+    }
+
+    // Broadcast one A element per row and multiply-accumulate it with two vectors of the matching B row
+    private static void microKernel(int[] a, int[] b, int[] c, int size, int i, int j, int kk, int kEnd) {
+        int c0 = i * size + j, c1 = c0 + size, c2 = c1 + size, c3 = c2 + size;
+        IntVector acc00 = IntVector.fromArray(SPECIES, c, c0), acc01 = IntVector.fromArray(SPECIES, c, c0 + LANES);
+        IntVector acc10 = IntVector.fromArray(SPECIES, c, c1), acc11 = IntVector.fromArray(SPECIES, c, c1 + LANES);
+        IntVector acc20 = IntVector.fromArray(SPECIES, c, c2), acc21 = IntVector.fromArray(SPECIES, c, c2 + LANES);
+        IntVector acc30 = IntVector.fromArray(SPECIES, c, c3), acc31 = IntVector.fromArray(SPECIES, c, c3 + LANES);
+
+        int a0 = i * size, a1 = a0 + size, a2 = a1 + size, a3 = a2 + size;
+        for (int k = kk; k < kEnd; k++) {
+            int bk = k * size + j;
+            IntVector b0 = IntVector.fromArray(SPECIES, b, bk);
+            IntVector b1 = IntVector.fromArray(SPECIES, b, bk + LANES);
+
+            IntVector x = IntVector.broadcast(SPECIES, a[a0 + k]);
+            acc00 = x.mul(b0).add(acc00);
+            acc01 = x.mul(b1).add(acc01);
+            x = IntVector.broadcast(SPECIES, a[a1 + k]);
+            acc10 = x.mul(b0).add(acc10);
+            acc11 = x.mul(b1).add(acc11);
+            x = IntVector.broadcast(SPECIES, a[a2 + k]);
+            acc20 = x.mul(b0).add(acc20);
+            acc21 = x.mul(b1).add(acc21);
+            x = IntVector.broadcast(SPECIES, a[a3 + k]);
+            acc30 = x.mul(b0).add(acc30);
+            acc31 = x.mul(b1).add(acc31);
+        }
+
+        acc00.intoArray(c, c0);
+        acc01.intoArray(c, c0 + LANES);
+        acc10.intoArray(c, c1);
+        acc11.intoArray(c, c1 + LANES);
+        acc20.intoArray(c, c2);
+        acc21.intoArray(c, c2 + LANES);
+        acc30.intoArray(c, c3);
+        acc31.intoArray(c, c3 + LANES);
+    }
+
+    // One row, one vector of columns
+    private static void rowVector(int[] a, int[] b, int[] c, int size, int i, int j, int kk, int kEnd) {
+        int ci = i * size + j;
+        int ai = i * size;
+        IntVector acc = IntVector.fromArray(SPECIES, c, ci);
+        for (int k = kk; k < kEnd; k++) {
+            acc = IntVector.broadcast(SPECIES, a[ai + k]).mul(IntVector.fromArray(SPECIES, b, k * size + j)).add(acc);
+        }
+        acc.intoArray(c, ci);
+    }
+
+    // Columns j.. that do not fill a whole vector
+    private static void rowScalar(int[] a, int[] b, int[] c, int size, int i, int j, int kk, int kEnd) {
+        int ai = i * size;
+        for (; j < size; j++) {
+            int sum = c[ai + j];
+            for (int k = kk; k < kEnd; k++) {
+                sum += a[ai + k] * b[k * size + j];
+            }
+            c[ai + j] = sum;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.randomArray;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.SparseAlgorithms.SparseMatrix;
+
+class BinaryMatrixFormatTest {
+
+    @TempDir
+    Path dir;
+
+    // Values up to the bound, with both extremes present so the writer has to pick exactly that type
+    private static Matrix withExtremes(int n, long seed, int min, int max) {
+        Matrix M = new Matrix(randomArray(n, n, seed, 100));
+        M.data[0][0] = min;
+        M.data[n - 1][n - 1] = max;
+        return M;
+    }
+
+    // Every other row empty and a few nonzeros in the rest
+    private static Matrix sparse(int n, int min, int max) {
+        Matrix M = new Matrix(n);
+        for (int i = 0; i < n; i += 2) {
+            M.data[i][(i * 5) % n] = i + 1;
+        }
+        M.data[0][n - 1] = min;
+        M.data[n - 1][0] = max;
+        return M;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, -128, 127, 0", "17, -128, 127, 0", "17, -129, 127, 1", "17, -32768, 32767, 1",
+            "17, -32768, 32768, 2", "33, -2147483648, 2147483647, 2"
+    })
+    void denseRoundTrip(int n, int min, int max, byte type) throws IOException {
+        Matrix M = withExtremes(n, n, min, max);
+        Path path = dir.resolve("dense.bin");
+        BinaryMatrixFormat.writeDense(M, path);
+
+        BinaryMatrixFormat.Header header = BinaryMatrixFormat.readHeader(path);
+        assertEquals(BinaryMatrixFormat.LAYOUT_DENSE, header.layout);
+        assertEquals(type, header.elementType);
+        assertEquals((long) n * n, header.storedValues);
+        assertMatrixEquals(M, BinaryMatrixFormat.readMatrix(path));
+        assertMatrixEquals(M, BinaryMatrixFormat.readSparse(path).toMatrix());
+        assertEquals(Arrays.stream(M.data).flatMapToInt(Arrays::stream).boxed().toList(),
+                Arrays.stream(BinaryMatrixFormat.readFlat(path).data).boxed().toList());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, -5, 9, 0", "40, -300, 9, 1", "40, -5, 100000, 2"})
+    void csrRoundTrip(int n, int min, int max, byte type) throws IOException {
+        Matrix M = sparse(n, min, max);
+        Path path = dir.resolve("sparse.bin");
+        BinaryMatrixFormat.writeSparse(SparseMatrix.fromMatrix(M), path);
+
+        BinaryMatrixFormat.Header header = BinaryMatrixFormat.readHeader(path);
+        assertEquals(BinaryMatrixFormat.LAYOUT_CSR, header.layout);
+        assertEquals(type, header.elementType);
+        assertEquals(SparseMatrix.fromMatrix(M).toCsr().nonZeros(), header.storedValues);
+        assertMatrixEquals(M, BinaryMatrixFormat.readSparse(path).toMatrix());
+        assertMatrixEquals(M, BinaryMatrixFormat.readMatrix(path));
+    }
+
+    // A valid 3x3 dense file with one header field overwritten
+    private Path corrupted(Consumer<ByteBuffer> patch) throws IOException {
+        Path path = dir.resolve("corrupted.bin");
+        BinaryMatrixFormat.writeDense(new Matrix(randomArray(3, 3, 1, 10)), path);
+        byte[] bytes = Files.readAllBytes(path);
+        patch.accept(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+        return Files.write(path, bytes);
+    }
+
+    @Test
+    void corruptedHeadersAreRejected() throws IOException {
+        Path badMagic = corrupted(header -> header.putInt(0, 0x12345678));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(badMagic));
+        Path badVersion = corrupted(header -> header.putShort(4, (short) 2));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(badVersion));
+        Path badLayout = corrupted(header -> header.put(6, (byte) 7));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(badLayout));
+        Path negativeRows = corrupted(header -> header.putInt(8, -3));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(negativeRows));
+        Path negativeCols = corrupted(header -> header.putInt(12, -3));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(negativeCols));
+        Path fewerValues = corrupted(header -> header.putLong(16, 8));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(fewerValues));
+        Path moreValues = corrupted(header -> header.putLong(16, 10));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readMatrix(moreValues));
+    }
+
+    @Test
+    void oversizedCsrCountAndTruncatedBodyAreRejected() throws IOException {
+        Path path = dir.resolve("sparse.bin");
+        BinaryMatrixFormat.writeSparse(SparseMatrix.fromMatrix(sparse(8, -1, 1)), path);
+        byte[] bytes = Files.readAllBytes(path);
+
+        byte[] oversized = bytes.clone();
+        ByteBuffer.wrap(oversized).order(ByteOrder.LITTLE_ENDIAN).putLong(16, 65);
+        Path oversizedPath = Files.write(dir.resolve("oversized.bin"), oversized);
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readSparse(oversizedPath));
+
+        Path truncated = Files.write(dir.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readSparse(truncated));
+        Path headerOnly = Files.write(dir.resolve("short.bin"), Arrays.copyOf(bytes, 16));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMatrixFormat.readSparse(headerOnly));
+    }
+}
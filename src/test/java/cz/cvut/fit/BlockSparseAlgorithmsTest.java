@@ -0,0 +1,106 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomMatrix;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.BlockSparseAlgorithms.BlockSparseMatrix;
+import cz.cvut.fit.BlockSparseAlgorithms.HybridMatrix;
+import cz.cvut.fit.BlockSparseAlgorithms.Representation;
+
+class BlockSparseAlgorithmsTest {
+
+    // Nonzero blocks of side block at random positions, about a tenth of the matrix covered
+    private static Matrix clustered(int n, int block, long seed) {
+        Random random = new Random(seed);
+        Matrix M = new Matrix(n);
+        for (int b = 0; b < Math.max(1, n * n / (10 * block * block)); b++) {
+            int i0 = random.nextInt(n), j0 = random.nextInt(n);
+            for (int i = i0; i < Math.min(n, i0 + block); i++) {
+                for (int j = j0; j < Math.min(n, j0 + block); j++) {
+                    M.data[i][j] = 1 + random.nextInt(9);
+                }
+            }
+        }
+        return M;
+    }
+
+    // A few isolated nonzeros, none of them in the same tile as another
+    private static Matrix scattered(int n, int step) {
+        Matrix M = new Matrix(n);
+        for (int i = 0; i < n; i += step) {
+            M.data[i][(i * 7) % n] = i + 1;
+        }
+        return M;
+    }
+
+    // Tiles dividing the size, tiles leaving a partial last tile row and column, one-element tiles and
+    // tiles at or above the matrix size
+    @ParameterizedTest
+    @CsvSource({"64, 16", "64, 8", "37, 8", "50, 16", "33, 32", "17, 1", "20, 20", "20, 32", "1, 4", "100, 3"})
+    void productMatchesReference(int n, int tile) {
+        Matrix A = clustered(n, 6, 1), B = clustered(n, 6, 2);
+        assertMatrixEquals(multiply(A, B), BlockSparseAlgorithms.matrixMultiplicationBlockSparse(A, B, n, tile));
+
+        Matrix dense = randomMatrix(n, 3);
+        assertMatrixEquals(multiply(A, dense), BlockSparseAlgorithms.matrixMultiplicationBlockSparse(A, dense, n, tile));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"64, 16", "37, 8", "17, 1", "20, 32"})
+    void blockLayoutRoundTrips(int n, int tile) {
+        Matrix A = clustered(n, 5, 4);
+        BlockSparseMatrix blocks = BlockSparseMatrix.fromMatrix(A, tile);
+        assertMatrixEquals(A, blocks.toMatrix());
+        assertEquals((n + tile - 1) / tile, blocks.tilesPerSide);
+    }
+
+    @Test
+    void zeroMatrixStoresNoTiles() {
+        Matrix zero = new Matrix(40);
+        BlockSparseMatrix blocks = BlockSparseMatrix.fromMatrix(zero, 8);
+        assertEquals(0, blocks.storedTiles());
+        BlockSparseMatrix product = BlockSparseAlgorithms.matrixMultiplicationBlockSparse(blocks,
+                BlockSparseMatrix.fromMatrix(clustered(40, 6, 5), 8));
+        assertEquals(0, product.storedTiles());
+        assertMatrixEquals(zero, product.toMatrix());
+    }
+
+    @Test
+    void histogramPicksTheRepresentation() {
+        assertEquals(Representation.BLOCK_SPARSE, HybridMatrix.of(clustered(128, 16, 6), 16).representation);
+        assertEquals(Representation.CSR, HybridMatrix.of(scattered(128, 3), 16).representation);
+        assertEquals(Representation.DENSE, HybridMatrix.of(randomMatrix(128, 7), 16).representation);
+    }
+
+    // Every pairing of representations goes through its own kernel or the dense fallback
+    @Test
+    void hybridProductMatchesReferenceForEveryPairing() {
+        int n = 96;
+        Matrix[] operands = {clustered(n, 16, 8), scattered(n, 3), randomMatrix(n, 9)};
+        for (Matrix A : operands) {
+            for (Matrix B : operands) {
+                HybridMatrix hybridA = HybridMatrix.of(A, 16), hybridB = HybridMatrix.of(B, 16);
+                assertMatrixEquals(multiply(A, B), BlockSparseAlgorithms.matrixMultiplicationHybrid(hybridA, hybridB),
+                        hybridA.representation + " x " + hybridB.representation);
+            }
+        }
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        Matrix A = clustered(16, 4, 10);
+        assertThrows(IllegalArgumentException.class, () -> BlockSparseMatrix.fromMatrix(A, 0));
+        assertThrows(IllegalArgumentException.class, () -> BlockSparseAlgorithms.matrixMultiplicationBlockSparse(
+                BlockSparseMatrix.fromMatrix(A, 4), BlockSparseMatrix.fromMatrix(A, 8)));
+        assertThrows(IllegalArgumentException.class,
+                () -> BlockSparseAlgorithms.matrixMultiplicationBlockSparse(A, clustered(12, 4, 11), 16, 4));
+    }
+}
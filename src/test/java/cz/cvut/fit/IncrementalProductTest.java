@@ -0,0 +1,149 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.copy;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomMatrix;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import cz.cvut.fit.Algorithms.Matrix;
+
+class IncrementalProductTest {
+
+    // Random element, row and column updates of both operands, applied to plain copies too; the product is
+    // compared with the naive one after a random number of updates each time
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5, 63, 64, 65, 100})
+    void mixedUpdatesMatchRecomputedProduct(int n) {
+        Random random = new Random(n);
+        Matrix A = randomMatrix(n, 1), B = randomMatrix(n, 2);
+        IncrementalProduct product = new IncrementalProduct(A, B, n);
+        Matrix a = copy(A), b = copy(B);
+
+        for (int round = 0; round < 20; round++) {
+            int updates = 1 + random.nextInt(6);
+            for (int u = 0; u < updates; u++) {
+                int index = random.nextInt(n);
+                int[] values = new int[n];
+                for (int v = 0; v < n; v++) {
+                    values[v] = random.nextInt(19) - 9;
+                }
+                switch (random.nextInt(6)) {
+                    case 0 -> {
+                        int j = random.nextInt(n);
+                        product.updateA(index, j, values[0]);
+                        a.data[index][j] = values[0];
+                    }
+                    case 1 -> {
+                        int j = random.nextInt(n);
+                        product.updateB(index, j, values[0]);
+                        b.data[index][j] = values[0];
+                    }
+                    case 2 -> {
+                        product.updateRowA(index, values);
+                        a.data[index] = values.clone();
+                    }
+                    case 3 -> {
+                        product.updateRowB(index, values);
+                        b.data[index] = values.clone();
+                    }
+                    case 4 -> {
+                        product.updateColumnA(index, values);
+                        for (int i = 0; i < n; i++) {
+                            a.data[i][index] = values[i];
+                        }
+                    }
+                    default -> {
+                        product.updateColumnB(index, values);
+                        for (int i = 0; i < n; i++) {
+                            b.data[i][index] = values[i];
+                        }
+                    }
+                }
+            }
+            assertMatrixEquals(multiply(a, b), product.result());
+        }
+    }
+
+    @Test
+    void repeatedUpdatesOfOneElementKeepTheLastValue() {
+        int n = 8;
+        Matrix A = randomMatrix(n, 1), B = randomMatrix(n, 2);
+        IncrementalProduct product = new IncrementalProduct(A, B, n);
+        product.updateA(3, 4, 100);
+        product.updateRowA(3, new int[]{1, 2, 3, 4, 5, 6, 7, 8});
+        product.updateA(3, 4, -7);
+        product.updateColumnB(2, new int[]{9, 9, 9, 9, 9, 9, 9, 9});
+        product.updateB(5, 2, 0);
+
+        Matrix a = copy(A), b = copy(B);
+        a.data[3] = new int[]{1, 2, 3, 4, -7, 6, 7, 8};
+        for (int i = 0; i < n; i++) {
+            b.data[i][2] = i == 5 ? 0 : 9;
+        }
+        assertMatrixEquals(multiply(a, b), product.result());
+        assertEquals(1, product.corrections);
+    }
+
+    @Test
+    void operandsGivenToTheConstructorAreNotChanged() {
+        Matrix A = randomMatrix(4, 1), B = randomMatrix(4, 2);
+        Matrix a = copy(A), b = copy(B);
+        IncrementalProduct product = new IncrementalProduct(A, B, 4);
+        product.updateRowA(0, new int[]{1, 1, 1, 1});
+        product.updateColumnB(3, new int[]{2, 2, 2, 2});
+        product.result();
+        assertMatrixEquals(a, A);
+        assertMatrixEquals(b, B);
+    }
+
+    @Test
+    void manyChangedRowsRecompute() {
+        int n = 32;
+        Matrix A = randomMatrix(n, 1), B = randomMatrix(n, 2);
+        IncrementalProduct product = new IncrementalProduct(A, B, n);
+        Matrix a = copy(A), b = copy(B);
+        Random random = new Random(3);
+        for (int i = 0; i < n; i++) {
+            int[] row = new int[n];
+            for (int j = 0; j < n; j++) {
+                row[j] = random.nextInt(10);
+            }
+            product.updateRowA(i, row);
+            product.updateRowB(i, row);
+            a.data[i] = row.clone();
+            b.data[i] = row.clone();
+        }
+        assertMatrixEquals(multiply(a, b), product.result());
+        assertEquals(1, product.recomputations);
+        assertEquals(0, product.corrections);
+    }
+
+    @Test
+    void fewUpdatesAreCorrections() {
+        int n = 64;
+        IncrementalProduct product = new IncrementalProduct(randomMatrix(n, 1), randomMatrix(n, 2), n);
+        product.updateA(0, 0, 5);
+        product.updateB(63, 63, 5);
+        product.result();
+        assertEquals(1, product.corrections);
+        assertEquals(0, product.recomputations);
+        assertTrue(product.multiplyAdds > 0);
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        IncrementalProduct product = new IncrementalProduct(randomMatrix(3, 1), randomMatrix(3, 2), 3);
+        assertThrows(IllegalArgumentException.class, () -> product.updateA(3, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> product.updateB(0, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> product.updateRowA(0, new int[2]));
+        assertThrows(IllegalArgumentException.class, () -> product.updateColumnB(0, new int[4]));
+        assertThrows(IllegalArgumentException.class, () -> new IncrementalProduct(randomMatrix(3, 1), randomMatrix(4, 2), 3));
+    }
+}
@@ -0,0 +1,132 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.add;
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomArray;
+import static cz.cvut.fit.Reference.transpose;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import cz.cvut.fit.Algorithms.Matrix;
+
+class MatrixExpressionTest {
+
+    @Test
+    void chainOfRectangularOperandsMatchesSourceOrder() {
+        int[][] a = randomArray(7, 33, 1, 10);
+        int[][] b = randomArray(33, 5, 2, 10);
+        int[][] c = randomArray(5, 40, 3, 10);
+        int[][] d = randomArray(40, 9, 4, 10);
+        MatrixExpression chain = MatrixExpression.of(a).times(MatrixExpression.of(b)).times(MatrixExpression.of(c))
+                .times(MatrixExpression.of(d));
+
+        int[][] expected = multiply(multiply(multiply(a, b), c), d);
+        assertMatrixEquals(expected, chain.evaluateArray());
+        assertMatrixEquals(expected, chain.evaluate(false).result.toArray());
+    }
+
+    @Test
+    void reorderedChainDoesFewerMultiplyAdds() {
+        // Wide-thin-wide: left to right costs 2 n^2 t + n^3 more than starting with the thin inner product
+        int n = 48, t = 3;
+        MatrixExpression chain = MatrixExpression.of(randomArray(n, t, 1, 10)).times(MatrixExpression.of(randomArray(t, n, 2, 10)))
+                .times(MatrixExpression.of(randomArray(n, t, 3, 10)));
+        MatrixExpression.Evaluation optimized = chain.evaluate(true);
+        MatrixExpression.Evaluation naive = chain.evaluate(false);
+
+        assertMatrixEquals(naive.result.toArray(), optimized.result.toArray());
+        assertTrue(optimized.multiplyAdds < naive.multiplyAdds,
+                optimized.multiplyAdds + " multiply-adds, source order " + naive.multiplyAdds);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 17, 33})
+    void sharedSubexpressionIsEvaluatedCorrectly(int n) {
+        int[][] a = randomArray(n, n, n, 10);
+        int[][] b = randomArray(n, n, n + 1, 10);
+        int[][] c = randomArray(n, n, n + 2, 10);
+        MatrixExpression A = MatrixExpression.of(a), B = MatrixExpression.of(b), C = MatrixExpression.of(c);
+        MatrixExpression shared = A.times(B);
+        // (AB) + (AB) C - (AB) + C (AB), every use of AB the same node
+        MatrixExpression expression = shared.plus(shared.times(C)).minus(shared).plus(C.times(shared));
+
+        int[][] ab = multiply(a, b);
+        int[][] expected = add(add(add(ab, multiply(ab, c), 1), ab, -1), multiply(c, ab), 1);
+        assertMatrixEquals(expected, expression.evaluateArray());
+        assertMatrixEquals(expected, expression.evaluate(false).result.toArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 7, 8, 13})
+    void powMatchesRepeatedMultiplication(int exponent) {
+        for (int n : new int[]{1, 3, 10, 21}) {
+            int[][] a = randomArray(n, n, 31L * n + exponent, 3);
+            int[][] expected = a;
+            for (int e = 1; e < exponent; e++) {
+                expected = multiply(expected, a);
+            }
+            assertMatrixEquals(expected, MatrixExpression.of(a).pow(exponent).evaluateArray());
+        }
+    }
+
+    @Test
+    void powOfSumUsesTheSumAsBase() {
+        int[][] a = randomArray(6, 6, 1, 5);
+        int[][] b = randomArray(6, 6, 2, 5);
+        int[][] sum = add(a, b, 1);
+        int[][] expected = multiply(multiply(sum, sum), sum);
+        assertMatrixEquals(expected, MatrixExpression.of(a).plus(MatrixExpression.of(b)).pow(3).evaluateArray());
+    }
+
+    @Test
+    void transposeOfProductSumAndPower() {
+        int[][] a = randomArray(5, 8, 1, 10);
+        int[][] b = randomArray(8, 11, 2, 10);
+        int[][] c = randomArray(5, 11, 3, 10);
+        int[][] s = randomArray(4, 4, 4, 5);
+        MatrixExpression A = MatrixExpression.of(a), B = MatrixExpression.of(b), C = MatrixExpression.of(c);
+
+        assertMatrixEquals(transpose(multiply(a, b)), A.times(B).transpose().evaluateArray());
+        assertMatrixEquals(transpose(add(multiply(a, b), c, -1)), A.times(B).minus(C).transpose().evaluateArray());
+        assertMatrixEquals(multiply(transpose(a), c), A.transpose().times(C).evaluateArray());
+        assertMatrixEquals(a, A.transpose().transpose().evaluateArray());
+        assertMatrixEquals(transpose(multiply(multiply(s, s), s)), MatrixExpression.of(s).pow(3).transpose().evaluateArray());
+    }
+
+    @Test
+    void transposedLeafUsedTwice() {
+        int[][] a = randomArray(9, 4, 1, 10);
+        MatrixExpression A = MatrixExpression.of(a);
+        // A^T A + A^T A with the transposed leaf shared by both products
+        MatrixExpression gram = A.transpose().times(A);
+        int[][] expected = multiply(transpose(a), a);
+        assertMatrixEquals(add(expected, expected, 1), gram.plus(A.transpose().times(A)).evaluateArray());
+    }
+
+    @Test
+    void evaluateReturnsSquareMatrix() {
+        int[][] a = randomArray(12, 12, 1, 10);
+        int[][] b = randomArray(12, 12, 2, 10);
+        Matrix C = MatrixExpression.of(new Matrix(a)).times(MatrixExpression.of(new Matrix(b))).evaluate();
+        assertEquals(12, C.size);
+        assertMatrixEquals(multiply(a, b), C.data);
+    }
+
+    @Test
+    void invalidShapesAreRejected() {
+        MatrixExpression wide = MatrixExpression.of(randomArray(2, 3, 1, 10));
+        MatrixExpression square = MatrixExpression.of(randomArray(2, 2, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> wide.times(wide));
+        assertThrows(IllegalArgumentException.class, () -> wide.plus(square));
+        assertThrows(IllegalArgumentException.class, () -> wide.pow(2));
+        assertThrows(IllegalArgumentException.class, () -> square.pow(0));
+        assertThrows(IllegalArgumentException.class, wide::evaluate);
+        assertThrows(IllegalArgumentException.class, () -> MatrixExpression.of(new int[][]{{1, 2}, {3}}));
+        assertThrows(IllegalArgumentException.class, () -> MatrixExpression.of(new int[0][0]));
+    }
+}
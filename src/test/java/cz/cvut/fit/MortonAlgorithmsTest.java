@@ -0,0 +1,77 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomMatrix;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import cz.cvut.fit.Algorithms.Matrix;
+import cz.cvut.fit.MortonAlgorithms.MortonMatrix;
+
+class MortonAlgorithmsTest {
+
+    // Around the leaf size and its multiples, and sizes whose tile count is not a power of two
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 7, 31, 32, 33, 63, 64, 65, 96, 100, 129, 161, 200})
+    void productMatchesReference(int n) {
+        Matrix A = randomMatrix(n, 1), B = randomMatrix(n, 2);
+        assertMatrixEquals(multiply(A, B), MortonAlgorithms.matrixMultiplicationMorton(A, B, n));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 31, 32, 33, 70})
+    void layoutRoundTrips(int n) {
+        Matrix A = randomMatrix(n, 3);
+        MortonMatrix Z = MortonMatrix.fromMatrix(A);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(A.data[i][j], Z.get(i, j), "element " + i + ", " + j);
+            }
+        }
+        assertMatrixEquals(A, Z.toMatrix());
+    }
+
+    @Test
+    void powerOfTwoTileCountIsZOrder() {
+        MortonMatrix Z = new MortonMatrix(4 * MortonAlgorithms.LEAF);
+        assertEquals(0, Z.tile(0, 0));
+        assertEquals(1, Z.tile(0, 1));
+        assertEquals(2, Z.tile(1, 0));
+        assertEquals(3, Z.tile(1, 1));
+        assertEquals(4, Z.tile(0, 2));
+        assertEquals(15, Z.tile(3, 3));
+    }
+
+    // Three tiles per side: the 2 x 2 quadrant first, then the 2 x 1 and 1 x 2 strips, then the corner
+    @Test
+    void unevenTileCountSplitsLargerHalfFirst() {
+        MortonMatrix Z = new MortonMatrix(3 * MortonAlgorithms.LEAF);
+        int[][] expected = {{0, 1, 4}, {2, 3, 5}, {6, 7, 8}};
+        for (int ti = 0; ti < 3; ti++) {
+            for (int tj = 0; tj < 3; tj++) {
+                assertEquals(expected[ti][tj], Z.tile(ti, tj), "tile " + ti + ", " + tj);
+            }
+        }
+    }
+
+    // Padding stops at whole leaf tiles instead of the next power of two
+    @ParameterizedTest
+    @ValueSource(ints = {33, 97, 1025})
+    void paddingStopsAtTheLeaf(int n) {
+        int tiles = (n + MortonAlgorithms.LEAF - 1) / MortonAlgorithms.LEAF;
+        MortonMatrix Z = new MortonMatrix(n);
+        assertEquals(tiles, Z.tiles);
+        assertEquals(tiles * tiles * MortonAlgorithms.LEAF * MortonAlgorithms.LEAF, Z.data.length);
+    }
+
+    @Test
+    void mismatchedSizesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MortonAlgorithms.matrixMultiplicationMorton(randomMatrix(4, 1), randomMatrix(5, 2), 4));
+        assertThrows(IllegalArgumentException.class, () -> new MortonMatrix(0));
+    }
+}
@@ -0,0 +1,57 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomMatrix;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import cz.cvut.fit.Algorithms.Matrix;
+
+class ParallelStrassenTest {
+
+    // Sizes that pad to leaf * 2^levels by a little or a lot, sizes at the cutoff, and every parallel depth
+    // from sequential to more levels of tasks than there are levels
+    @ParameterizedTest
+    @CsvSource({
+            "1, 8, 0", "1, 8, 2", "7, 8, 1", "8, 8, 1", "9, 8, 1", "9, 8, 2", "17, 8, 2", "33, 8, 2",
+            "63, 16, 1", "64, 16, 2", "65, 16, 2", "100, 16, 3", "129, 32, 2", "50, 1, 2", "50, 64, 2"
+    })
+    void productMatchesReference(int n, int cutoff, int parallelDepth) {
+        Matrix A = randomMatrix(n, 1), B = randomMatrix(n, 2);
+        assertMatrixEquals(multiply(A, B), ParallelStrassen.matrixMultiplicationStrassenParallel(A, B, n, 4, cutoff, parallelDepth));
+    }
+
+    @Test
+    void defaultSettingsMatchReference() {
+        for (int n : new int[]{1, 65, 200}) {
+            Matrix A = randomMatrix(n, 3), B = randomMatrix(n, 4);
+            assertMatrixEquals(multiply(A, B), ParallelStrassen.matrixMultiplicationStrassenParallel(A, B, n), "size " + n);
+        }
+    }
+
+    // The padded arena is reused between calls, padding left over from a larger size must not leak in
+    @Test
+    void reusedArenaDoesNotLeakBetweenSizes() {
+        for (int n : new int[]{90, 11, 45, 90, 5}) {
+            Matrix A = randomMatrix(n, n), B = randomMatrix(n, n + 1);
+            assertMatrixEquals(multiply(A, B), ParallelStrassen.matrixMultiplicationStrassenParallel(A, B, n, 2, 8, 1), "size " + n);
+        }
+    }
+
+    @Test
+    void defaultParallelDepth() {
+        assertEquals(0, ParallelStrassen.defaultParallelDepth(1));
+        assertEquals(1, ParallelStrassen.defaultParallelDepth(7));
+        assertEquals(2, ParallelStrassen.defaultParallelDepth(8));
+    }
+
+    @Test
+    void invalidCutoffIsRejected() {
+        Matrix A = randomMatrix(4, 1);
+        assertThrows(IllegalArgumentException.class, () -> ParallelStrassen.matrixMultiplicationStrassenParallel(A, A, 4, 2, 0, 1));
+    }
+}
@@ -0,0 +1,89 @@
+package cz.cvut.fit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import cz.cvut.fit.Algorithms.Matrix;
+
+// Naive operations the optimized kernels are checked against, and random operands for them
+final class Reference {
+
+    private Reference() {
+    }
+
+    // Plain i-j-k triple loop, wrapping in int like every kernel
+    static int[][] multiply(int[][] a, int[][] b) {
+        int[][] c = new int[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                int sum = 0;
+                for (int k = 0; k < b.length; k++) {
+                    sum += a[i][k] * b[k][j];
+                }
+                c[i][j] = sum;
+            }
+        }
+        return c;
+    }
+
+    static Matrix multiply(Matrix A, Matrix B) {
+        return new Matrix(multiply(A.data, B.data));
+    }
+
+    // a + sign * b
+    static int[][] add(int[][] a, int[][] b, int sign) {
+        int[][] c = new int[a.length][a[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a[0].length; j++) {
+                c[i][j] = a[i][j] + sign * b[i][j];
+            }
+        }
+        return c;
+    }
+
+    static int[][] transpose(int[][] a) {
+        int[][] t = new int[a[0].length][a.length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a[0].length; j++) {
+                t[j][i] = a[i][j];
+            }
+        }
+        return t;
+    }
+
+    // Values in (-bound, bound), so products of a few of them stay far from overflow
+    static int[][] randomArray(int rows, int cols, long seed, int bound) {
+        Random random = new Random(seed);
+        int[][] a = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a[i][j] = random.nextInt(2 * bound - 1) - bound + 1;
+            }
+        }
+        return a;
+    }
+
+    static Matrix randomMatrix(int size, long seed) {
+        return new Matrix(randomArray(size, size, seed, 10));
+    }
+
+    static Matrix copy(Matrix M) {
+        Matrix copy = new Matrix(M.size);
+        for (int i = 0; i < M.size; i++) {
+            System.arraycopy(M.data[i], 0, copy.data[i], 0, M.size);
+        }
+        return copy;
+    }
+
+    static void assertMatrixEquals(int[][] expected, int[][] actual) {
+        assertArrayEquals(expected, actual);
+    }
+
+    static void assertMatrixEquals(Matrix expected, Matrix actual) {
+        assertArrayEquals(expected.data, actual.data);
+    }
+
+    static void assertMatrixEquals(Matrix expected, Matrix actual, String message) {
+        assertArrayEquals(expected.data, actual.data, message);
+    }
+}
@@ -0,0 +1,80 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.copy;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomMatrix;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import cz.cvut.fit.Algorithms.Matrix;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger multiplications = new AtomicInteger();
+
+    private final MatrixMultiplier counting = (A, B, size) -> {
+        multiplications.incrementAndGet();
+        return multiply(A, B);
+    };
+
+    // Operands are matched by content, so copies of the same matrices hit the product of the originals
+    @Test
+    void equalContentIsMultipliedOnce() throws IOException {
+        ResultCache cache = new ResultCache(1 << 20, null);
+        Matrix A = randomMatrix(12, 1), B = randomMatrix(12, 2);
+        Matrix first = cache.multiply(ResultCache.Operand.of(A), ResultCache.Operand.of(B), counting);
+        Matrix second = cache.multiply(ResultCache.Operand.of(copy(A)), ResultCache.Operand.of(copy(B)), counting);
+
+        assertMatrixEquals(multiply(A, B), first);
+        assertSame(first, second);
+        assertEquals(1, multiplications.get());
+        assertEquals(1, cache.misses);
+        assertEquals(1, cache.products.hits);
+        assertSame(first, cache.cached(ResultCache.Operand.of(A), ResultCache.Operand.of(B)));
+        assertNull(cache.cached(ResultCache.Operand.of(B), ResultCache.Operand.of(A)));
+    }
+
+    // An evicted product is read back from the directory, and so is every product in a new cache over it
+    @Test
+    void storedProductsAreReadInsteadOfMultiplied() throws IOException {
+        Matrix A = randomMatrix(10, 1), B = randomMatrix(10, 2), C = randomMatrix(10, 3);
+        ResultCache.Operand a = ResultCache.Operand.of(A), b = ResultCache.Operand.of(B), c = ResultCache.Operand.of(C);
+        ResultCache cache = new ResultCache(ResultCache.bytesOf(A), dir);
+        cache.multiply(a, b, counting);
+        cache.multiply(a, c, counting);
+        assertEquals(1, cache.products.evictions);
+        assertMatrixEquals(multiply(A, B), cache.multiply(a, b, counting));
+        assertEquals(2, multiplications.get());
+        assertEquals(1, cache.diskHits);
+
+        ResultCache reopened = new ResultCache(1 << 20, dir);
+        assertMatrixEquals(multiply(A, C), reopened.multiply(a, c, counting));
+        assertEquals(2, multiplications.get());
+        assertEquals(1, reopened.diskHits);
+        assertEquals(0, reopened.misses);
+    }
+
+    @Test
+    void failedMultiplicationIsRetried() throws IOException {
+        ResultCache cache = new ResultCache(1 << 20, null);
+        ResultCache.Operand a = ResultCache.Operand.of(randomMatrix(4, 1)), b = ResultCache.Operand.of(randomMatrix(4, 2));
+        assertThrows(IllegalStateException.class, () -> cache.multiply(a, b, (A, B, size) -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertMatrixEquals(multiply(a.matrix, b.matrix), cache.multiply(a, b, counting));
+        assertEquals(1, multiplications.get());
+        assertThrows(IllegalArgumentException.class,
+                () -> cache.multiply(a, ResultCache.Operand.of(randomMatrix(5, 3)), counting));
+    }
+}
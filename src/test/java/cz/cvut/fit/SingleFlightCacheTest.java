@@ -0,0 +1,176 @@
+package cz.cvut.fit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightCacheTest {
+
+    private static SingleFlightCache<String> cache(long budgetBytes) {
+        return new SingleFlightCache<>(budgetBytes, String::length);
+    }
+
+    // Counters are written under the cache's lock; waits until the counter reaches at least value
+    private static void await(SingleFlightCache<?> cache, ToLongFunction<SingleFlightCache<?>> counter, long value)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            synchronized (cache) {
+                if (counter.applyAsLong(cache) >= value) {
+                    return;
+                }
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    // One caller computes while the others wait for it; the supplier is held until every caller is waiting
+    @Test
+    void parallelCallersShareOneComputation() throws Exception {
+        SingleFlightCache<String> cache = cache(1 << 20);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> slow = () -> {
+            computations.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "value";
+        };
+
+        int callers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int c = 0; c < callers; c++) {
+                results.add(executor.submit(() -> cache.get("key", slow)));
+            }
+            await(cache, c -> c.shared, callers - 1);
+            release.countDown();
+            String first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<String> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, computations.get());
+        assertEquals(1, cache.misses);
+        assertEquals(callers - 1, cache.hits);
+        assertEquals(callers - 1, cache.shared);
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedFirst() {
+        SingleFlightCache<String> cache = cache(10);
+        cache.get("a", () -> "aaaa");
+        cache.get("b", () -> "bbbb");
+        cache.get("a", () -> "never");
+        cache.get("c", () -> "cccc");
+
+        assertEquals("aaaa", cache.peek("a"));
+        assertNull(cache.peek("b"));
+        assertEquals("cccc", cache.peek("c"));
+        assertEquals(1, cache.evictions);
+        assertEquals(8, cache.cachedBytes());
+        assertEquals(1, cache.hits);
+        assertEquals(0, cache.shared);
+    }
+
+    // A single value over the budget is still kept until the next one arrives
+    @Test
+    void valueOverTheBudgetStaysUntilReplaced() {
+        SingleFlightCache<String> cache = cache(3);
+        cache.get("a", () -> "aaaa");
+        assertEquals("aaaa", cache.peek("a"));
+        cache.get("b", () -> "bb");
+        assertNull(cache.peek("a"));
+        assertEquals(2, cache.cachedBytes());
+    }
+
+    @Test
+    void failuresAndNullsAreNotCached() {
+        SingleFlightCache<String> cache = cache(100);
+        assertThrows(IllegalStateException.class, () -> cache.get("key", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertNull(cache.get("key", () -> null));
+        assertEquals("value", cache.get("key", () -> "value"));
+        assertEquals(3, cache.misses);
+        assertEquals(0, cache.hits);
+        assertEquals(5, cache.cachedBytes());
+    }
+
+    // An Error must not leave the entry behind, or every later caller for the key would wait forever
+    @Test
+    void errorFailsWaitingCallersAndIsRetried() throws Exception {
+        SingleFlightCache<String> cache = cache(100);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> owner = executor.submit(() -> cache.get("key", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                throw new StackOverflowError();
+            }));
+            await(cache, c -> c.misses, 1);
+            Future<?> waiter = executor.submit(() -> cache.get("key", () -> "never"));
+            await(cache, c -> c.shared, 1);
+            release.countDown();
+            for (Future<?> caller : List.of(owner, waiter)) {
+                Throwable cause = assertThrows(ExecutionException.class,
+                        () -> caller.get(10, TimeUnit.SECONDS)).getCause();
+                assertEquals(StackOverflowError.class, cause.getClass());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("value", cache.get("key", () -> "value"));
+    }
+
+    @Test
+    void prefetchedValueIsAHit() {
+        SingleFlightCache<String> cache = cache(100);
+        CompletableFuture<Void> task = cache.prefetch("key", () -> "value", Runnable::run);
+        assertNotNull(task);
+        task.join();
+        assertNull(cache.prefetch("key", () -> "again", Runnable::run));
+        assertEquals("value", cache.get("key", () -> "never"));
+        assertEquals(1, cache.prefetches);
+        assertEquals(1, cache.hits);
+        assertEquals(0, cache.misses);
+    }
+
+    // The prefetch task finishes normally, the failure is left for the next request, which computes again
+    @Test
+    void failedPrefetchIsRetried() {
+        SingleFlightCache<String> cache = cache(100);
+        cache.prefetch("key", () -> {
+            throw new OutOfMemoryError("prefetch");
+        }, Runnable::run).join();
+        assertNull(cache.peek("key"));
+        assertEquals("value", cache.get("key", () -> "value"));
+        assertEquals(1, cache.misses);
+    }
+}
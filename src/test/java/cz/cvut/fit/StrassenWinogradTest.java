@@ -0,0 +1,46 @@
+package cz.cvut.fit;
+
+import static cz.cvut.fit.Reference.assertMatrixEquals;
+import static cz.cvut.fit.Reference.multiply;
+import static cz.cvut.fit.Reference.randomMatrix;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import cz.cvut.fit.Algorithms.Matrix;
+
+class StrassenWinogradTest {
+
+    // Odd sizes peel a row and a column at every level they reach, sizes around the crossover and its double
+    // switch to the blocked kernel one level earlier or later
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 7, 8, 9, 15, 16, 17, 31, 33, 50, 63, 64, 65, 100, 127})
+    void productMatchesReference(int n) {
+        Matrix A = randomMatrix(n, 1), B = randomMatrix(n, 2);
+        assertMatrixEquals(multiply(A, B), StrassenWinograd.matrixMultiplicationWinograd(A, B, n, 8));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, 1", "2, 1", "5, 1", "13, 1", "32, 32", "33, 32", "64, 32", "65, 32", "31, 16", "47, 24"})
+    void crossoverBoundaries(int n, int crossover) {
+        Matrix A = randomMatrix(n, 3), B = randomMatrix(n, 4);
+        assertMatrixEquals(multiply(A, B), StrassenWinograd.matrixMultiplicationWinograd(A, B, n, crossover));
+    }
+
+    // The arena is reused between calls, a smaller product after a larger one must not see its leftovers
+    @Test
+    void reusedArenaDoesNotLeakBetweenSizes() {
+        for (int n : new int[]{70, 9, 41, 70, 3}) {
+            Matrix A = randomMatrix(n, n), B = randomMatrix(n, n + 1);
+            assertMatrixEquals(multiply(A, B), StrassenWinograd.matrixMultiplicationWinograd(A, B, n, 4), "size " + n);
+        }
+    }
+
+    @Test
+    void invalidCrossoverIsRejected() {
+        Matrix A = randomMatrix(4, 1);
+        assertThrows(IllegalArgumentException.class, () -> StrassenWinograd.matrixMultiplicationWinograd(A, A, 4, 0));
+    }
+}